@@ -2,11 +2,13 @@ package com.org.bank.manage.system;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * @author tucker
  */
 @SpringBootApplication
+@EnableScheduling
 public class BankManageSystemApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,20 @@
+package com.org.bank.manage.system.common;
+
+/**
+ * 异步转账状态
+ *
+ * @author tucker
+ */
+public enum AsyncTransferStatus {
+    PENDING("处理中"),
+    SUCCEEDED("成功"),
+    FAILED("失败"),;
+    private String displayName;
+    AsyncTransferStatus(String displayName){
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
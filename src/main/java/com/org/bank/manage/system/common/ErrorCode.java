@@ -16,6 +16,15 @@ public enum ErrorCode {
     ACCOUNT_NOT_EXISTS(500, "account not existed",""),
     TRANSFER_NOT_ALLOWED(500, "transfer not allowed",""),
     ACCOUNT_STATUS_NOT_ALLOWED(500, "account status not allowed",""),
+    TRANSFER_BUSY(500, "transfer engine busy",""),
+    TRANSFER_TIMEOUT(500, "transfer timeout",""),
+    TRANSFER_CONFLICT(500, "transfer conflict, please retry",""),
+    ACCOUNT_LOCK_TIMEOUT(500, "account is busy, please retry",""),
+    TOO_MANY_REQUESTS(429, "server is busy, please retry later",""),
+    NOT_READY(503, "service is warming up",""),
+    TRANSFER_NOT_FOUND(500, "transfer not found",""),
+    IDEMPOTENCY_KEY_REUSED(400, "idempotency key reused with a different request",""),
+    IDEMPOTENCY_IN_PROGRESS(500, "request with the same idempotency key is in progress",""),
 
     PARAMS_ERROR(40000, "请求参数错误", ""),
     NULL_ERROR(40001, "请求数据为空", ""),
@@ -4,6 +4,7 @@ package com.org.bank.manage.system.common;
 import com.org.bank.manage.system.common.exception.BusinessException;
 import com.org.bank.manage.system.request.BaseResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
@@ -27,6 +28,15 @@ public class GlobalExceptionHandler {
         return ResultUtils.error(e.getCode(), e.getMessage(), e.getDescription());
     }
 
+    /**
+     * 托管实体提交时版本号不一致：账户被并发修改，与条件更新失败一样提示重试
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public BaseResponse optimisticLockingFailureHandler(OptimisticLockingFailureException e) {
+        log.warn("optimisticLockingFailure: {}", e.getMessage());
+        return ResultUtils.error(ErrorCode.TRANSFER_CONFLICT);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public BaseResponse runtimeExceptionHandler(RuntimeException e) {
         log.error("runtimeException", e);
@@ -29,6 +29,11 @@ public class PageRes<T>  {
 
     private List<T> data;
 
+    /**
+     * 游标分页时下一页的游标，为空表示没有更多数据
+     */
+    private String nextCursor;
+
     //---------------------------------------------------------- Constructor start
 
     /**
@@ -154,4 +159,12 @@ public class PageRes<T>  {
     public List<T> getData() {
         return data;
     }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
 }
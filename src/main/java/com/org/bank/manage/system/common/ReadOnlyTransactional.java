@@ -0,0 +1,22 @@
+package com.org.bank.manage.system.common;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 只读事务：Hibernate 会话设为只读、刷新模式为 MANUAL，查出的实体不做快照与脏检查，提交时也不刷新；
+ * JDBC 连接同时标记为只读。只用于读接口与读查询，写操作仍使用 {@code jakarta.transaction.Transactional}
+ *
+ * @author tucker
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+}
@@ -0,0 +1,30 @@
+package com.org.bank.manage.system.common;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务相关工具类
+ *
+ * @author tucker
+ */
+public class TransactionUtils {
+
+    /**
+     * 当前存在事务时在提交后执行，否则立即执行
+     *
+     * @param action 待执行动作
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package com.org.bank.manage.system.common;
+
+/**
+ * 转账执行模式
+ *
+ * @author tucker
+ */
+public enum TransferMode {
+    /**
+     * 直接读写数据库（默认）
+     */
+    DIRECT,
+    /**
+     * 按卡号分片的单写线程转账引擎
+     */
+    SHARDED,
+    /**
+     * 基于版本号的条件更新 + 有界重试
+     */
+    OPTIMISTIC
+}
@@ -33,4 +33,11 @@ public class BusinessException extends RuntimeException {
         this.code = code;
         this.description = description;
     }
-}
\ No newline at end of file
+
+    // 构造方法4：不填充调用栈，用于卡号不存在这类高频、可预期的失败
+    public BusinessException(ErrorCode errorCode, String description, boolean writableStackTrace) {
+        super(errorCode.getMessage(), null, false, writableStackTrace);
+        this.code = errorCode.getCode();
+        this.description = description;
+    }
+}
@@ -0,0 +1,94 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 写接口自适应并发限制配置，对应 application.yaml 中的 bank.admission
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.admission")
+public class AdmissionProperties {
+
+    /**
+     * 是否在写接口前启用并发限制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始并发上限
+     */
+    private int initialLimit = 100;
+
+    /**
+     * 并发上限的下界
+     */
+    private int minLimit = 10;
+
+    /**
+     * 并发上限的上界
+     */
+    private int maxLimit = 1_000;
+
+    /**
+     * 目标延迟（毫秒），请求耗时超过该值时按 backoff-ratio 收缩上限
+     */
+    private long targetLatencyMs = 200;
+
+    /**
+     * 乘性减小系数
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * 达到上限时排队等待的最长时间（毫秒），0 表示直接拒绝
+     */
+    private long queueTimeoutMs = 50;
+
+    /**
+     * 拒绝时建议客户端的重试间隔（秒），通过 Retry-After 响应头返回
+     */
+    private int retryAfterSeconds = 1;
+
+    /**
+     * 受限制的接口路径
+     */
+    private List<String> paths = new ArrayList<>(List.of(
+            "/bank/account/manage/v1/createBankAccount",
+            "/bank/account/manage/v1/updateBankAccount",
+            "/bank/account/manage/v1/deleteBankAccount",
+            "/bank/account/manage/v1/bankTransfer",
+            "/bank/account/manage/v1/bankTransfer/async"));
+
+    /**
+     * 批量转账单独限制：一批的耗时远高于单笔，共用上限和目标延迟会把单笔接口的上限压到下界
+     */
+    private Batch batch = new Batch();
+
+    @Data
+    public static class Batch {
+
+        /**
+         * 受限制的接口路径
+         */
+        private List<String> paths = new ArrayList<>(List.of("/bank/account/manage/v1/bankTransfer/batch"));
+
+        private int initialLimit = 10;
+
+        private int minLimit = 1;
+
+        private int maxLimit = 100;
+
+        /**
+         * 目标延迟（毫秒），退避系数、排队时间与 Retry-After 与单笔接口相同
+         */
+        private long targetLatencyMs = 2_000;
+    }
+}
@@ -0,0 +1,48 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 异步转账配置，对应 application.yaml 中的 bank.async-transfer
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.async-transfer")
+public class AsyncTransferProperties {
+
+    /**
+     * 运行在支持虚拟线程的 JDK（21+）上时使用虚拟线程执行
+     */
+    private boolean virtualThreads = true;
+
+    /**
+     * 不支持虚拟线程时使用的平台线程数
+     */
+    private int platformThreads = 64;
+
+    /**
+     * 已受理但未完成的转账上限，超出后直接拒绝
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * 转账完成后结果的保留时间，超出后按转账编号查询不到；未完成的转账不会过期
+     */
+    private Duration resultTtl = Duration.ofMinutes(10);
+
+    /**
+     * 最多保留的已完成转账结果数，未完成的转账不计入
+     */
+    private long maxTrackedTransfers = 100_000;
+
+    /**
+     * 长轮询单次最长等待时间（毫秒）
+     */
+    private long maxWaitMs = 30_000;
+}
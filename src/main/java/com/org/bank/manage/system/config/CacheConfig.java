@@ -1,29 +1,99 @@
 package com.org.bank.manage.system.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.cache.AccountCacheWeigher;
+import com.org.bank.manage.system.service.cache.compact.CompactAccountCodec;
+import com.org.bank.manage.system.service.cache.compact.CompactValueCache;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
-import java.util.concurrent.TimeUnit;
-
+/**
+ * 每个缓存按 bank.cache.specs 单独构建并开启统计；
+ * Spring Boot Actuator 会把已注册缓存的命中、未命中、淘汰与加载耗时发布为 cache.* 指标。
+ * 账户详情与分页使用 {@code @Cacheable(sync = true)}，同一个键同时只有一次加载，其余调用等待其结果；
+ * 配置 refresh-after-write 后，过期前被访问的键在后台重新加载，读请求继续拿到旧值
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
-    @Bean
-    public Caffeine<Object, Object> caffeineConfig() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(10, TimeUnit.MINUTES)
-                .maximumSize(1000);
-    }
 
     @Bean
-    public CacheManager cacheManager(Caffeine<Object, Object> caffeine) {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("bankaccounts", "bankaccount");
-        cacheManager.setCaffeine(caffeine);
+    public CacheManager cacheManager(CacheProperties cacheProperties,
+                                     ObjectProvider<AccountCacheSupport> accountCacheSupport) {
+        // 加载器在首次加载时才取 AccountCacheSupport，避免与 CacheManager 循环依赖
+        Map<String, CacheLoader<Object, Object>> loaders = new HashMap<>();
+        // 紧凑编码时加载器直接写入原生缓存，需要自行编码
+        Function<Object, Object> encoder = cacheProperties.isCompactValues()
+                ? CompactAccountCodec::encode : Function.identity();
+        loaders.put(AccountCacheSupport.ACCOUNT_DETAIL,
+                key -> encoder.apply(accountCacheSupport.getObject().loadDetail((String) key)));
+        loaders.put(AccountCacheSupport.ACCOUNT_PAGES,
+                key -> encoder.apply(accountCacheSupport.getObject().loadPage((String) key)));
+
+        CaffeineCacheManager cacheManager = cacheProperties.isCompactValues()
+                ? new CompactCacheManager() : new CaffeineCacheManager();
+        cacheManager.setCaffeine(builder(cacheProperties.getDefaultSpec()));
+        cacheProperties.getSpecs().forEach((name, spec) ->
+                cacheManager.registerCustomCache(name, build(name, spec, loaders.get(name))));
         return cacheManager;
     }
+
+    static Cache<Object, Object> build(String name, CacheProperties.Spec spec, CacheLoader<Object, Object> loader) {
+        Caffeine<Object, Object> builder = builder(spec);
+        if (spec.getRefreshAfterWrite() == null) {
+            return builder.build();
+        }
+        if (loader == null) {
+            throw new IllegalArgumentException("cache " + name + " has no loader, refresh-after-write is not supported");
+        }
+        return builder.refreshAfterWrite(spec.getRefreshAfterWrite()).build(loader);
+    }
+
+    static Caffeine<Object, Object> builder(CacheProperties.Spec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (spec.getMaximumWeight() != null) {
+            builder.maximumWeight(spec.getMaximumWeight()).weigher(new AccountCacheWeigher(spec.isWeighInBytes()));
+        } else if (spec.getMaximumSize() != null) {
+            builder.maximumSize(spec.getMaximumSize());
+        }
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(spec.getExpireAfterAccess());
+        }
+        if (spec.isRecordStats()) {
+            builder.recordStats();
+        }
+        return builder;
+    }
+
+    /**
+     * 账户详情与分页缓存使用紧凑编码，其他缓存不变
+     */
+    static class CompactCacheManager extends CaffeineCacheManager {
+
+        private static final Set<String> COMPACT_CACHES =
+                Set.of(AccountCacheSupport.ACCOUNT_DETAIL, AccountCacheSupport.ACCOUNT_PAGES);
+
+        @Override
+        protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+            if (COMPACT_CACHES.contains(name)) {
+                return new CompactValueCache(name, cache, isAllowNullValues());
+            }
+            return super.adaptCaffeineCache(name, cache);
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存配置，对应 application.yaml 中的 bank.cache，每个缓存单独设置容量、过期与刷新
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.cache")
+public class CacheProperties {
+
+    /**
+     * 缓存名 -> 配置；未列出的缓存使用 default-spec
+     */
+    private Map<String, Spec> specs = new LinkedHashMap<>();
+
+    /**
+     * 未单独配置的缓存使用的配置
+     */
+    private Spec defaultSpec = new Spec();
+
+    /**
+     * 账户详情与分页命中缓存时是否直接输出预先序列化的 JSON 字节（带 ETag）
+     */
+    private boolean serializedResponses = true;
+
+    /**
+     * 账户详情与分页缓存是否以紧凑编码保存（余额按分存为 long、字符串合并为一个 byte[]、用户 ID 驻留），读取时解码
+     */
+    private boolean compactValues = false;
+
+    /**
+     * 多节点部署时的缓存失效广播
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    @Data
+    public static class Spec {
+
+        /**
+         * 最多条目数，与 maximum-weight 二选一
+         */
+        private Long maximumSize = 10_000L;
+
+        /**
+         * 最大总权重，按权重计算器累加（分页缓存按每页的账户数），设置后忽略 maximum-size
+         */
+        private Long maximumWeight;
+
+        /**
+         * maximum-weight 是否按估算字节数计算（账户缓存需开启 compact-values，响应字节缓存按 JSON 长度），否则按账户数计算
+         */
+        private boolean weighInBytes = false;
+
+        /**
+         * 写入后过期时间，为空表示不过期
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+        /**
+         * 最后一次访问后过期时间，为空表示不按访问过期
+         */
+        private Duration expireAfterAccess;
+
+        /**
+         * 写入后多久在下一次访问时异步重新加载，只对注册了加载器的缓存生效
+         */
+        private Duration refreshAfterWrite;
+
+        /**
+         * 是否记录命中、未命中、淘汰与加载耗时统计
+         */
+        private boolean recordStats = true;
+    }
+
+    @Data
+    public static class Invalidation {
+
+        /**
+         * 是否把本节点的账户改动广播给其他节点
+         */
+        private boolean enabled = false;
+
+        /**
+         * 传输方式：jdbc（数据库变更日志轮询）或 in-memory（进程内，单机与测试用）
+         */
+        private String transport = "jdbc";
+
+        /**
+         * 节点标识，为空时启动时随机生成
+         */
+        private String nodeId;
+
+        /**
+         * 待发送失效的合并与发送间隔（毫秒）
+         */
+        private long flushIntervalMs = 20;
+
+        /**
+         * 待发送失效达到该数量时立即发送
+         */
+        private int maxBatch = 500;
+
+        /**
+         * jdbc 传输轮询变更日志的间隔（毫秒）
+         */
+        private long pollIntervalMs = 200;
+
+        /**
+         * jdbc 传输每次轮询回看的时间窗口，覆盖插入与提交之间的延迟
+         */
+        private Duration pollOverlap = Duration.ofSeconds(2);
+
+        /**
+         * jdbc 传输变更日志的保留时间
+         */
+        private Duration retention = Duration.ofHours(1);
+    }
+}
@@ -0,0 +1,48 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 卡号存在性过滤配置，对应 application.yaml 中的 bank.card-filter
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.card-filter")
+public class CardFilterProperties {
+
+    /**
+     * 是否启用卡号布隆过滤器与不存在缓存，需同时开启缓存失效总线
+     */
+    private boolean enabled = false;
+
+    /**
+     * 布隆过滤器第一段的容量，超出后追加容量翻倍的新段
+     */
+    private int initialCapacity = 1_000_000;
+
+    /**
+     * 整体误判率上限
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * 确认不存在的卡号缓存时间
+     */
+    private Duration negativeTtl = Duration.ofSeconds(30);
+
+    /**
+     * 不存在缓存最多条目数
+     */
+    private long negativeMaxSize = 100_000;
+
+    /**
+     * 从账户表全量重建布隆过滤器的间隔（毫秒），清除已删除卡号带来的误判并补上其他节点开户的卡号
+     */
+    private long rebuildIntervalMs = 3_600_000;
+}
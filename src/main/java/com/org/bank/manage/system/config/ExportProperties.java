@@ -0,0 +1,28 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 账户流式导出配置，对应 application.yaml 中的 bank.export
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.export")
+public class ExportProperties {
+
+    /**
+     * 是否开放全表导出接口（/admin/getBankAccountStream）；接口本身不做鉴权，只在内网或网关鉴权后开启
+     */
+    private boolean fullExportEnabled = false;
+
+    /**
+     * 异步请求（流式导出）的默认超时，需覆盖整个导出过程
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+}
@@ -0,0 +1,39 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 热点账户拆分配置，对应 application.yaml 中的 bank.hot-account
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.hot-account")
+public class HotAccountProperties {
+
+    /**
+     * 是否启用热点账户子余额槽
+     */
+    private boolean enabled = false;
+
+    /**
+     * 拆分为子余额槽的卡号
+     */
+    private List<String> cards = new ArrayList<>();
+
+    /**
+     * 每个热点账户的子余额槽数量
+     */
+    private int slots = 16;
+
+    /**
+     * 定期把子余额槽归并回主余额的间隔（毫秒）
+     */
+    private long compactionIntervalMs = 1_000;
+}
@@ -0,0 +1,38 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 幂等键配置，对应 application.yaml 中的 bank.idempotency
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * 幂等记录保留时间，超出后同一个 key 视为新请求
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * 最多保留的幂等记录数，超出后清理最旧的记录
+     */
+    private long maxRecords = 1_000_000;
+
+    /**
+     * 清理过期记录的间隔（毫秒）
+     */
+    private long purgeIntervalMs = 60_000;
+
+    /**
+     * 等待同一 key 正在执行的请求的最长时间（毫秒）
+     */
+    private long inFlightTimeoutMs = 10_000;
+}
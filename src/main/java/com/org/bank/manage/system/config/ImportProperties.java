@@ -0,0 +1,26 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批量导入账户配置，对应 application.yaml 中的 bank.import
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.import")
+public class ImportProperties {
+
+    /**
+     * 每个分段的行数：一次查重、一个事务，与 hibernate.jdbc.batch_size 保持一致时每段只发一个批次
+     */
+    private int chunkSize = 500;
+
+    /**
+     * 返回结果中最多列出的错误行数，超出部分只计数
+     */
+    private int maxReportedErrors = 1000;
+}
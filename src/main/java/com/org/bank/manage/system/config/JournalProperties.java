@@ -0,0 +1,43 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 转账日志配置，对应 application.yaml 中的 bank.journal
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.journal")
+public class JournalProperties {
+
+    /**
+     * 是否在转账确认前写入转账日志
+     */
+    private boolean enabled = true;
+
+    /**
+     * 转账日志目录（分片引擎的日志目录见 bank.transfer.journal-dir）
+     */
+    private String dir = "./data/journal/transfers";
+
+    /**
+     * 单个内存映射段文件大小，写满后滚动到新段
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(32);
+
+    /**
+     * 每个日志目录最多保留的段数（含当前段），滚动时删除更旧的段，0 表示全部保留。
+     * 日志兼作审计记录，只有段已另行归档时才设置上限
+     */
+    private int retainedSegments = 0;
+
+    /**
+     * 启动时是否按日志中最后的余额回写数据库中已存在的账户，不存在的账户不会被重建
+     */
+    private boolean restoreOnStartup = false;
+}
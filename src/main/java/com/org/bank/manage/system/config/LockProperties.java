@@ -0,0 +1,26 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 账户分段锁配置，对应 application.yaml 中的 bank.lock
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.lock")
+public class LockProperties {
+
+    /**
+     * 分段锁数量，向上取整为 2 的幂
+     */
+    private int stripes = 1024;
+
+    /**
+     * 获取锁的最长等待时间（毫秒）
+     */
+    private long timeoutMs = 3_000;
+}
@@ -0,0 +1,54 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 读写分离配置，对应 application.yaml 中的 bank.replica；从库连接池参数在 bank.replica.hikari 下配置
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.replica")
+public class ReplicaProperties {
+
+    /**
+     * 是否把账户详情与分页查询路由到从库
+     */
+    private boolean enabled = false;
+
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * 为空时按 url 推断
+     */
+    private String driverClassName;
+
+    /**
+     * 可容忍的从库落后时间，从库上最新心跳早于该时间时读主库；需大于 heartbeat-interval-ms
+     */
+    private Duration maxStaleness = Duration.ofSeconds(2);
+
+    /**
+     * 账户或用户被写过后在该时间内读主库（读己之写），不能短于 max-staleness
+     */
+    private Duration stickyWindow = Duration.ofSeconds(5);
+
+    /**
+     * 向主库写心跳、从从库读心跳的间隔（毫秒）
+     */
+    private long heartbeatIntervalMs = 500;
+
+    /**
+     * 最多记录的近期写过的卡号与用户数
+     */
+    private long maxTrackedKeys = 100_000;
+}
@@ -0,0 +1,87 @@
+package com.org.bank.manage.system.config;
+
+import com.org.bank.manage.system.service.shard.ShardRoutingDataSource;
+import com.org.bank.manage.system.service.shard.ShardSchemaExporter;
+import com.org.bank.manage.system.service.shard.ShardSequenceGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 账户分库（bank.sharding.enabled=true 时启用）：分片 0 为主库，仍按 spring.datasource 配置，
+ * 其余分片按 bank.sharding.urls 配置，JPA 与 JdbcTemplate 使用的是包装后的路由数据源
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bank.sharding", name = "enabled", havingValue = "true")
+public class ShardDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource homeShardDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            @Qualifier("homeShardDataSource") HikariDataSource homeShardDataSource,
+            ShardingProperties shardingProperties) {
+        List<DataSource> shards = new ArrayList<>(shardingProperties.shardCount());
+        shards.add(homeShardDataSource);
+        for (String url : shardingProperties.getUrls()) {
+            DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(shardingProperties.getUsername())
+                    .password(shardingProperties.getPassword());
+            if (shardingProperties.getDriverClassName() != null) {
+                builder.driverClassName(shardingProperties.getDriverClassName());
+            }
+            HikariDataSource dataSource = builder.build();
+            dataSource.setPoolName("shard-" + shards.size());
+            dataSource.setMaximumPoolSize(shardingProperties.getMaximumPoolSize());
+            dataSource.setTransactionIsolation(homeShardDataSource.getTransactionIsolation());
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardSchemaExporter shardSchemaExporter(ShardingProperties shardingProperties) {
+        return new ShardSchemaExporter(shardingProperties.shardCount());
+    }
+
+    /**
+     * 账户 id 的生成器按分片数编码分片号；主库以外的分片由 {@link ShardSchemaExporter} 按同一份映射建表
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardHibernateProperties(ShardingProperties shardingProperties,
+                                                                  ShardSchemaExporter shardSchemaExporter) {
+        return properties -> {
+            properties.put(ShardSequenceGenerator.SHARD_COUNT, shardingProperties.shardCount());
+            properties.put("hibernate.integrator_provider",
+                    (IntegratorProvider) () -> List.of(shardSchemaExporter));
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 账户分库配置，对应 application.yaml 中的 bank.sharding
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.sharding")
+public class ShardingProperties {
+
+    /**
+     * 是否按 user_uid 把账户分散到多个数据库
+     */
+    private boolean enabled = false;
+
+    /**
+     * 除主库（分片 0，即 spring.datasource）外其他分片的 JDBC URL，依次为分片 1..N-1；
+     * 账户按 user_uid 的哈希对分片数取模，分片数确定后不能再改
+     */
+    private List<String> urls = new ArrayList<>();
+
+    private String username;
+
+    private String password;
+
+    /**
+     * 为空时按 url 推断
+     */
+    private String driverClassName;
+
+    /**
+     * 每个分片连接池的最大连接数
+     */
+    private int maximumPoolSize = 10;
+
+    /**
+     * 跨分片并行查询的线程数
+     */
+    private int fanOutThreads = 16;
+
+    /**
+     * 跨分片并行查询的超时时间
+     */
+    private Duration fanOutTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 本地缓存的卡号 -> 分片目录条目数
+     */
+    private long directoryCacheSize = 1_000_000;
+
+    /**
+     * 跨分片转账的待完成记录超过该时长仍未删除时，由恢复任务完成入账或退回扣款
+     */
+    private Duration recoveryDelay = Duration.ofMinutes(1);
+
+    /**
+     * 恢复任务扫描待完成记录的间隔（毫秒）
+     */
+    private long recoveryIntervalMs = 30_000;
+
+    /**
+     * 分片总数，包括主库
+     */
+    public int shardCount() {
+        return urls.size() + 1;
+    }
+}
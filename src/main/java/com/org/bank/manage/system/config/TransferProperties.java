@@ -0,0 +1,76 @@
+package com.org.bank.manage.system.config;
+
+import com.org.bank.manage.system.common.TransferMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 转账相关配置，对应 application.yaml 中的 bank.transfer
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.transfer")
+public class TransferProperties {
+
+    /**
+     * 转账执行模式
+     */
+    private TransferMode mode = TransferMode.DIRECT;
+
+    /**
+     * 分片数量（SHARDED 模式）
+     */
+    private int shards = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 每个分片待处理任务队列上限
+     */
+    private int shardQueueCapacity = 10_000;
+
+    /**
+     * 等待分片处理结果的超时时间（毫秒）
+     */
+    private long timeoutMs = 5_000;
+
+    /**
+     * 分片为引擎之外的余额修改停下等待的最长时间（毫秒），超过后继续处理，过期的余额由版本号条件更新发现
+     */
+    private long fenceTimeoutMs = 30_000;
+
+    /**
+     * 分片日志目录
+     */
+    private String journalDir = "./data/journal";
+
+    /**
+     * OPTIMISTIC 模式的重试配置
+     */
+    private Optimistic optimistic = new Optimistic();
+
+    @Data
+    public static class Optimistic {
+
+        /**
+         * 单次转账最多尝试次数
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * 首次退避时间（毫秒），之后按指数增长并加随机抖动
+         */
+        private long initialBackoffMs = 2;
+
+        /**
+         * 最大退避时间（毫秒）
+         */
+        private long maxBackoffMs = 50;
+
+        /**
+         * 按卡号统计冲突次数时最多跟踪的卡数，超出后按冲突频率淘汰最冷的卡
+         */
+        private int maxTrackedCards = 10_000;
+    }
+}
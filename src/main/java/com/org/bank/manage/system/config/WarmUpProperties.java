@@ -0,0 +1,43 @@
+package com.org.bank.manage.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 启动预热配置，对应 application.yaml 中的 bank.warm-up
+ *
+ * @author tucker
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bank.warm-up")
+public class WarmUpProperties {
+
+    /**
+     * 是否在启动时预热账户详情缓存与卡号过滤器，预热完成前就绪探针返回 503
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多预热的账户数（按 id 从新到旧），一般不超过详情缓存的容量
+     */
+    private int maxAccounts = 200_000;
+
+    /**
+     * 每个分段覆盖的 id 数
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * 并行读取分段的线程数
+     */
+    private int parallelism = 4;
+
+    /**
+     * 预热最长等待时间，超时后不再等待未完成的分段，直接开始接收流量
+     */
+    private Duration timeout = Duration.ofMinutes(2);
+}
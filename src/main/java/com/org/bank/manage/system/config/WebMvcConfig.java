@@ -0,0 +1,57 @@
+package com.org.bank.manage.system.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bank.manage.system.controller.AdmissionControlInterceptor;
+import com.org.bank.manage.system.service.admission.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * @author tucker
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    AdmissionProperties admissionProperties;
+
+    @Autowired
+    AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ExportProperties exportProperties;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (admissionProperties.isEnabled()) {
+            registry.addInterceptor(new AdmissionControlInterceptor(adaptiveConcurrencyLimiter,
+                            admissionProperties, objectMapper))
+                    .addPathPatterns(admissionProperties.getPaths());
+            // 批量转账的上限与目标延迟独立调整，不与单笔接口互相拖累
+            if (!admissionProperties.getBatch().getPaths().isEmpty()) {
+                registry.addInterceptor(new AdmissionControlInterceptor(
+                                AdaptiveConcurrencyLimiter.forBatch(admissionProperties, meterRegistry),
+                                admissionProperties, objectMapper))
+                        .addPathPatterns(admissionProperties.getBatch().getPaths());
+            }
+        }
+    }
+
+    /**
+     * 流式导出在异步请求中写出，默认超时需覆盖整个导出；长轮询等自带超时的异步请求不受影响
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(exportProperties.getTimeout().toMillis());
+    }
+}
@@ -0,0 +1,68 @@
+package com.org.bank.manage.system.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.config.AdmissionProperties;
+import com.org.bank.manage.system.service.admission.AdaptiveConcurrencyLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 写接口的准入控制：拿不到并发名额时直接返回 429 和 Retry-After，不进入业务逻辑。
+ * 每个限制器对应一个实例，由 WebMvcConfig 按路径注册
+ *
+ * @author tucker
+ */
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+    private final AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter;
+
+    private final AdmissionProperties admissionProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final String acquiredAtAttribute;
+
+    public AdmissionControlInterceptor(AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter,
+                                       AdmissionProperties admissionProperties, ObjectMapper objectMapper) {
+        this.adaptiveConcurrencyLimiter = adaptiveConcurrencyLimiter;
+        this.admissionProperties = admissionProperties;
+        this.objectMapper = objectMapper;
+        this.acquiredAtAttribute = AdmissionControlInterceptor.class.getName() + ".acquiredAt."
+                + adaptiveConcurrencyLimiter.getName();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (adaptiveConcurrencyLimiter.tryAcquire()) {
+            request.setAttribute(acquiredAtAttribute, System.nanoTime());
+            return true;
+        }
+        int retryAfter = admissionProperties.getRetryAfterSeconds();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(),
+                ResultUtils.error(ErrorCode.TOO_MANY_REQUESTS, "请在" + retryAfter + "秒后重试"));
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object acquiredAt = request.getAttribute(acquiredAtAttribute);
+        if (acquiredAt != null) {
+            request.removeAttribute(acquiredAtAttribute);
+            adaptiveConcurrencyLimiter.release(System.nanoTime() - (Long) acquiredAt);
+        }
+    }
+}
@@ -1,16 +1,44 @@
 package com.org.bank.manage.system.controller;
 
+import com.org.bank.manage.system.common.AsyncTransferStatus;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.AsyncTransferProperties;
+import com.org.bank.manage.system.config.ExportProperties;
+import com.org.bank.manage.system.request.AsyncTransferVO;
 import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.request.BankTransferBatchVO;
 import com.org.bank.manage.system.request.BankTransferVO;
 import com.org.bank.manage.system.request.CreateBankAccountVO;
 import com.org.bank.manage.system.request.DeleteBankAccountVO;
 import com.org.bank.manage.system.request.UpdateBankAccountVO;
 import com.org.bank.manage.system.service.BankManageService;
+import com.org.bank.manage.system.service.async.AsyncTransferRegistry;
+import com.org.bank.manage.system.service.bulk.AccountExporter;
+import com.org.bank.manage.system.service.bulk.AccountImportFormat;
+import com.org.bank.manage.system.service.bulk.AccountImporter;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.cache.ResponseBodyCache;
+import com.org.bank.manage.system.service.cache.SerializedResponse;
+import com.org.bank.manage.system.service.idempotency.IdempotencyService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * @author tucker
@@ -19,13 +47,55 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/bank/account/manage/v1/")
 public class BankController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     BankManageService bankManageService;
 
+    @Autowired
+    IdempotencyService idempotencyService;
+
+    @Autowired
+    AsyncTransferRegistry asyncTransferRegistry;
+
+    @Autowired
+    AsyncTransferProperties asyncTransferProperties;
+
+    @Autowired
+    ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    AccountCacheSupport accountCacheSupport;
+
+    @Autowired
+    AccountImporter accountImporter;
+
+    @Autowired
+    AccountExporter accountExporter;
+
+    @Autowired
+    ExportProperties exportProperties;
+
     @PostMapping("/createBankAccount")
     @ResponseBody
-    public BaseResponse<?> createBankAccount(@Valid @Validated @RequestBody @NotNull CreateBankAccountVO req){
-        return this.bankManageService.createBankAccount(req);
+    public BaseResponse<?> createBankAccount(@Valid @Validated @RequestBody @NotNull CreateBankAccountVO req,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey){
+        return this.idempotencyService.execute("createBankAccount", idempotencyKey, req,
+                () -> this.bankManageService.createBankAccount(req));
+    }
+
+    /**
+     * 批量导入账户：请求体为 NDJSON 或带表头的 CSV（UTF-8），逐行流式读取，按段提交，逐行返回失败原因
+     */
+    @PostMapping(value = "/importBankAccounts", consumes = {NDJSON, "text/csv"})
+    public BaseResponse<?> importBankAccounts(HttpServletRequest request){
+        AccountImportFormat format = AccountImportFormat.fromContentType(request.getContentType());
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            return ResultUtils.success(this.accountImporter.importAccounts(reader, format));
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "读取请求体失败，已读取的部分可能已导入：" + e.getMessage());
+        }
     }
 
     @PostMapping("/updateBankAccount")
@@ -40,19 +110,111 @@ public class BankController {
     }
 
     @GetMapping("/getBankAccountPage/userId/{userId}")
-    public BaseResponse<?> getBankAccountPage(@PathVariable("userId") @NotNull String userId,
-                                              @RequestParam("pageNo") @NotNull Integer pageNo,
-                                              @RequestParam("pageSize") @NotNull Integer pageSize){
-        return this.bankManageService.listAccount(pageNo, pageSize, userId);
+    public ResponseEntity<?> getBankAccountPage(@PathVariable("userId") @NotNull String userId,
+                                                @RequestParam("pageNo") @NotNull Integer pageNo,
+                                                @RequestParam("pageSize") @NotNull Integer pageSize){
+        return cachedResponse(ResponseBodyCache.ACCOUNT_PAGES_BYTES,
+                () -> this.accountCacheSupport.pageKey(userId, pageNo, pageSize),
+                () -> this.bankManageService.listAccount(pageNo, pageSize, userId));
+    }
+
+    @GetMapping("/getBankAccountList/userId/{userId}")
+    public BaseResponse<?> getBankAccountList(@PathVariable("userId") @NotNull String userId,
+                                              @RequestParam(value = "after", required = false) String after,
+                                              @RequestParam(value = "limit", required = false) Integer limit,
+                                              @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal){
+        return this.bankManageService.listAccountByCursor(userId, after, limit, withTotal);
+    }
+
+    /**
+     * 流式导出用户的全部账户（NDJSON），不分页，供报表等需要全量数据的调用方使用
+     */
+    @GetMapping("/getBankAccountStream/userId/{userId}")
+    public ResponseEntity<StreamingResponseBody> getBankAccountStream(@PathVariable("userId") @NotNull String userId){
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> this.accountExporter.exportUser(userId, out));
+    }
+
+    /**
+     * 流式导出全表账户（NDJSON），需开启 bank.export.full-export-enabled
+     */
+    @GetMapping("/admin/getBankAccountStream")
+    public ResponseEntity<StreamingResponseBody> getAllBankAccountStream(){
+        if (!exportProperties.isFullExportEnabled()) {
+            throw new BusinessException(ErrorCode.NO_AUTH, "全表导出未开启");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(this.accountExporter::exportAll);
     }
 
     @GetMapping("/getBankAccountDetail/bankCardNumber/{bankCardNumber}")
-    public BaseResponse<?> getBankAccountDetail(@PathVariable("bankCardNumber") @NotNull String bankCardNumber){
-        return this.bankManageService.detailAccount(bankCardNumber);
+    public ResponseEntity<?> getBankAccountDetail(@PathVariable("bankCardNumber") @NotNull String bankCardNumber){
+        return cachedResponse(ResponseBodyCache.ACCOUNT_DETAIL_BYTES, () -> bankCardNumber,
+                () -> this.bankManageService.detailAccount(bankCardNumber));
+    }
+
+    /**
+     * 启用响应字节缓存时直接输出缓存的 JSON 字节并带上 ETag，请求的 If-None-Match 与之相同时返回 304
+     */
+    private ResponseEntity<?> cachedResponse(String cacheName, Supplier<String> key,
+                                             Supplier<BaseResponse<?>> loader) {
+        if (!responseBodyCache.isEnabled()) {
+            return ResponseEntity.ok(loader.get());
+        }
+        SerializedResponse response = responseBodyCache.get(cacheName, key.get(), loader);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(response.getEtag())
+                .body(response.getBody());
+    }
+
+    @GetMapping("/getTransferHistory/bankCardNumber/{bankCardNumber}")
+    public BaseResponse<?> getTransferHistory(@PathVariable("bankCardNumber") @NotNull String bankCardNumber,
+                                              @RequestParam(value = "after", required = false) String after,
+                                              @RequestParam(value = "limit", required = false) Integer limit){
+        return this.bankManageService.transferHistory(bankCardNumber, after, limit);
     }
 
     @PostMapping("/bankTransfer")
-    public BaseResponse<?> bankTransfer(@Valid @Validated @RequestBody @NotNull BankTransferVO bankTransferVO){
-        return this.bankManageService.bankTransfer(bankTransferVO);
+    public BaseResponse<?> bankTransfer(@Valid @Validated @RequestBody @NotNull BankTransferVO bankTransferVO,
+                                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey){
+        return this.idempotencyService.execute("bankTransfer", idempotencyKey, bankTransferVO,
+                () -> this.bankManageService.bankTransfer(bankTransferVO));
+    }
+
+    @PostMapping("/bankTransfer/batch")
+    public BaseResponse<?> bankTransferBatch(@Valid @Validated @RequestBody @NotNull BankTransferBatchVO req){
+        return this.bankManageService.bankTransferBatch(req);
+    }
+
+    @PostMapping("/bankTransfer/async")
+    public BaseResponse<?> bankTransferAsync(@Valid @Validated @RequestBody @NotNull BankTransferVO bankTransferVO,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey){
+        return this.idempotencyService.execute("bankTransferAsync", idempotencyKey, bankTransferVO, () -> {
+            String transferId = this.asyncTransferRegistry.submit(
+                    () -> this.bankManageService.bankTransferAsync(bankTransferVO));
+            return ResultUtils.success(new AsyncTransferVO(transferId, AsyncTransferStatus.PENDING));
+        });
+    }
+
+    /**
+     * 查询异步转账结果；waitMs 大于 0 时长轮询，最多等待 bank.async-transfer.max-wait-ms
+     */
+    @GetMapping("/bankTransfer/async/{transferId}")
+    public DeferredResult<BaseResponse<?>> getBankTransferAsync(@PathVariable("transferId") @NotNull String transferId,
+                                                                @RequestParam(value = "waitMs", defaultValue = "0") long waitMs){
+        CompletableFuture<BaseResponse<?>> future = this.asyncTransferRegistry.find(transferId);
+        long timeoutMs = Math.min(Math.max(waitMs, 0L), asyncTransferProperties.getMaxWaitMs());
+        DeferredResult<BaseResponse<?>> result = new DeferredResult<>(timeoutMs == 0L ? null : timeoutMs,
+                () -> ResultUtils.success(this.asyncTransferRegistry.status(transferId, future)));
+        if (future.isDone() || timeoutMs == 0L) {
+            result.setResult(ResultUtils.success(this.asyncTransferRegistry.status(transferId, future)));
+            return result;
+        }
+        future.whenComplete((response, error) ->
+                result.setResult(ResultUtils.success(this.asyncTransferRegistry.status(transferId, future))));
+        return result;
     }
 }
@@ -0,0 +1,32 @@
+package com.org.bank.manage.system.controller;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.request.BaseResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 就绪探针：启动预热结束、Spring Boot 就绪状态变为 ACCEPTING_TRAFFIC 后返回 200，之前返回 503
+ *
+ * @author tucker
+ */
+@RestController
+public class ReadinessController {
+
+    @Autowired
+    ApplicationAvailability applicationAvailability;
+
+    @GetMapping("/ready")
+    public ResponseEntity<BaseResponse<?>> ready() {
+        if (applicationAvailability.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC) {
+            return ResponseEntity.ok(ResultUtils.success("ready"));
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ResultUtils.error(ErrorCode.NOT_READY));
+    }
+}
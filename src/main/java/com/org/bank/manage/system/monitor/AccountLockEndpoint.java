@@ -0,0 +1,34 @@
+package com.org.bank.manage.system.monitor;
+
+import com.org.bank.manage.system.service.lock.AccountLockManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 账户分段锁统计：GET /actuator/accountlocks?top=20
+ *
+ * @author tucker
+ */
+@Component
+@Endpoint(id = "accountlocks")
+public class AccountLockEndpoint {
+
+    @Autowired
+    AccountLockManager accountLockManager;
+
+    @ReadOperation
+    public Map<String, Object> locks(@Nullable Integer top) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("stripes", accountLockManager.stripeCount());
+        result.put("timeouts", accountLockManager.getTimeouts());
+        result.put("waitHistogram", accountLockManager.waitHistogram());
+        result.put("mostContended", accountLockManager.mostContendedStripes(top == null ? 20 : top));
+        return result;
+    }
+}
@@ -0,0 +1,36 @@
+package com.org.bank.manage.system.monitor;
+
+import com.org.bank.manage.system.service.shard.AccountShards;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 账户分片统计：GET /actuator/accountshards，各分片并行查询
+ *
+ * @author tucker
+ */
+@Component
+@Endpoint(id = "accountshards")
+public class AccountShardEndpoint {
+
+    @Autowired(required = false)
+    AccountShards accountShards;
+
+    @ReadOperation
+    public Map<String, Object> shards() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (accountShards == null) {
+            result.put("enabled", false);
+            return result;
+        }
+        result.put("enabled", true);
+        result.put("shardCount", accountShards.shardCount());
+        result.put("shards", accountShards.stats());
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+package com.org.bank.manage.system.monitor;
+
+import com.org.bank.manage.system.service.engine.OptimisticTransferExecutor;
+import com.org.bank.manage.system.service.engine.TransferConflictStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 乐观转账冲突统计：GET /actuator/transferconflicts?top=20
+ *
+ * @author tucker
+ */
+@Component
+@Endpoint(id = "transferconflicts")
+public class TransferConflictEndpoint {
+
+    @Autowired(required = false)
+    OptimisticTransferExecutor optimisticTransferExecutor;
+
+    @ReadOperation
+    public Map<String, Object> conflicts(@Nullable Integer top) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (optimisticTransferExecutor == null) {
+            result.put("enabled", false);
+            return result;
+        }
+        TransferConflictStats stats = optimisticTransferExecutor.getStats();
+        result.put("enabled", true);
+        result.put("conflicts", stats.getConflicts());
+        result.put("retries", stats.getRetries());
+        result.put("exhausted", stats.getExhausted());
+        result.put("cards", stats.topCards(top == null ? 20 : top));
+        return result;
+    }
+}
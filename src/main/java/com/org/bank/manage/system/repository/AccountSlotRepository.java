@@ -0,0 +1,50 @@
+package com.org.bank.manage.system.repository;
+
+import com.org.bank.manage.system.repository.entity.AccountSlot;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author tucker
+ */
+public interface AccountSlotRepository extends JpaRepository<AccountSlot, Long> {
+
+    // 入账到指定槽，只锁该槽一行，返回受影响行数（0 表示槽尚未创建）
+    @Modifying
+    @Transactional
+    @Query("UPDATE AccountSlot t SET t.balance = t.balance + :amount " +
+            "WHERE t.bankCardNumber = :bankCardNumber and t.slotNo = :slotNo")
+    int credit(@Param("amount") BigDecimal amount,
+               @Param("bankCardNumber") String bankCardNumber,
+               @Param("slotNo") Integer slotNo);
+
+    // 归并前锁住账户的所有槽，期间新的入账等待归并事务结束
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM AccountSlot t WHERE t.bankCardNumber = :bankCardNumber")
+    List<AccountSlot> findAllForUpdate(@Param("bankCardNumber") String bankCardNumber);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AccountSlot t SET t.balance = 0 WHERE t.bankCardNumber = :bankCardNumber")
+    int clear(@Param("bankCardNumber") String bankCardNumber);
+
+    @Query("SELECT COALESCE(SUM(t.balance), 0) FROM AccountSlot t WHERE t.bankCardNumber = :bankCardNumber")
+    BigDecimal sumBalance(@Param("bankCardNumber") String bankCardNumber);
+
+    // 分页列表一次取回页内所有热点账户的槽余额之和
+    @Query("SELECT t.bankCardNumber, SUM(t.balance) FROM AccountSlot t " +
+            "WHERE t.bankCardNumber in :bankCardNumbers GROUP BY t.bankCardNumber")
+    List<Object[]> sumBalances(@Param("bankCardNumbers") Collection<String> bankCardNumbers);
+
+    @Query("SELECT count(t) FROM AccountSlot t WHERE t.bankCardNumber = :bankCardNumber")
+    long countByBankCardNumber(@Param("bankCardNumber") String bankCardNumber);
+}
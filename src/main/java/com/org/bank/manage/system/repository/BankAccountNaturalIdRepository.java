@@ -0,0 +1,46 @@
+package com.org.bank.manage.system.repository;
+
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import jakarta.transaction.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * 按卡号（自然键）读取账户，经过 Hibernate 二级缓存，由 {@link BankAccountRepository} 继承
+ *
+ * @author tucker
+ */
+public interface BankAccountNaturalIdRepository {
+
+    /**
+     * 按卡号加载托管的账户，已删除的账户视为不存在。
+     * 卡号 -> id 与账户本身都先查二级缓存，同一事务内再次查找直接命中持久化上下文
+     */
+    Optional<BankAccount> loadByBankCardNumber(String bankCardNumber);
+
+    /**
+     * 账户被绕过 Hibernate 的 JDBC 语句修改后，从二级缓存中淘汰
+     */
+    void evictCached(Collection<Long> ids);
+
+    /**
+     * 版本号未变时把余额改为给定值，返回受影响行数。用 JDBC 执行，不会让二级缓存区域整体失效，
+     * 更新成功时提交后只淘汰这一个账户
+     */
+    int updateBalanceIfUnchanged(Long id, BigDecimal balance, Long version);
+
+    /**
+     * 条件扣款：版本号未变且余额充足时才生效，返回受影响行数。与 {@link #updateBalanceIfUnchanged} 一样用 JDBC 执行，只淘汰这一个账户
+     */
+    @Transactional
+    int debitIfUnchanged(BigDecimal amount, Long version, LocalDateTime updatedAt, String bankCardNumber);
+
+    /**
+     * 入账：增量更新，与并发入账可交换，不会丢失更新。用 JDBC 执行，只淘汰这一个账户
+     */
+    @Transactional
+    int credit(BigDecimal amount, LocalDateTime updatedAt, String bankCardNumber);
+}
@@ -0,0 +1,90 @@
+package com.org.bank.manage.system.repository;
+
+import com.org.bank.manage.system.common.AccountStatus;
+import com.org.bank.manage.system.common.TransactionUtils;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author tucker
+ */
+class BankAccountNaturalIdRepositoryImpl implements BankAccountNaturalIdRepository {
+
+    private static final String UPDATE_BALANCE_SQL = "UPDATE bankaccount SET balance = ?, version = version + 1, " +
+            "updated_at = ? WHERE id = ? AND version = ? AND status <> 'DELETED'";
+
+    private static final String DEBIT_SQL = "UPDATE bankaccount SET balance = balance - ?, version = version + 1, " +
+            "updated_at = ? WHERE bank_card_number = ? AND version = ? AND balance >= ? AND status <> 'DELETED'";
+
+    private static final String CREDIT_SQL = "UPDATE bankaccount SET balance = balance + ?, version = version + 1, " +
+            "updated_at = ? WHERE bank_card_number = ? AND status <> 'DELETED'";
+
+    private static final String SELECT_ID_SQL = "SELECT id FROM bankaccount WHERE bank_card_number = ?";
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<BankAccount> loadByBankCardNumber(String bankCardNumber) {
+        // 状态不是自然键的一部分，在内存中过滤；卡号不会被复用，已删除的账户不会再有同卡号的新账户
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(BankAccount.class)
+                .loadOptional(bankCardNumber)
+                .filter(account -> !AccountStatus.DELETED.equals(account.getStatus()));
+    }
+
+    @Override
+    public void evictCached(Collection<Long> ids) {
+        jakarta.persistence.Cache cache = entityManager.getEntityManagerFactory().getCache();
+        ids.forEach(id -> cache.evict(BankAccount.class, id));
+    }
+
+    @Override
+    public int updateBalanceIfUnchanged(Long id, BigDecimal balance, Long version) {
+        int updated = jdbcTemplate.update(UPDATE_BALANCE_SQL, balance, Timestamp.valueOf(LocalDateTime.now()), id, version);
+        if (updated == 1) {
+            TransactionUtils.afterCommit(() -> evictCached(List.of(id)));
+        }
+        return updated;
+    }
+
+    @Override
+    public int debitIfUnchanged(BigDecimal amount, Long version, LocalDateTime updatedAt, String bankCardNumber) {
+        // JDBC 语句不会触发 Hibernate 自动刷新，先把托管实体上的改动写入数据库
+        entityManager.flush();
+        int updated = jdbcTemplate.update(DEBIT_SQL, amount, Timestamp.valueOf(updatedAt), bankCardNumber, version, amount);
+        if (updated == 1) {
+            evictOnCommit(bankCardNumber);
+        }
+        return updated;
+    }
+
+    @Override
+    public int credit(BigDecimal amount, LocalDateTime updatedAt, String bankCardNumber) {
+        entityManager.flush();
+        int updated = jdbcTemplate.update(CREDIT_SQL, amount, Timestamp.valueOf(updatedAt), bankCardNumber);
+        if (updated == 1) {
+            evictOnCommit(bankCardNumber);
+        }
+        return updated;
+    }
+
+    private void evictOnCommit(String bankCardNumber) {
+        Long id = jdbcTemplate.queryForObject(SELECT_ID_SQL, Long.class, bankCardNumber);
+        TransactionUtils.afterCommit(() -> evictCached(List.of(id)));
+    }
+}
@@ -1,59 +1,106 @@
 package com.org.bank.manage.system.repository;
 
-import com.org.bank.manage.system.common.AccountStatus;
+import com.org.bank.manage.system.common.ReadOnlyTransactional;
 import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.repository.projection.AccountBalanceView;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * @author tucker
  */
-public interface BankAccountRepository extends JpaRepository<BankAccount, Long> {
+public interface BankAccountRepository extends JpaRepository<BankAccount, Long>, BankAccountNaturalIdRepository {
+
+    /**
+     * 与 CreateBankAccountVO 全参构造方法的参数顺序一致
+     */
+    String ACCOUNT_VIEW_COLUMNS = "t.accountHolderName, t.contactNumber, t.idCard, t.emailAddress, " +
+            "t.balance, t.description, t.bankCardNumber, t.userUid";
+
+    /**
+     * 导出时每次从数据库取回的行数
+     */
+    String EXPORT_FETCH_SIZE = "500";
+
     // 根据 contactNumber,bankCardNumber 查询账户（用于唯一性校验）
     @Query("SELECT t FROM BankAccount t WHERE t.bankCardNumber= :bankCardNumber and t.status != 'DELETED'")
     Optional<BankAccount> findByBankCardNumber(@Param("bankCardNumber") String bankCardNumber);
 
+    // 批量转账校验：一次 IN 查询取回所有涉及的账户
+    @Query("SELECT t FROM BankAccount t WHERE t.bankCardNumber in :bankCardNumbers and t.status != 'DELETED'")
+    List<BankAccount> findAllByBankCardNumbers(@Param("bankCardNumbers") Collection<String> bankCardNumbers);
+
     @Query("SELECT count(*) FROM BankAccount t WHERE t.bankCardNumber= :bankCardNumber")
     Long findByBankCardNumberExisted(@Param("bankCardNumber") String bankCardNumber);
 
-    @Modifying
-    @Transactional
-    @Query("UPDATE BankAccount t SET t.balance = :balance," +
-            "t.idCard=:idCard," +
-            "t.contactNumber=:contactNumber," +
-            "t.description=:description," +
-            "t.updatedAt=:updatedAt WHERE t.bankCardNumber= :bankCardNumber ")
-    void updateBankAccount(@Param("balance") BigDecimal balance,
-                           @Param("idCard") String idCard,
-                           @Param("contactNumber") String contactNumber,
-                           @Param("bankCardNumber") String bankCardNumber,
-                           @Param("description") String description,
-                           @Param("updatedAt") LocalDateTime updatedAt);
+    // 批量导入查重：一次 IN 查询找出已存在的卡号，包括已删除的账户
+    @Query("SELECT t.bankCardNumber FROM BankAccount t WHERE t.bankCardNumber in :bankCardNumbers")
+    List<String> findExistingBankCardNumbers(@Param("bankCardNumbers") Collection<String> bankCardNumbers);
 
+    // 分片引擎与日志回放用；JPQL 更新语句会让 BankAccount 的二级缓存区域整体失效，常规写路径修改托管实体
     @Modifying
     @Transactional
     @Query("UPDATE BankAccount t SET t.balance = :balance,"
+            + "t.version = t.version + 1,"
             + "t.updatedAt=:updatedAt  WHERE t.bankCardNumber= :bankCardNumber ")
-    void updateBankAccountBalance(@Param("balance") BigDecimal balance,
+    int updateBankAccountBalance(@Param("balance") BigDecimal balance,
                            @Param("updatedAt") LocalDateTime updatedAt,
                            @Param("bankCardNumber") String bankCardNumber);
-    @Modifying
-    @Transactional
-    @Query("UPDATE BankAccount t SET t.status = :status " +
-            " WHERE t.bankCardNumber = :bankCardNumber ")
-    void updateBankAccountStatus(@Param("status") AccountStatus status,
-                                 @Param("bankCardNumber") String bankCardNumber);
-
-    // 分页查询账户（支持排序和分页）
-    @Query("SELECT t FROM BankAccount t WHERE t.userUid=:userUid")
-    Page<BankAccount> findAllWithPagination(Pageable pageable, @Param("userUid") String userUid);
+
+    // 读取转账所需的余额快照（非托管对象，每次都读到最新提交的数据）
+    @Query("SELECT new com.org.bank.manage.system.repository.projection.AccountBalanceView(" +
+            "t.bankCardNumber, t.accountHolderName, t.balance, t.version) " +
+            "FROM BankAccount t WHERE t.bankCardNumber= :bankCardNumber and t.status != 'DELETED'")
+    Optional<AccountBalanceView> findBalanceView(@Param("bankCardNumber") String bankCardNumber);
+
+    // 账户详情：构造表达式直接生成返回对象，不经过实体与持久化上下文
+    @ReadOnlyTransactional
+    @Query("SELECT new com.org.bank.manage.system.request.CreateBankAccountVO(" + ACCOUNT_VIEW_COLUMNS + ") " +
+            "FROM BankAccount t WHERE t.bankCardNumber= :bankCardNumber and t.status != 'DELETED'")
+    Optional<CreateBankAccountVO> findAccountView(@Param("bankCardNumber") String bankCardNumber);
+
+    // 分页查询账户（支持排序和分页），同样直接生成返回对象
+    @ReadOnlyTransactional
+    @Query(value = "SELECT new com.org.bank.manage.system.request.CreateBankAccountVO(" + ACCOUNT_VIEW_COLUMNS + ") " +
+            "FROM BankAccount t WHERE t.userUid=:userUid",
+            countQuery = "SELECT count(t) FROM BankAccount t WHERE t.userUid=:userUid")
+    Page<CreateBankAccountVO> findAccountViews(Pageable pageable, @Param("userUid") String userUid);
+
+    // 游标分页第一页：按 (user_uid, id) 索引升序取前 N 条，不做 count
+    @Query("SELECT t FROM BankAccount t WHERE t.userUid = :userUid ORDER BY t.id")
+    List<BankAccount> findFirstByUser(@Param("userUid") String userUid, Pageable pageable);
+
+    // 游标分页后续页：从上一页最后一个 id 之后继续在索引上扫描，代价只与 N 有关
+    @Query("SELECT t FROM BankAccount t WHERE t.userUid = :userUid and t.id > :id ORDER BY t.id")
+    List<BankAccount> findAfterByUser(@Param("userUid") String userUid, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT count(t) FROM BankAccount t WHERE t.userUid = :userUid")
+    Long countByUser(@Param("userUid") String userUid);
+
+    // 导出：只进游标按 id 顺序逐行读取，实体只读；需在事务内消费，写出后 detach
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT t FROM BankAccount t WHERE t.userUid = :userUid ORDER BY t.id")
+    Stream<BankAccount> streamByUser(@Param("userUid") String userUid);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT t FROM BankAccount t ORDER BY t.id")
+    Stream<BankAccount> streamAll();
 }
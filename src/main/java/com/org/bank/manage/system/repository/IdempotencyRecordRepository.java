@@ -0,0 +1,56 @@
+package com.org.bank.manage.system.repository;
+
+import com.org.bank.manage.system.repository.entity.IdempotencyRecord;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @author tucker
+ */
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // 直接插入而不是 save()：主键冲突必须报错，不能合并成更新；
+    // 声明只涉及 idempotency_record，否则 Hibernate 执行原生写语句后会清空所有二级缓存区域
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "idempotency_record"))
+    @Query(value = "INSERT INTO idempotency_record (idempotency_key, request_hash, status, created_at) " +
+            "VALUES (:idempotencyKey, :requestHash, 'PENDING', :createdAt)", nativeQuery = true)
+    void claim(@Param("idempotencyKey") String idempotencyKey,
+               @Param("requestHash") String requestHash,
+               @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord t SET t.status = 'DONE', t.response = :response " +
+            "WHERE t.idempotencyKey = :idempotencyKey and t.status = 'PENDING'")
+    int complete(@Param("idempotencyKey") String idempotencyKey,
+                 @Param("response") String response);
+
+    // 业务失败时释放占用，同一个 key 可以重试
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord t WHERE t.idempotencyKey = :idempotencyKey and t.status = 'PENDING'")
+    int release(@Param("idempotencyKey") String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord t WHERE t.idempotencyKey = :idempotencyKey and t.createdAt < :createdAt")
+    int deleteExpired(@Param("idempotencyKey") String idempotencyKey,
+                      @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord t WHERE t.createdAt < :createdAt")
+    int deleteCreatedBefore(@Param("createdAt") LocalDateTime createdAt);
+
+    // 超出容量时找到保留的最旧一条的时间，早于它的全部清理
+    @Query(value = "SELECT created_at FROM idempotency_record ORDER BY created_at DESC " +
+            "LIMIT 1 OFFSET :offset", nativeQuery = true)
+    List<LocalDateTime> findCreatedAtAtOffset(@Param("offset") long offset);
+}
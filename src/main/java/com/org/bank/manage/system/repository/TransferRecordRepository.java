@@ -0,0 +1,30 @@
+package com.org.bank.manage.system.repository;
+
+import com.org.bank.manage.system.repository.entity.TransferRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * @author tucker
+ */
+public interface TransferRecordRepository extends JpaRepository<TransferRecord, Long> {
+
+    // 流水第一页：按 (bank_card_number, created_at, id) 索引倒序取前 N 条
+    @Query("SELECT t FROM TransferRecord t WHERE t.bankCardNumber = :bankCardNumber " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransferRecord> findLatest(@Param("bankCardNumber") String bankCardNumber, Pageable pageable);
+
+    // 流水后续页：从游标位置继续在索引上向前扫描，代价只与 N 有关
+    @Query("SELECT t FROM TransferRecord t WHERE t.bankCardNumber = :bankCardNumber " +
+            "and (t.createdAt < :createdAt or (t.createdAt = :createdAt and t.id < :id)) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TransferRecord> findBefore(@Param("bankCardNumber") String bankCardNumber,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+}
@@ -0,0 +1,29 @@
+package com.org.bank.manage.system.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 卡号目录：启用分库时在主库上记录每个卡号所在的分片，卡号在全部分片范围内唯一
+ *
+ * @author tucker
+ */
+@Entity
+@Table(name = "account_shard_directory")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountShardDirectory {
+
+    @Id
+    @Column(name = "bank_card_number", length = 100)
+    private String bankCardNumber;
+
+    /**
+     * 账户所在分片
+     */
+    @Column(name = "shard", nullable = false)
+    private Integer shard;
+}
@@ -0,0 +1,37 @@
+package com.org.bank.manage.system.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 热点账户的子余额槽：账户真实余额 = bankaccount.balance + 该账户所有槽的余额之和
+ *
+ * @author tucker
+ */
+@Entity
+@Table(name = "account_slot",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"bank_card_number", "slot_no"})
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountSlot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    @Column(name = "bank_card_number", length = 100, nullable = false)
+    private String bankCardNumber;
+
+    @Column(name = "slot_no", nullable = false)
+    private Integer slotNo;
+
+    @Column(name = "balance", precision = 15, scale = 2, nullable = false)
+    private BigDecimal balance;
+}
@@ -9,11 +9,19 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.Parameter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 /**
+ * 银行账户。卡号是自然键，按卡号的查找先经二级缓存解析出 id，再从实体缓存中取出账户
+ *
  * @author tucker
  */
 @Entity
@@ -23,15 +31,29 @@ import java.time.LocalDateTime;
                 //@UniqueConstraint(columnNames = "id_card")
         },
         indexes = {
-                @Index(name = "idx_user_uid", columnList = "user_uid")
+                // 用户账户列表按 id 游标分页，也覆盖只按 user_uid 的查询
+                @Index(name = "idx_user_uid_id", columnList = "user_uid, id")
         }
 )
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bank-account")
+@NaturalIdCache(region = "bank-account-natural-id")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class BankAccount {
+    /**
+     * 序列每次分配 500 个 id，pooled-lo 在内存中依次发放，批量插入时不必每行取一次序列；
+     * 启用分库时 id 的低位是所在分片号，见 ShardSequenceGenerator
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bankaccount_seq")
+    @GenericGenerator(name = "bankaccount_seq",
+            strategy = "com.org.bank.manage.system.service.shard.ShardSequenceGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "bankaccount_seq"),
+                    @Parameter(name = "increment_size", value = "500"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            })
     private Long id;
 
     @NotBlank(message = "User ID is required")
@@ -54,6 +76,7 @@ public class BankAccount {
     @Column(name = "contact_number", length = 100, nullable = false)
     private String contactNumber;
 
+    @NaturalId
     @NotBlank(message ="bankCardNumber cannot be empty")
     @Size(max = 100, message = "bankCardNumber must not exceed 100 characters")
     @Column(name = "bank_card_number", length = 100, nullable = false)
@@ -82,6 +105,13 @@ public class BankAccount {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * 乐观锁版本号，所有更新语句都需要递增
+     */
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
@@ -0,0 +1,47 @@
+package com.org.bank.manage.system.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 缓存失效变更日志：各节点写入本节点改动的账户，其他节点轮询后淘汰本地缓存
+ *
+ * @author tucker
+ */
+@Entity
+@Table(name = "cache_invalidation",
+        indexes = {
+                @Index(name = "idx_cache_invalidation_created_at", columnList = "created_at")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 发出失效的节点
+     */
+    @Column(name = "origin", length = 64, nullable = false)
+    private String origin;
+
+    @Column(name = "bank_card_number", length = 100, nullable = false)
+    private String bankCardNumber;
+
+    /**
+     * 账户所属用户，为空表示只淘汰详情
+     */
+    @Column(name = "user_uid", length = 100)
+    private String userUid;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
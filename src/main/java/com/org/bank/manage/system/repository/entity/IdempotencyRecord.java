@@ -0,0 +1,51 @@
+package com.org.bank.manage.system.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 幂等记录：按 "作用域:Idempotency-Key" 保存首次请求的指纹与响应；执行前先以 PENDING 占用，执行完存入响应后为 DONE
+ *
+ * @author tucker
+ */
+@Entity
+@Table(name = "idempotency_record",
+        indexes = {
+                @Index(name = "idx_idempotency_created_at", columnList = "created_at")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public static final String PENDING = "PENDING";
+
+    public static final String DONE = "DONE";
+
+    @Id
+    @Column(name = "idempotency_key", length = 160)
+    private String idempotencyKey;
+
+    /**
+     * 请求体的 SHA-256 指纹，同一个 key 携带不同请求体时拒绝
+     */
+    @Column(name = "request_hash", length = 64, nullable = false)
+    private String requestHash;
+
+    @Column(name = "status", length = 16, nullable = false)
+    private String status;
+
+    /**
+     * 首次请求的 BaseResponse（JSON），占用期间为空
+     */
+    @Column(name = "response", length = 4000)
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
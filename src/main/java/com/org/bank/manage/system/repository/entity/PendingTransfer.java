@@ -0,0 +1,49 @@
+package com.org.bank.manage.system.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 跨分片转账的待完成记录：与扣款在转出分片的同一事务中写入，入账完成或退回后删除；
+ * 残留的记录由恢复任务完成入账或退回扣款
+ *
+ * @author tucker
+ */
+@Entity
+@Table(name = "pending_transfer",
+        indexes = {
+                @Index(name = "idx_pending_transfer_created_at", columnList = "created_at")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingTransfer {
+
+    @Id
+    @Column(name = "tx_id", length = 36)
+    private String txId;
+
+    @Column(name = "send_account_holder_name", length = 100, nullable = false)
+    private String sendAccountHolderName;
+
+    @Column(name = "send_bank_card_number", length = 100, nullable = false)
+    private String sendBankCardNumber;
+
+    @Column(name = "receive_account_holder_name", length = 100, nullable = false)
+    private String receiveAccountHolderName;
+
+    @Column(name = "receive_bank_card_number", length = 100, nullable = false)
+    private String receiveBankCardNumber;
+
+    @Column(name = "amount", precision = 15, scale = 2, nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
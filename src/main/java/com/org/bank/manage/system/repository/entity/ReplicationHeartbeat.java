@@ -0,0 +1,28 @@
+package com.org.bank.manage.system.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 复制心跳：各节点定时把当前时间写入主库的同一行，从库上该行的时间即从库数据的新鲜程度
+ *
+ * @author tucker
+ */
+@Entity
+@Table(name = "replication_heartbeat")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicationHeartbeat {
+
+    @Id
+    private Integer id;
+
+    /**
+     * 写入心跳的时间（毫秒时间戳）
+     */
+    @Column(name = "beat_at", nullable = false)
+    private Long beatAt;
+}
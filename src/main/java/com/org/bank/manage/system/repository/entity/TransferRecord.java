@@ -0,0 +1,44 @@
+package com.org.bank.manage.system.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 转账流水，只追加不修改；每笔转账写两行，转出方金额为负、转入方金额为正
+ *
+ * @author tucker
+ */
+@Entity
+@Table(name = "transfer_record",
+        indexes = {
+                @Index(name = "idx_transfer_record_card_time", columnList = "bank_card_number, created_at, id")
+        }
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tx_id", length = 36, nullable = false)
+    private String txId;
+
+    @Column(name = "bank_card_number", length = 100, nullable = false)
+    private String bankCardNumber;
+
+    @Column(name = "counterparty_card_number", length = 100, nullable = false)
+    private String counterpartyCardNumber;
+
+    @Column(name = "amount", precision = 15, scale = 2, nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.org.bank.manage.system.repository.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 转账校验所需的账户快照
+ *
+ * @author tucker
+ */
+@Data
+@AllArgsConstructor
+public class AccountBalanceView {
+
+    private String bankCardNumber;
+
+    private String accountHolderName;
+
+    private BigDecimal balance;
+
+    private Long version;
+}
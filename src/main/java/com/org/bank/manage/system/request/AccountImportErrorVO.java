@@ -0,0 +1,27 @@
+package com.org.bank.manage.system.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author tucker
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountImportErrorVO implements Serializable {
+    /**
+     * 出错的行号（从 1 开始，CSV 包括表头行）
+     */
+    private long line;
+
+    /**
+     * 该行的卡号，无法解析时为空
+     */
+    private String bankCardNumber;
+
+    private String message;
+}
@@ -0,0 +1,40 @@
+package com.org.bank.manage.system.request;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author tucker
+ */
+@Data
+@NoArgsConstructor
+public class AccountImportResultVO implements Serializable {
+    /**
+     * 读到的数据行数（不含空行与表头）
+     */
+    private long totalRows;
+
+    /**
+     * 成功开户的行数
+     */
+    private long importedCount;
+
+    /**
+     * 失败的行数
+     */
+    private long failedCount;
+
+    /**
+     * 失败行，最多 bank.import.max-reported-errors 条
+     */
+    private List<AccountImportErrorVO> errors = new ArrayList<>();
+
+    /**
+     * 失败行是否超出上限未全部列出
+     */
+    private boolean errorsTruncated;
+}
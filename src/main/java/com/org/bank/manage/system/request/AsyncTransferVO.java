@@ -0,0 +1,32 @@
+package com.org.bank.manage.system.request;
+
+import com.org.bank.manage.system.common.AsyncTransferStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author tucker
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsyncTransferVO implements Serializable {
+    /**
+     * 转账编号，用于查询结果
+     */
+    private String transferId;
+
+    private AsyncTransferStatus status;
+
+    /**
+     * 转账完成后的结果，处理中为空
+     */
+    private BaseResponse<?> result;
+
+    public AsyncTransferVO(String transferId, AsyncTransferStatus status) {
+        this(transferId, status, null);
+    }
+}
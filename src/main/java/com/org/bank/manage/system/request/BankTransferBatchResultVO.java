@@ -0,0 +1,25 @@
+package com.org.bank.manage.system.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author tucker
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BankTransferBatchResultVO implements Serializable {
+    /**
+     * 本批次转账笔数
+     */
+    private int transferCount;
+
+    /**
+     * 轧差后实际更新余额的账户数
+     */
+    private int updatedAccountCount;
+}
@@ -0,0 +1,24 @@
+package com.org.bank.manage.system.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * @author tucker
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BankTransferBatchVO implements Serializable {
+    @NotEmpty(message = "transfers cannot be empty")
+    @Size(max = 50000, message = "transfers must not exceed 50000 items")
+    @Valid
+    private List<BankTransferVO> transfers;
+}
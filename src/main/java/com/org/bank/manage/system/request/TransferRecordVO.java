@@ -0,0 +1,33 @@
+package com.org.bank.manage.system.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * @author tucker
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferRecordVO implements Serializable {
+
+    private String txId;
+
+    private String bankCardNumber;
+
+    /**
+     * 对方卡号
+     */
+    private String counterpartyCardNumber;
+
+    /**
+     * 变动金额，转出为负、转入为正
+     */
+    private String amount;
+
+    private LocalDateTime createdAt;
+}
@@ -1,11 +1,14 @@
 package com.org.bank.manage.system.service;
 
 import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.request.BankTransferBatchVO;
 import com.org.bank.manage.system.request.BankTransferVO;
 import com.org.bank.manage.system.request.CreateBankAccountVO;
 import com.org.bank.manage.system.request.DeleteBankAccountVO;
 import com.org.bank.manage.system.request.UpdateBankAccountVO;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author tucker
  */
@@ -21,5 +24,29 @@ public interface BankManageService {
 
     BaseResponse<?> detailAccount(String bankCardNumber);
 
+    /**
+     * 游标分页查询用户的账户，按 id 升序
+     *
+     * @param after     上一页返回的 nextCursor，为空表示从第一个账户开始
+     * @param limit     每页条数，为空时取默认值，超过上限时按上限处理
+     * @param withTotal 是否返回账户总数（按用户缓存），否则 total 为 -1
+     */
+    BaseResponse<?> listAccountByCursor(String userId, String after, Integer limit, boolean withTotal);
+
+    /**
+     * 按时间倒序查询账户流水
+     *
+     * @param after 上一页返回的 nextCursor，为空表示从最新一条开始
+     * @param limit 每页条数，为空时取默认值，超过上限时按上限处理
+     */
+    BaseResponse<?> transferHistory(String bankCardNumber, String after, Integer limit);
+
     BaseResponse<?> bankTransfer(BankTransferVO bankTransferVO);
+
+    BaseResponse<?> bankTransferBatch(BankTransferBatchVO bankTransferBatchVO);
+
+    /**
+     * 在异步执行器上执行 {@link #bankTransfer}，受理数已满时抛出 TRANSFER_BUSY
+     */
+    CompletableFuture<BaseResponse<?>> bankTransferAsync(BankTransferVO bankTransferVO);
 }
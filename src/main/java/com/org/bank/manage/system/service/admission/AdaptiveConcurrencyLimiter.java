@@ -0,0 +1,173 @@
+package com.org.bank.manage.system.service.admission;
+
+import com.org.bank.manage.system.config.AdmissionProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD 自适应并发限制。
+ * <p>
+ * 请求耗时不超过目标延迟且并发已用到上限的一半以上时，上限加一；
+ * 超过目标延迟时上限乘以 backoff-ratio，每个目标延迟周期内最多收缩一次，避免一批慢请求把上限压到底。
+ * 达到上限的请求最多排队 queue-timeout-ms，仍拿不到名额则拒绝。
+ * 单笔写接口共用容器中的实例（指标标签 limiter=default），批量转账使用 {@link #forBatch} 创建的独立实例。
+ *
+ * @author tucker
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetLatencyNanos;
+
+    private final double backoffRatio;
+
+    private final long queueTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    private final LongAdder shed = new LongAdder();
+
+    private final LongAdder queued = new LongAdder();
+
+    private volatile double limit;
+
+    private volatile int inFlight;
+
+    private long lastDecreaseNanos;
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(AdmissionProperties admissionProperties,
+                                      @Nullable MeterRegistry meterRegistry) {
+        this("default", admissionProperties.getInitialLimit(), admissionProperties.getMinLimit(),
+                admissionProperties.getMaxLimit(), admissionProperties.getTargetLatencyMs(),
+                admissionProperties, meterRegistry);
+    }
+
+    private AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                       long targetLatencyMs, AdmissionProperties admissionProperties,
+                                       @Nullable MeterRegistry meterRegistry) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.backoffRatio = admissionProperties.getBackoffRatio();
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(admissionProperties.getQueueTimeoutMs());
+        this.lastDecreaseNanos = System.nanoTime() - targetLatencyNanos;
+        if (meterRegistry != null) {
+            Gauge.builder("bank.admission.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                    .tag("limiter", name).register(meterRegistry);
+            Gauge.builder("bank.admission.in.flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                    .tag("limiter", name).register(meterRegistry);
+            FunctionCounter.builder("bank.admission.shed", this, AdaptiveConcurrencyLimiter::getShed)
+                    .tag("limiter", name).register(meterRegistry);
+            FunctionCounter.builder("bank.admission.queued", this, AdaptiveConcurrencyLimiter::getQueued)
+                    .tag("limiter", name).register(meterRegistry);
+        }
+    }
+
+    /**
+     * 批量转账的独立限制，上限与目标延迟取 bank.admission.batch
+     */
+    public static AdaptiveConcurrencyLimiter forBatch(AdmissionProperties admissionProperties,
+                                                      @Nullable MeterRegistry meterRegistry) {
+        AdmissionProperties.Batch batch = admissionProperties.getBatch();
+        return new AdaptiveConcurrencyLimiter("batch", batch.getInitialLimit(), batch.getMinLimit(),
+                batch.getMaxLimit(), batch.getTargetLatencyMs(), admissionProperties, meterRegistry);
+    }
+
+    /**
+     * 获取一个并发名额，达到上限时最多排队 queue-timeout-ms
+     *
+     * @return 是否拿到名额；拿到后必须调用 {@link #release}
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            long remaining = queueTimeoutNanos;
+            boolean waited = false;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0L) {
+                    shed.increment();
+                    return false;
+                }
+                if (!waited) {
+                    queued.increment();
+                    waited = true;
+                }
+                try {
+                    remaining = released.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还名额并根据本次耗时调整上限
+     *
+     * @param latencyNanos 从拿到名额到请求结束的耗时
+     */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            int inFlightBefore = inFlight;
+            inFlight--;
+            long now = System.nanoTime();
+            if (latencyNanos > targetLatencyNanos) {
+                if (now - lastDecreaseNanos >= targetLatencyNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlightBefore * 2 >= (int) limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getShed() {
+        return shed.sum();
+    }
+
+    public long getQueued() {
+        return queued.sum();
+    }
+}
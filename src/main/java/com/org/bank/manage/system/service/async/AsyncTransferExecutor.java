@@ -0,0 +1,125 @@
+package com.org.bank.manage.system.service.async;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.AsyncTransferProperties;
+import com.org.bank.manage.system.request.BaseResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 异步转账执行器。
+ * <p>
+ * 受理数量由信号量限定在 bank.async-transfer.queue-capacity 以内，超出直接拒绝，不占用 Tomcat 工作线程排队。
+ * JDK 21+ 上每笔转账一个虚拟线程，阻塞在数据库连接或账户锁上时不占平台线程；
+ * 当前 JDK 不支持时退化为固定大小的平台线程池。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+public class AsyncTransferExecutor {
+
+    @Autowired
+    AsyncTransferProperties asyncTransferProperties;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    private Semaphore admission;
+
+    private Counter rejected;
+
+    @PostConstruct
+    public void start() {
+        admission = new Semaphore(asyncTransferProperties.getQueueCapacity());
+        executor = createExecutor();
+        if (meterRegistry != null) {
+            Gauge.builder("bank.transfer.async.in.flight", admission,
+                            s -> asyncTransferProperties.getQueueCapacity() - s.availablePermits())
+                    .register(meterRegistry);
+            rejected = Counter.builder("bank.transfer.async.rejected").register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("async transfer executor did not drain in time");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 受理一笔转账，受理数已满时抛出 TRANSFER_BUSY
+     */
+    public CompletableFuture<BaseResponse<?>> submit(Supplier<BaseResponse<?>> transfer) {
+        if (!admission.tryAcquire()) {
+            if (rejected != null) {
+                rejected.increment();
+            }
+            throw new BusinessException(ErrorCode.TRANSFER_BUSY, "待处理转账已达上限，请稍后重试");
+        }
+        try {
+            CompletableFuture<BaseResponse<?>> future = CompletableFuture.supplyAsync(transfer, executor);
+            future.whenComplete((result, error) -> admission.release());
+            return future;
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            throw new BusinessException(ErrorCode.TRANSFER_BUSY, "转账执行器已关闭");
+        }
+    }
+
+    public boolean hasCapacity() {
+        return admission.availablePermits() > 0;
+    }
+
+    public int inFlight() {
+        return asyncTransferProperties.getQueueCapacity() - admission.availablePermits();
+    }
+
+    private ExecutorService createExecutor() {
+        if (asyncTransferProperties.isVirtualThreads()) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                log.info("async transfers run on virtual threads");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.info("virtual threads unavailable on this JDK, async transfers use {} platform threads",
+                        asyncTransferProperties.getPlatformThreads());
+            }
+        }
+        int threads = asyncTransferProperties.getPlatformThreads();
+        // 队列长度已由信号量限定，这里不再设上限
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("transfer-async-", true));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
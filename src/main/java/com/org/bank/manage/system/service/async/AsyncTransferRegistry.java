@@ -0,0 +1,125 @@
+package com.org.bank.manage.system.service.async;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.org.bank.manage.system.common.AsyncTransferStatus;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.common.TransactionUtils;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.AsyncTransferProperties;
+import com.org.bank.manage.system.request.AsyncTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 异步转账编号到结果的映射。未完成的转账一直保留（数量受执行器的受理上限约束），
+ * 完成后才按 bank.async-transfer.result-ttl 过期、按 max-tracked-transfers 限量
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+public class AsyncTransferRegistry {
+
+    @Autowired
+    AsyncTransferProperties asyncTransferProperties;
+
+    @Autowired
+    AsyncTransferExecutor asyncTransferExecutor;
+
+    /**
+     * 未完成的转账，不参与过期与淘汰
+     */
+    private final Map<String, CompletableFuture<BaseResponse<?>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 已完成的转账结果
+     */
+    private Cache<String, CompletableFuture<BaseResponse<?>>> transfers;
+
+    @PostConstruct
+    public void init() {
+        transfers = Caffeine.newBuilder()
+                .expireAfterWrite(asyncTransferProperties.getResultTtl())
+                .maximumSize(asyncTransferProperties.getMaxTrackedTransfers())
+                .build();
+    }
+
+    /**
+     * 受理一笔转账并返回转账编号。
+     * 调用方处在事务中（如幂等记录）时，提交后才真正交给执行器，避免事务回滚后转账仍在执行；
+     * 提交后执行器已满则登记为失败，查询时返回 TRANSFER_BUSY
+     */
+    public String submit(Supplier<CompletableFuture<BaseResponse<?>>> submission) {
+        if (!asyncTransferExecutor.hasCapacity()) {
+            throw new BusinessException(ErrorCode.TRANSFER_BUSY, "待处理转账已达上限，请稍后重试");
+        }
+        String transferId = UUID.randomUUID().toString();
+        TransactionUtils.afterCommit(() -> {
+            CompletableFuture<BaseResponse<?>> future;
+            try {
+                future = submission.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            track(transferId, future);
+        });
+        return transferId;
+    }
+
+    public CompletableFuture<BaseResponse<?>> find(String transferId) {
+        CompletableFuture<BaseResponse<?>> future = inFlight.get(transferId);
+        if (future == null) {
+            future = transfers.getIfPresent(transferId);
+        }
+        if (future == null) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_FOUND, "转账" + transferId + "不存在或结果已过期");
+        }
+        return future;
+    }
+
+    /**
+     * 完成后先登记到结果缓存再移出未完成表，查询时总能在其中之一找到
+     */
+    private void track(String transferId, CompletableFuture<BaseResponse<?>> future) {
+        inFlight.put(transferId, future);
+        future.whenComplete((result, error) -> {
+            transfers.put(transferId, future);
+            inFlight.remove(transferId);
+        });
+    }
+
+    /**
+     * 当前状态：未完成为 PENDING，完成后带上与同步接口一致的结果
+     */
+    public AsyncTransferVO status(String transferId, CompletableFuture<BaseResponse<?>> future) {
+        if (!future.isDone()) {
+            return new AsyncTransferVO(transferId, AsyncTransferStatus.PENDING);
+        }
+        try {
+            return new AsyncTransferVO(transferId, AsyncTransferStatus.SUCCEEDED, future.join());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            BaseResponse<?> result;
+            if (cause instanceof BusinessException) {
+                BusinessException be = (BusinessException) cause;
+                result = ResultUtils.error(be.getCode(), be.getMessage(), be.getDescription());
+            } else {
+                log.error("async transfer {} failed", transferId, cause);
+                result = ResultUtils.error(ErrorCode.SYSTEM_ERROR, String.valueOf(cause), "");
+            }
+            return new AsyncTransferVO(transferId, AsyncTransferStatus.FAILED, result);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.org.bank.manage.system.service.bulk;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.org.bank.manage.system.common.ReadOnlyTransactional;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.service.convert.BankMangeMapper;
+import com.org.bank.manage.system.service.hot.HotAccountLedger;
+import com.org.bank.manage.system.service.shard.AccountShards;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 账户流式导出为 NDJSON，每行一个与分页接口相同的账户对象。
+ * <p>
+ * 从只进游标逐行读取，写出后立即从持久化上下文中 detach，每 fetch size 行 flush 一次响应；
+ * 任何时候内存中只有一批行，与导出的总行数无关。导出期间占用一个数据库连接与只读事务。
+ * 启用分库时全表导出依次导出每个分片，每个分片一个只读事务，行只在分片内按 id 有序。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+public class AccountExporter {
+
+    private static final int FLUSH_EVERY = Integer.parseInt(BankAccountRepository.EXPORT_FETCH_SIZE);
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * 仅在 bank.hot-account.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    HotAccountLedger hotAccountLedger;
+
+    /**
+     * 仅在 bank.sharding.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    AccountShards accountShards;
+
+    /**
+     * 经代理调用自身，每个分片的导出在各自的只读事务中执行
+     */
+    @Lazy
+    @Autowired
+    AccountExporter self;
+
+    /**
+     * 导出一个用户的全部账户，按 id 升序
+     *
+     * @return 导出的行数
+     */
+    @ReadOnlyTransactional
+    public long exportUser(String userId, OutputStream out) throws IOException {
+        try (AccountShards.Scope shard = accountShards == null ? null : accountShards.forUser(userId);
+             Stream<BankAccount> accounts = bankAccountRepository.streamByUser(userId)) {
+            return write(accounts, out);
+        }
+    }
+
+    /**
+     * 导出全表，按 id 升序；启用分库时按分片依次导出
+     *
+     * @return 导出的行数
+     */
+    public long exportAll(OutputStream out) throws IOException {
+        long rows = 0;
+        if (accountShards == null) {
+            rows = self.exportTable(out);
+        } else {
+            for (int i = 0; i < accountShards.shardCount(); i++) {
+                try (AccountShards.Scope shard = accountShards.onShard(i)) {
+                    rows += self.exportTable(out);
+                }
+            }
+        }
+        log.info("exported {} accounts", rows);
+        return rows;
+    }
+
+    /**
+     * 导出当前分片（未启用分库时即全表）的账户表
+     */
+    @ReadOnlyTransactional
+    public long exportTable(OutputStream out) throws IOException {
+        try (Stream<BankAccount> accounts = bankAccountRepository.streamAll()) {
+            return write(accounts, out);
+        }
+    }
+
+    private long write(Stream<BankAccount> accounts, OutputStream out) throws IOException {
+        // 行在遍历时才加载，查询级的缓存模式此时已失效，在事务所属的 Session 上设置：导出的行不写入二级缓存
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        DecimalFormat df = new DecimalFormat("0.00");
+        long rows = 0;
+        // 输出流由容器关闭，这里只 flush
+        try (SequenceWriter writer = objectMapper.writerFor(CreateBankAccountVO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            Iterator<BankAccount> iterator = accounts.iterator();
+            while (iterator.hasNext()) {
+                BankAccount account = iterator.next();
+                writer.write(view(account, df));
+                entityManager.detach(account);
+                if (++rows % FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        if (rows > 0) {
+            out.write('\n');
+        }
+        out.flush();
+        return rows;
+    }
+
+    /**
+     * 余额含热点账户的子余额槽
+     */
+    private CreateBankAccountVO view(BankAccount account, DecimalFormat df) {
+        BigDecimal balance = account.getBalance();
+        if (hotAccountLedger != null) {
+            balance = balance.add(hotAccountLedger.slotBalance(account.getBankCardNumber()));
+        }
+        return BankMangeMapper.INSTANCE.entityToVO(account, df.format(balance));
+    }
+}
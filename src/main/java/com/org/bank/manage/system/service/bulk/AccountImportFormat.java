@@ -0,0 +1,46 @@
+package com.org.bank.manage.system.service.bulk;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import org.springframework.http.MediaType;
+
+/**
+ * 批量导入支持的请求体格式，按 Content-Type 区分
+ *
+ * @author tucker
+ */
+public enum AccountImportFormat {
+
+    /**
+     * 每行一个 JSON 对象，字段与开户接口的请求体相同
+     */
+    NDJSON("application/x-ndjson"),
+
+    /**
+     * 首行为表头，列名与开户接口的字段名相同（不区分大小写），列的顺序任意
+     */
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    AccountImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static AccountImportFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType type = MediaType.parseMediaType(contentType);
+            for (AccountImportFormat format : values()) {
+                if (MediaType.parseMediaType(format.mediaType).isCompatibleWith(type)) {
+                    return format;
+                }
+            }
+        }
+        throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                "Content-Type 只支持 application/x-ndjson 或 text/csv");
+    }
+}
@@ -0,0 +1,259 @@
+package com.org.bank.manage.system.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bank.manage.system.common.AccountStatus;
+import com.org.bank.manage.system.config.ImportProperties;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.request.AccountImportErrorVO;
+import com.org.bank.manage.system.request.AccountImportResultVO;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.cache.CardNumberFilter;
+import com.org.bank.manage.system.service.convert.BankMangeMapper;
+import com.org.bank.manage.system.service.hot.HotAccountLedger;
+import com.org.bank.manage.system.service.shard.AccountShards;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 批量导入账户。
+ * <p>
+ * 请求体按行流式读取，每 chunk-size 行为一段：一次 IN 查询完成查重，在一个事务中 persist 后 flush，
+ * id 由 pooled-lo 序列在内存中分配，插入按 hibernate.jdbc.batch_size 合并成 JDBC 批次。
+ * 每段单独提交，某一行不合法只记入结果，不影响其他行；整段插入失败时逐行重试以找出出错的行。
+ * 启用分库时段内的行按用户所在分片分组，每个分片一个事务，插入前逐行在卡号目录中占用卡号。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+public class AccountImporter {
+
+    @Autowired
+    ImportProperties importProperties;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    AccountCacheSupport accountCacheSupport;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    Validator validator;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * 仅在 bank.card-filter.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    CardNumberFilter cardNumberFilter;
+
+    /**
+     * 仅在 bank.hot-account.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    HotAccountLedger hotAccountLedger;
+
+    /**
+     * 仅在 bank.sharding.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    AccountShards accountShards;
+
+    public AccountImportResultVO importAccounts(BufferedReader reader, AccountImportFormat format) throws IOException {
+        AccountImportResultVO result = new AccountImportResultVO();
+        AccountRowReader rows = new AccountRowReader(reader, format, objectMapper);
+        List<AccountRowReader.Row> chunk = new ArrayList<>(importProperties.getChunkSize());
+        AccountRowReader.Row row;
+        while ((row = rows.next()) != null) {
+            result.setTotalRows(result.getTotalRows() + 1);
+            String error = row.getError() != null ? row.getError() : validate(row.getAccount());
+            if (error != null) {
+                fail(result, row, error);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() >= importProperties.getChunkSize()) {
+                importChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, result);
+        }
+        log.info("imported {} of {} accounts, {} failed", result.getImportedCount(), result.getTotalRows(),
+                result.getFailedCount());
+        return result;
+    }
+
+    private void importChunk(List<AccountRowReader.Row> chunk, AccountImportResultVO result) {
+        List<AccountRowReader.Row> accepted = rejectDuplicates(chunk, result);
+        if (accepted.isEmpty()) {
+            return;
+        }
+        if (accountShards == null) {
+            importRows(accepted, result);
+            return;
+        }
+        Map<Integer, List<AccountRowReader.Row>> byShard = accepted.stream().collect(Collectors.groupingBy(
+                row -> accountShards.shardOfUser(row.getAccount().getUserId()), TreeMap::new, Collectors.toList()));
+        byShard.values().forEach(rows -> importRows(rows, result));
+    }
+
+    private void importRows(List<AccountRowReader.Row> rows, AccountImportResultVO result) {
+        try {
+            insert(rows);
+            result.setImportedCount(result.getImportedCount() + rows.size());
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            // 查重之后被并发开户占用了卡号，或有数据库层面的约束未通过：逐行插入找出出错的行
+            log.warn("import chunk of {} rows failed, retrying row by row: {}", rows.size(), e.getMessage());
+            for (AccountRowReader.Row row : rows) {
+                try {
+                    insert(List.of(row));
+                    result.setImportedCount(result.getImportedCount() + 1);
+                } catch (DataIntegrityViolationException | PersistenceException rowError) {
+                    fail(result, row, "卡号已存在或违反数据库约束");
+                }
+            }
+        }
+    }
+
+    /**
+     * 段内重复与库中已存在（包括已删除，卡号不复用）的卡号记为失败；卡号过滤器确定不存在的卡号不参与查询
+     */
+    private List<AccountRowReader.Row> rejectDuplicates(List<AccountRowReader.Row> chunk,
+                                                        AccountImportResultVO result) {
+        Set<String> seen = new HashSet<>();
+        List<AccountRowReader.Row> unique = new ArrayList<>(chunk.size());
+        for (AccountRowReader.Row row : chunk) {
+            if (seen.add(row.getAccount().getBankCardNumber())) {
+                unique.add(row);
+            } else {
+                fail(result, row, "卡号在导入数据中重复");
+            }
+        }
+        Set<String> uncertain = unique.stream()
+                .map(row -> row.getAccount().getBankCardNumber())
+                .filter(bankCardNumber -> cardNumberFilter == null || !cardNumberFilter.definitelyAbsent(bankCardNumber))
+                .collect(Collectors.toSet());
+        if (uncertain.isEmpty()) {
+            return unique;
+        }
+        // 分库时按卡号目录查重，覆盖全部分片
+        Set<String> existing = accountShards == null
+                ? new HashSet<>(bankAccountRepository.findExistingBankCardNumbers(uncertain))
+                : accountShards.claimedCards(uncertain);
+        List<AccountRowReader.Row> accepted = new ArrayList<>(unique.size());
+        for (AccountRowReader.Row row : unique) {
+            if (existing.contains(row.getAccount().getBankCardNumber())) {
+                fail(result, row, "账户已存在");
+            } else {
+                accepted.add(row);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * 分库时调用方保证这些行属于同一分片
+     */
+    private void insert(List<AccountRowReader.Row> rows) {
+        try (AccountShards.Scope shard = accountShards == null ? null
+                : accountShards.forUser(rows.get(0).getAccount().getUserId())) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                // 导入的账户不写入二级缓存，避免把热数据挤出
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                List<BankAccount> accounts = new ArrayList<>(rows.size());
+                for (AccountRowReader.Row row : rows) {
+                    claim(row.getAccount());
+                    BankAccount account = BankMangeMapper.INSTANCE.createVoToEntity(row.getAccount(), AccountStatus.ACTIVE);
+                    entityManager.persist(account);
+                    accounts.add(account);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                for (BankAccount account : accounts) {
+                    if (hotAccountLedger != null) {
+                        hotAccountLedger.provision(account.getBankCardNumber());
+                    }
+                    if (cardNumberFilter != null) {
+                        cardNumberFilter.added(account.getBankCardNumber());
+                    }
+                }
+                accountCacheSupport.accountsImported(accounts);
+            });
+        }
+    }
+
+    /**
+     * 分库时在卡号目录中占用卡号，事务回滚时释放；已被其他分片占用时按唯一约束冲突处理
+     */
+    private void claim(CreateBankAccountVO account) {
+        if (accountShards != null && !accountShards.claim(account.getBankCardNumber(),
+                accountShards.shardOfUser(account.getUserId()))) {
+            throw new DuplicateKeyException("bank card number " + account.getBankCardNumber()
+                    + " is used on another shard");
+        }
+    }
+
+    /**
+     * 与开户接口相同的参数校验，再按实体的约束（字段长度等）校验一次
+     */
+    private String validate(CreateBankAccountVO account) {
+        Set<ConstraintViolation<CreateBankAccountVO>> violations = validator.validate(account);
+        if (violations.isEmpty()) {
+            Set<ConstraintViolation<BankAccount>> entityViolations =
+                    validator.validate(BankMangeMapper.INSTANCE.createVoToEntity(account, AccountStatus.ACTIVE));
+            return entityViolations.isEmpty() ? null : join(entityViolations);
+        }
+        return join(violations);
+    }
+
+    private static String join(Set<? extends ConstraintViolation<?>> violations) {
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void fail(AccountImportResultVO result, AccountRowReader.Row row, String message) {
+        result.setFailedCount(result.getFailedCount() + 1);
+        if (result.getErrors().size() < importProperties.getMaxReportedErrors()) {
+            String bankCardNumber = row.getAccount() == null ? null : row.getAccount().getBankCardNumber();
+            result.getErrors().add(new AccountImportErrorVO(row.getLine(), bankCardNumber, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.org.bank.manage.system.service.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 按行读取导入的账户，一次只持有一行；单行格式错误记在该行上，不影响后续行
+ *
+ * @author tucker
+ */
+public class AccountRowReader {
+
+    private static final String[] CSV_COLUMNS = {"accountHolderName", "contactNumber", "idCard", "emailAddress",
+            "balance", "description", "bankCardNumber", "userId"};
+
+    private final BufferedReader reader;
+
+    private final AccountImportFormat format;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * CSV 每一列对应的字段在 CSV_COLUMNS 中的下标，-1 表示忽略该列
+     */
+    private int[] columns;
+
+    private long lineNo;
+
+    public AccountRowReader(BufferedReader reader, AccountImportFormat format, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 读取下一行数据，跳过空行
+     *
+     * @return 读完时返回 null
+     */
+    public Row next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNo++;
+        } while (line.isBlank());
+        if (format == AccountImportFormat.NDJSON) {
+            return parseJson(line);
+        }
+        if (columns == null) {
+            readHeader(line);
+            return next();
+        }
+        return parseCsv(line);
+    }
+
+    private Row parseJson(String line) {
+        try {
+            return new Row(lineNo, objectMapper.readValue(line, CreateBankAccountVO.class), null);
+        } catch (JsonProcessingException e) {
+            return new Row(lineNo, null, "JSON 格式错误：" + e.getOriginalMessage());
+        }
+    }
+
+    private void readHeader(String line) {
+        List<String> names = splitCsv(line);
+        columns = new int[names.size()];
+        boolean[] present = new boolean[CSV_COLUMNS.length];
+        for (int i = 0; i < names.size(); i++) {
+            columns[i] = indexOf(names.get(i).trim());
+            if (columns[i] >= 0) {
+                present[columns[i]] = true;
+            }
+        }
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            // emailAddress 可选，其余列缺失时所有行都会校验失败，直接拒绝
+            if (!present[i] && !"emailAddress".equals(CSV_COLUMNS[i])) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "CSV 表头缺少列 " + CSV_COLUMNS[i]);
+            }
+        }
+    }
+
+    private Row parseCsv(String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() != columns.length) {
+            return new Row(lineNo, null, "列数为 " + values.size() + "，与表头的 " + columns.length + " 列不一致");
+        }
+        CreateBankAccountVO vo = new CreateBankAccountVO();
+        for (int i = 0; i < columns.length; i++) {
+            String value = values.get(i).trim();
+            if (columns[i] < 0 || value.isEmpty()) {
+                continue;
+            }
+            switch (CSV_COLUMNS[columns[i]]) {
+                case "accountHolderName" -> vo.setAccountHolderName(value);
+                case "contactNumber" -> vo.setContactNumber(value);
+                case "idCard" -> vo.setIdCard(value);
+                case "emailAddress" -> vo.setEmailAddress(value);
+                case "description" -> vo.setDescription(value);
+                case "bankCardNumber" -> vo.setBankCardNumber(value);
+                case "userId" -> vo.setUserId(value);
+                default -> {
+                    try {
+                        vo.setBalance(new BigDecimal(value));
+                    } catch (NumberFormatException e) {
+                        return new Row(lineNo, vo, "balance 不是合法的金额：" + value);
+                    }
+                }
+            }
+        }
+        return new Row(lineNo, vo, null);
+    }
+
+    private static int indexOf(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            if (CSV_COLUMNS[i].toLowerCase(Locale.ROOT).equals(lower)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按逗号拆分一行，支持双引号包裹的字段与其中转义的双引号（""）；字段内不能换行
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Row {
+
+        private final long line;
+
+        private final CreateBankAccountVO account;
+
+        /**
+         * 解析错误，为空表示解析成功
+         */
+        private final String error;
+    }
+}
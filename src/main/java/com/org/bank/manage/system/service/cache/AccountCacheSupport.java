@@ -0,0 +1,360 @@
+package com.org.bank.manage.system.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.org.bank.manage.system.common.AccountStatus;
+import com.org.bank.manage.system.common.TransactionUtils;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.cache.invalidation.CacheInvalidation;
+import com.org.bank.manage.system.service.cache.invalidation.InvalidationBus;
+import com.org.bank.manage.system.service.replica.ReplicaReads;
+import com.org.bank.manage.system.service.shard.AccountShards;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 账户缓存的精确维护。
+ * <p>
+ * 写操作提交后只处理受影响的键：账户详情（bankaccount）重新读库后直接写入缓存，
+ * 分页列表（bankaccounts）通过 userId -> 分页键 的二级索引只淘汰该用户的页。
+ * 分页键带有用户的代号，淘汰时代号加一，提交前开始加载、提交后才写入的旧页落在旧代号下，不会再被读到。
+ * 响应字节缓存（{@link ResponseBodyCache}）与对象缓存同键，随之写入或淘汰。
+ * 启用失效总线时，改动同时广播给其他节点，其他节点只淘汰不回写。
+ * 启用读写分离时，刷新或淘汰过的卡号与用户在一段时间内读主库，从库上的旧值不会被加载进缓存。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+public class AccountCacheSupport {
+
+    public static final String ACCOUNT_PAGES = "bankaccounts";
+
+    public static final String ACCOUNT_DETAIL = "bankaccount";
+
+    public static final String ACCOUNT_TOTALS = "bankaccount-totals";
+
+    private static final String SELECT_ACCOUNT = "SELECT * FROM bankaccount WHERE bank_card_number = ?";
+
+    private static final String SELECT_ID = "SELECT id FROM bankaccount WHERE bank_card_number = ?";
+
+    private static final BeanPropertyRowMapper<BankAccount> ACCOUNT_MAPPER =
+            new BeanPropertyRowMapper<>(BankAccount.class);
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    /**
+     * 仅在 bank.cache.invalidation.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    InvalidationBus invalidationBus;
+
+    /**
+     * 仅在 bank.card-filter.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    CardNumberFilter cardNumberFilter;
+
+    /**
+     * 仅在 bank.replica.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    ReplicaReads replicaReads;
+
+    /**
+     * 仅在 bank.sharding.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    AccountShards accountShards;
+
+    /**
+     * 同一卡号的“读库 + 写缓存”串行执行，后写入的一定是更新的读库结果
+     */
+    private final Object[] stripes = new Object[STRIPES];
+
+    private Cache<String, UserPages> userPages;
+
+    /**
+     * 由账户构造详情接口的返回值，由 BankManageServiceImpl 启动时注册
+     */
+    private Function<BankAccount, BaseResponse<?>> detailView;
+
+    /**
+     * 查询一页账户列表，由 BankManageServiceImpl 启动时注册
+     */
+    private PageView pageView;
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        // 索引在最后一次访问后至少保留到该用户所有分页过期，避免代号被重置
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        org.springframework.cache.Cache pages = cacheManager.getCache(ACCOUNT_PAGES);
+        if (pages instanceof CaffeineCache) {
+            Optional<Policy.FixedExpiration<Object, Object>> expiration =
+                    ((CaffeineCache) pages).getNativeCache().policy().expireAfterWrite();
+            expiration.ifPresent(e -> builder.expireAfterAccess(e.getExpiresAfter()));
+        }
+        userPages = builder.build();
+        if (invalidationBus != null) {
+            invalidationBus.subscribe(this::evictRemote);
+        }
+    }
+
+    /**
+     * 分页缓存键，同时登记到该用户的索引中；供 {@code @Cacheable} 的 key 表达式调用
+     */
+    public String pageKey(String userId, Integer pageNo, Integer pageSize) {
+        UserPages pages = userPages.get(userId, k -> new UserPages());
+        String key = userId + "-" + pages.generation + "-" + pageNo + "-" + pageSize;
+        pages.keys.add(key);
+        return key;
+    }
+
+    public void setDetailView(Function<BankAccount, BaseResponse<?>> detailView) {
+        this.detailView = detailView;
+    }
+
+    public void setPageView(PageView pageView) {
+        this.pageView = pageView;
+    }
+
+    /**
+     * 详情缓存中是否有该卡号
+     */
+    public boolean detailCached(String bankCardNumber) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(ACCOUNT_DETAIL);
+        // 配置了加载器时 Cache#get 未命中会读库，这里只看本地是否已有
+        if (cache instanceof CaffeineCache) {
+            return ((CaffeineCache) cache).getNativeCache().getIfPresent(bankCardNumber) != null;
+        }
+        return cache.get(bankCardNumber) != null;
+    }
+
+    /**
+     * 账户发生变化，提交后刷新其详情缓存并淘汰所属用户的分页缓存
+     */
+    public void accountChanged(String bankCardNumber) {
+        TransactionUtils.afterCommit(() -> refresh(bankCardNumber));
+    }
+
+    public void accountsChanged(Collection<String> bankCardNumbers) {
+        TransactionUtils.afterCommit(() -> bankCardNumbers.forEach(this::refresh));
+    }
+
+    /**
+     * 批量导入的新账户：提交后淘汰所属用户的分页并广播；详情缓存中不会有新卡号，不必回写
+     */
+    public void accountsImported(Collection<BankAccount> accounts) {
+        TransactionUtils.afterCommit(() -> {
+            Set<String> userIds = new HashSet<>();
+            for (BankAccount account : accounts) {
+                userIds.add(account.getUserUid());
+                if (invalidationBus != null) {
+                    invalidationBus.publish(account.getBankCardNumber(), account.getUserUid());
+                }
+            }
+            userIds.forEach(this::evictPages);
+        });
+    }
+
+    /**
+     * 启动预热：写入账户详情，只在缓存中还没有该卡号时写入，不覆盖预热期间写操作提交后写入的新值
+     *
+     * @return 写入的账户数
+     */
+    public int warm(Collection<BankAccount> accounts) {
+        org.springframework.cache.Cache detailCache = cacheManager.getCache(ACCOUNT_DETAIL);
+        int warmed = 0;
+        for (BankAccount account : accounts) {
+            if (AccountStatus.DELETED.equals(account.getStatus())) {
+                continue;
+            }
+            if (detailCache.putIfAbsent(account.getBankCardNumber(), detailView.apply(account)) == null) {
+                warmed++;
+            }
+        }
+        return warmed;
+    }
+
+    /**
+     * 详情缓存的加载器：账户不存在或已删除时返回 null，卡号过滤器确定不存在时不读库
+     */
+    public BaseResponse<?> loadDetail(String bankCardNumber) {
+        if (cardNumberFilter != null && cardNumberFilter.knownMissingQuietly(bankCardNumber)) {
+            return null;
+        }
+        BankAccount account = findAccount(bankCardNumber);
+        if (account == null || AccountStatus.DELETED.equals(account.getStatus())) {
+            if (cardNumberFilter != null) {
+                cardNumberFilter.markMissing(bankCardNumber);
+            }
+            return null;
+        }
+        return detailView.apply(account);
+    }
+
+    /**
+     * 分页缓存的加载器，用于过期前的后台刷新：从分页键（userId-代号-页码-页大小）解析出用户与页码重新查询。
+     * 刷新期间该页被淘汰时 Caffeine 丢弃刷新结果，不会写回旧代号
+     */
+    public BaseResponse<?> loadPage(String key) {
+        int sizeAt = key.lastIndexOf('-');
+        int pageAt = key.lastIndexOf('-', sizeAt - 1);
+        int generationAt = key.lastIndexOf('-', pageAt - 1);
+        return pageView.load(Integer.valueOf(key.substring(pageAt + 1, sizeAt)),
+                Integer.valueOf(key.substring(sizeAt + 1)), key.substring(0, generationAt));
+    }
+
+    /**
+     * 用户的账户总数，随该用户的分页一起淘汰
+     */
+    public long userTotal(String userId, Callable<Long> counter) {
+        Long total = cacheManager.getCache(ACCOUNT_TOTALS).get(userId, counter);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * 淘汰该用户当前代号下的所有分页及账户总数；启用读写分离时随后一段时间该用户的分页读主库
+     */
+    public void evictPages(String userId) {
+        if (replicaReads != null) {
+            replicaReads.userWritten(userId);
+        }
+        cacheManager.getCache(ACCOUNT_TOTALS).evict(userId);
+        UserPages pages = userPages.getIfPresent(userId);
+        if (pages == null) {
+            return;
+        }
+        Set<String> stale;
+        synchronized (pages) {
+            pages.generation++;
+            stale = new HashSet<>(pages.keys);
+            pages.keys.removeAll(stale);
+        }
+        org.springframework.cache.Cache cache = cacheManager.getCache(ACCOUNT_PAGES);
+        for (String key : stale) {
+            cache.evict(key);
+            responseBodyCache.evict(ResponseBodyCache.ACCOUNT_PAGES_BYTES, key);
+        }
+    }
+
+    private void refresh(String bankCardNumber) {
+        if (replicaReads != null) {
+            replicaReads.accountWritten(bankCardNumber);
+        }
+        org.springframework.cache.Cache detailCache = cacheManager.getCache(ACCOUNT_DETAIL);
+        String userId = null;
+        try {
+            synchronized (stripes[Math.floorMod(bankCardNumber.hashCode(), STRIPES)]) {
+                BankAccount account = findAccount(bankCardNumber);
+                if (account == null) {
+                    evictDetail(bankCardNumber);
+                    return;
+                }
+                userId = account.getUserUid();
+                if (AccountStatus.DELETED.equals(account.getStatus())) {
+                    evictDetail(bankCardNumber);
+                } else {
+                    BaseResponse<?> detail = detailView.apply(account);
+                    detailCache.put(bankCardNumber, detail);
+                    responseBodyCache.put(ResponseBodyCache.ACCOUNT_DETAIL_BYTES, bankCardNumber, detail);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("refresh cached account {} failed: {}", bankCardNumber, e.getMessage());
+            evictDetail(bankCardNumber);
+        }
+        if (userId != null) {
+            evictPages(userId);
+        }
+        if (invalidationBus != null) {
+            invalidationBus.publish(bankCardNumber, userId);
+        }
+    }
+
+    /**
+     * 其他节点改动了账户：淘汰本地详情、该用户的分页与二级缓存中的账户实体，下次访问时重新加载；
+     * 可能是新开的户，同时追加到本地卡号过滤器
+     */
+    private void evictRemote(CacheInvalidation invalidation) {
+        if (replicaReads != null) {
+            replicaReads.accountWritten(invalidation.getBankCardNumber());
+        }
+        if (cardNumberFilter != null) {
+            cardNumberFilter.added(invalidation.getBankCardNumber());
+        }
+        bankAccountRepository.evictCached(
+                jdbcFor(invalidation.getBankCardNumber())
+                        .queryForList(SELECT_ID, Long.class, invalidation.getBankCardNumber()));
+        evictDetail(invalidation.getBankCardNumber());
+        if (invalidation.getUserUid() != null) {
+            evictPages(invalidation.getUserUid());
+        }
+    }
+
+    private void evictDetail(String bankCardNumber) {
+        cacheManager.getCache(ACCOUNT_DETAIL).evict(bankCardNumber);
+        responseBodyCache.evict(ResponseBodyCache.ACCOUNT_DETAIL_BYTES, bankCardNumber);
+    }
+
+    /**
+     * 用 JDBC 读取，避免拿到持久化上下文中修改前的实体
+     */
+    private BankAccount findAccount(String bankCardNumber) {
+        List<BankAccount> accounts = jdbcFor(bankCardNumber).query(SELECT_ACCOUNT, ACCOUNT_MAPPER, bankCardNumber);
+        return accounts.isEmpty() ? null : accounts.get(0);
+    }
+
+    /**
+     * 启用分库时直接读卡号所在分片：提交后刷新时当前线程可能仍绑定着其他分片上的事务连接
+     */
+    private JdbcTemplate jdbcFor(String bankCardNumber) {
+        return accountShards == null ? jdbcTemplate : accountShards.jdbcForCard(bankCardNumber);
+    }
+
+    @FunctionalInterface
+    public interface PageView {
+
+        BaseResponse<?> load(Integer pageNo, Integer pageSize, String userId);
+    }
+
+    private static class UserPages {
+
+        private volatile long generation;
+
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -0,0 +1,153 @@
+package com.org.bank.manage.system.service.cache;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.org.bank.manage.system.config.WarmUpProperties;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.service.shard.AccountShards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 启动预热（bank.warm-up.enabled=true 时启用，默认开启）。
+ * <p>
+ * 在启动流程的 ApplicationRunner 阶段执行：取最新的 max-accounts 个账户的 id 范围，按 chunk-size 切成分段，
+ * 由 parallelism 个线程并行读取并写入账户详情缓存，同时构建卡号过滤器。
+ * Spring Boot 在所有 ApplicationRunner 结束后才把就绪状态置为 ACCEPTING_TRAFFIC，
+ * 因此预热期间 /ready 与 /actuator/health/readiness 都返回 503，负载均衡不会把流量导向冷节点。
+ * 预热失败或超时只记录日志，不阻止启动。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.warm-up", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AccountCacheWarmer implements ApplicationRunner {
+
+    private static final String SELECT_ID_RANGE = "SELECT MIN(id) AS low, MAX(id) AS high FROM "
+            + "(SELECT id FROM bankaccount WHERE status <> 'DELETED' ORDER BY id DESC LIMIT ?) t";
+
+    private static final String SELECT_CHUNK =
+            "SELECT * FROM bankaccount WHERE id BETWEEN ? AND ? AND status <> 'DELETED'";
+
+    private static final BeanPropertyRowMapper<BankAccount> ACCOUNT_MAPPER =
+            new BeanPropertyRowMapper<>(BankAccount.class);
+
+    @Autowired
+    WarmUpProperties warmUpProperties;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    AccountCacheSupport accountCacheSupport;
+
+    /**
+     * 仅在 bank.card-filter.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    CardNumberFilter cardNumberFilter;
+
+    /**
+     * 仅在 bank.sharding.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    AccountShards accountShards;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    /**
+     * @return 写入详情缓存的账户数
+     */
+    public long warmUp() {
+        long start = System.currentTimeMillis();
+        AtomicLong warmed = new AtomicLong();
+        AtomicInteger failedChunks = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, warmUpProperties.getParallelism()),
+                new NamedThreadFactory("cache-warm-up-", true));
+        try {
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            if (cardNumberFilter != null) {
+                tasks.add(CompletableFuture.runAsync(cardNumberFilter::rebuild, executor));
+            }
+            // 分库时每个分片各取最新的 max-accounts / 分片数 个账户，同一分片上相邻账户的 id 相差最大分片数
+            List<JdbcTemplate> sources = new ArrayList<>();
+            long idStride = accountShards == null ? 1 : AccountShards.MAX_SHARDS;
+            if (accountShards == null) {
+                sources.add(jdbcTemplate);
+            } else {
+                for (int shard = 0; shard < accountShards.shardCount(); shard++) {
+                    sources.add(accountShards.jdbc(shard));
+                }
+            }
+            int maxAccounts = (warmUpProperties.getMaxAccounts() + sources.size() - 1) / sources.size();
+            for (JdbcTemplate source : sources) {
+                for (long[] chunk : chunks(source, maxAccounts, idStride)) {
+                    tasks.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            List<BankAccount> accounts = source.query(SELECT_CHUNK, ACCOUNT_MAPPER, chunk[0], chunk[1]);
+                            warmed.addAndGet(accountCacheSupport.warm(accounts));
+                        } catch (RuntimeException e) {
+                            failedChunks.incrementAndGet();
+                            log.warn("warm up accounts {}-{} failed: {}", chunk[0], chunk[1], e.getMessage());
+                        }
+                    }, executor));
+                }
+            }
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]))
+                    .get(warmUpProperties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("warm up not finished in {}, start serving anyway", warmUpProperties.getTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("warm up failed, start serving anyway: {}", e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("warmed up {} accounts in {} ms, {} chunk(s) failed",
+                warmed.get(), System.currentTimeMillis() - start, failedChunks.get());
+        return warmed.get();
+    }
+
+    /**
+     * 最新 maxAccounts 个账户的 id 范围按 chunk-size 个 id 间隔切分，从新到旧排列
+     */
+    private List<long[]> chunks(JdbcTemplate source, int maxAccounts, long idStride) {
+        List<long[]> chunks = new ArrayList<>();
+        if (maxAccounts <= 0) {
+            return chunks;
+        }
+        Map<String, Object> range = source.queryForMap(SELECT_ID_RANGE, maxAccounts);
+        Object low = range.get("low");
+        Object high = range.get("high");
+        if (low == null || high == null) {
+            return chunks;
+        }
+        long chunkSize = Math.max(1, warmUpProperties.getChunkSize()) * idStride;
+        long lowId = ((Number) low).longValue();
+        for (long to = ((Number) high).longValue(); to >= lowId; to -= chunkSize) {
+            chunks.add(new long[]{Math.max(lowId, to - chunkSize + 1), to});
+        }
+        return chunks;
+    }
+}
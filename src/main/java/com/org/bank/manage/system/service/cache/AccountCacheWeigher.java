@@ -0,0 +1,59 @@
+package com.org.bank.manage.system.service.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.org.bank.manage.system.common.PageRes;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.cache.compact.CompactPage;
+import com.org.bank.manage.system.service.cache.compact.CompactValue;
+
+/**
+ * 缓存权重计算器。
+ * <p>
+ * 默认按缓存值包含的账户数计算：分页为该页条数，其他值为 1；
+ * 按字节计算时（weigh-in-bytes）紧凑编码的值取估算大小，响应字节取 JSON 长度加 ETag，其他值按 {@link #UNENCODED_BYTES} 计
+ *
+ * @author tucker
+ */
+public class AccountCacheWeigher implements Weigher<Object, Object> {
+
+    /**
+     * 未编码值（BaseResponse 对象图）的估算字节数
+     */
+    static final int UNENCODED_BYTES = 1024;
+
+    /**
+     * SerializedResponse 对象、byte[] 数组头与 ETag 字符串
+     */
+    private static final int SERIALIZED_OVERHEAD = 16 + 16 + 88;
+
+    private final boolean inBytes;
+
+    public AccountCacheWeigher() {
+        this(false);
+    }
+
+    public AccountCacheWeigher(boolean inBytes) {
+        this.inBytes = inBytes;
+    }
+
+    @Override
+    public int weigh(Object key, Object value) {
+        if (inBytes) {
+            if (value instanceof CompactValue) {
+                return ((CompactValue) value).sizeInBytes();
+            }
+            if (value instanceof SerializedResponse) {
+                return SERIALIZED_OVERHEAD + ((SerializedResponse) value).getBody().length;
+            }
+            return UNENCODED_BYTES;
+        }
+        if (value instanceof CompactPage) {
+            return Math.max(1, ((CompactPage) value).size());
+        }
+        if (value instanceof BaseResponse && ((BaseResponse<?>) value).getData() instanceof PageRes) {
+            PageRes<?> page = (PageRes<?>) ((BaseResponse<?>) value).getData();
+            return page.getData() == null ? 1 : Math.max(1, page.getData().size());
+        }
+        return 1;
+    }
+}
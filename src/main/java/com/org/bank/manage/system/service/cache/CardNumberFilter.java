@@ -0,0 +1,196 @@
+package com.org.bank.manage.system.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.org.bank.manage.system.common.TransactionUtils;
+import com.org.bank.manage.system.config.CacheProperties;
+import com.org.bank.manage.system.config.CardFilterProperties;
+import com.org.bank.manage.system.service.shard.AccountShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 卡号存在性过滤（bank.card-filter.enabled=true 时启用，默认关闭）。
+ * <p>
+ * 布隆过滤器记录所有发放过的卡号（包括已删除的），启动后从账户表全量构建、开户时追加、定时重建；
+ * 过滤器判定“一定不存在”的卡号不必查库。另有一个短期的不存在缓存，记录查库确认不存在的卡号，
+ * 过滤器误判时也能挡住重复查询。开户提交后清除该卡号的不存在记录。
+ * <p>
+ * 过滤器构建完成前所有卡号都按“可能存在”处理。其他节点开的户通过缓存失效总线追加到本地过滤器，
+ * 没有总线时会把其他节点刚开的卡号判为不存在，因此启用时要求 bank.cache.invalidation.enabled=true，否则拒绝启动；
+ * 单节点部署可以使用 in-memory 传输。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.card-filter", name = "enabled", havingValue = "true")
+public class CardNumberFilter {
+
+    private static final String SELECT_CARD_NUMBERS = "SELECT bank_card_number FROM bankaccount";
+
+    @Autowired
+    CardFilterProperties cardFilterProperties;
+
+    @Autowired
+    CacheProperties cacheProperties;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    /**
+     * 仅在 bank.sharding.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    AccountShards accountShards;
+
+    /**
+     * 当前使用的过滤器，为空表示尚未构建完成
+     */
+    private volatile ScalableBloomFilter filter;
+
+    /**
+     * 重建中的过滤器，重建期间追加的卡号同时写入新旧两个过滤器
+     */
+    private volatile ScalableBloomFilter rebuilding;
+
+    private Cache<String, Boolean> missing;
+
+    private Counter rejected;
+
+    private Counter negativeHits;
+
+    @PostConstruct
+    public void init() {
+        if (!cacheProperties.getInvalidation().isEnabled()) {
+            throw new IllegalStateException("bank.card-filter requires bank.cache.invalidation.enabled=true");
+        }
+        missing = Caffeine.newBuilder()
+                .maximumSize(cardFilterProperties.getNegativeMaxSize())
+                .expireAfterWrite(cardFilterProperties.getNegativeTtl())
+                .build();
+        if (meterRegistry != null) {
+            rejected = Counter.builder("bank.card-filter.rejected").register(meterRegistry);
+            negativeHits = Counter.builder("bank.card-filter.negative-hits").register(meterRegistry);
+            Gauge.builder("bank.card-filter.cards", this,
+                    f -> f.filter == null ? 0 : f.filter.approximateCount()).register(meterRegistry);
+        }
+    }
+
+    /**
+     * 启动预热已构建过时不再重复构建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!isReady()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从账户表全量构建新的过滤器，完成后替换当前过滤器
+     */
+    @Scheduled(initialDelayString = "${bank.card-filter.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${bank.card-filter.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        ScalableBloomFilter next = new ScalableBloomFilter(cardFilterProperties.getInitialCapacity(),
+                cardFilterProperties.getFalsePositiveRate());
+        rebuilding = next;
+        try {
+            long start = System.currentTimeMillis();
+            if (accountShards == null) {
+                jdbcTemplate.query(SELECT_CARD_NUMBERS, rs -> {
+                    next.put(rs.getString(1));
+                });
+            } else {
+                // 分库时主库上的卡号目录包含全部分片的卡号
+                accountShards.forEachCard(next::put);
+            }
+            filter = next;
+            log.info("card filter rebuilt with {} cards in {} ms, {} stage(s)",
+                    next.approximateCount(), System.currentTimeMillis() - start, next.stageCount());
+        } catch (RuntimeException e) {
+            log.warn("rebuild card filter failed, keep the previous one: {}", e.getMessage());
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    /**
+     * 卡号一定没有发放过
+     */
+    public boolean definitelyAbsent(String bankCardNumber) {
+        ScalableBloomFilter current = filter;
+        return current != null && !current.mightContain(bankCardNumber);
+    }
+
+    /**
+     * 不查库即可确定账户不存在：过滤器判定不存在，或最近查库确认过不存在
+     */
+    public boolean knownMissing(String bankCardNumber) {
+        if (definitelyAbsent(bankCardNumber)) {
+            if (rejected != null) {
+                rejected.increment();
+            }
+            return true;
+        }
+        if (missing.getIfPresent(bankCardNumber) != null) {
+            if (negativeHits != null) {
+                negativeHits.increment();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 同 {@link #knownMissing}，不计入拒绝次数；供详情缓存加载器使用，避免与详情接口重复计数
+     */
+    boolean knownMissingQuietly(String bankCardNumber) {
+        return definitelyAbsent(bankCardNumber) || missing.getIfPresent(bankCardNumber) != null;
+    }
+
+    /**
+     * 查库确认账户不存在
+     */
+    public void markMissing(String bankCardNumber) {
+        missing.put(bankCardNumber, Boolean.TRUE);
+    }
+
+    /**
+     * 开户：立即追加到过滤器，提交后再追加一次并清除不存在记录，覆盖提交前开始的重建与查询
+     */
+    public void added(String bankCardNumber) {
+        put(bankCardNumber);
+        TransactionUtils.afterCommit(() -> put(bankCardNumber));
+    }
+
+    private void put(String bankCardNumber) {
+        ScalableBloomFilter current = filter;
+        if (current != null) {
+            current.put(bankCardNumber);
+        }
+        ScalableBloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(bankCardNumber);
+        }
+        missing.invalidate(bankCardNumber);
+    }
+}
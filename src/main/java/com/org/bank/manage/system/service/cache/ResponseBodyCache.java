@@ -0,0 +1,101 @@
+package com.org.bank.manage.system.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.CacheProperties;
+import com.org.bank.manage.system.request.BaseResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 读接口响应字节缓存（bank.cache.serialized-responses=true 时使用）。
+ * <p>
+ * 与对象缓存使用相同的键，值为序列化后的 JSON 字节和 ETag，命中时控制器直接输出字节，不再经过 Jackson。
+ * 未命中时由对象缓存取值后序列化，只在没有更新值时写入（putIfAbsent），避免覆盖写操作提交后写入的新值。
+ * 淘汰时先递增键所在分段的代数再删除；读取在取值前记下代数，写入后代数已变说明取值期间发生过淘汰，
+ * 读到的可能是淘汰前的旧值，随即删除刚写入的条目，旧字节不会在淘汰之后留在缓存里。
+ *
+ * @author tucker
+ */
+@Component
+public class ResponseBodyCache {
+
+    public static final String ACCOUNT_DETAIL_BYTES = "bankaccount-bytes";
+
+    public static final String ACCOUNT_PAGES_BYTES = "bankaccounts-bytes";
+
+    private static final int GENERATION_STRIPES = 4096;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    CacheProperties cacheProperties;
+
+    /**
+     * 按缓存名与键的哈希分段的淘汰代数
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public boolean isEnabled() {
+        return cacheProperties.isSerializedResponses();
+    }
+
+    public SerializedResponse get(String cacheName, String key, Supplier<BaseResponse<?>> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        SerializedResponse cached = cache.get(key, SerializedResponse.class);
+        if (cached != null) {
+            return cached;
+        }
+        int stripe = stripe(cacheName, key);
+        long generation = generations.get(stripe);
+        SerializedResponse loaded = serialize(loader.get());
+        Cache.ValueWrapper existing = cache.putIfAbsent(key, loaded);
+        if (existing != null) {
+            return (SerializedResponse) existing.get();
+        }
+        if (generations.get(stripe) != generation) {
+            cache.evict(key);
+        }
+        return loaded;
+    }
+
+    /**
+     * 写操作提交后直接写入新值
+     */
+    public void put(String cacheName, String key, BaseResponse<?> response) {
+        if (isEnabled()) {
+            cacheManager.getCache(cacheName).put(key, serialize(response));
+        }
+    }
+
+    public void evict(String cacheName, String key) {
+        generations.incrementAndGet(stripe(cacheName, key));
+        cacheManager.getCache(cacheName).evict(key);
+    }
+
+    public SerializedResponse serialize(BaseResponse<?> response) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            return new SerializedResponse(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, e.getMessage());
+        }
+    }
+
+    private static int stripe(String cacheName, String key) {
+        int hash = 31 * cacheName.hashCode() + key.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,126 @@
+package com.org.bank.manage.system.service.cache;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 可扩容的布隆过滤器：当前段写满后追加一个容量翻倍、误判率减半的新段，
+ * 各段误判率之和不超过设定值。线程安全，只增不删。
+ *
+ * @author tucker
+ */
+public class ScalableBloomFilter {
+
+    private final int initialCapacity;
+
+    private final double falsePositiveRate;
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        this.initialCapacity = Math.max(1, initialCapacity);
+        this.falsePositiveRate = falsePositiveRate;
+        stages.add(new Stage(this.initialCapacity, falsePositiveRate / 2));
+    }
+
+    public void put(String value) {
+        long[] hash = MurmurHash.hash128(value);
+        Stage stage = stages.get(stages.size() - 1);
+        if (stage.isFull()) {
+            stage = grow(stage);
+        }
+        stage.put(hash[0], hash[1]);
+    }
+
+    /**
+     * @return false 表示一定不存在；true 表示可能存在
+     */
+    public boolean mightContain(String value) {
+        long[] hash = MurmurHash.hash128(value);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash[0], hash[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 已写入次数（重复写入也计数）
+     */
+    public long approximateCount() {
+        return stages.stream().mapToLong(s -> s.count.get()).sum();
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage last = stages.get(stages.size() - 1);
+        if (last != full) {
+            return last;
+        }
+        int n = stages.size();
+        long capacity = Math.min(Integer.MAX_VALUE / 2, (long) initialCapacity << Math.min(n, 20));
+        Stage next = new Stage((int) capacity, falsePositiveRate / Math.pow(2, n + 1));
+        stages.add(next);
+        return next;
+    }
+
+    private static class Stage {
+
+        private final int capacity;
+
+        private final long bitCount;
+
+        private final int hashCount;
+
+        private final AtomicLongArray bits;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        Stage(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bitCount = Math.max(64, m);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+        }
+
+        boolean isFull() {
+            return count.get() >= capacity;
+        }
+
+        void put(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashCount; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitCount;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+                combined += h2;
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashCount; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitCount;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+    }
+}
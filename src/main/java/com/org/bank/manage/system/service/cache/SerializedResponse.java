@@ -0,0 +1,18 @@
+package com.org.bank.manage.system.service.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 预先序列化的响应：UTF-8 JSON 字节与据此计算的 ETag
+ *
+ * @author tucker
+ */
+@Getter
+@AllArgsConstructor
+public class SerializedResponse {
+
+    private final byte[] body;
+
+    private final String etag;
+}
@@ -0,0 +1,103 @@
+package com.org.bank.manage.system.service.cache.compact;
+
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 一个账户的紧凑编码：余额按分存为 long，其余字符串按固定顺序以“长度 + UTF-8”写入同一个 byte[]，
+ * 所属用户 ID 单独保存驻留后的字符串，同一用户的所有账户共用一份。
+ * 一个账户只占两个对象（本对象与 byte[]），取代原来的 VO、BigDecimal 与七个字符串。
+ *
+ * @author tucker
+ */
+public final class CompactAccount implements CompactValue {
+
+    /**
+     * 对象头、两个引用与 byte[] 的数组头
+     */
+    private static final int OVERHEAD = 16 + 8 + 16;
+
+    private static final int NULL_LENGTH = -1;
+
+    private final String userId;
+
+    private final byte[] fields;
+
+    private CompactAccount(String userId, byte[] fields) {
+        this.userId = userId;
+        this.fields = fields;
+    }
+
+    /**
+     * @return 余额不是两位小数或超出 long 范围时返回 null，由调用方保留原值
+     */
+    static CompactAccount encode(CreateBankAccountVO vo, String internedUserId) {
+        BigDecimal balance = vo.getBalance();
+        if (balance == null || balance.scale() != 2 || balance.unscaledValue().bitLength() > 63) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(balance.unscaledValue().longValue());
+            writeString(out, vo.getAccountHolderName());
+            writeString(out, vo.getContactNumber());
+            writeString(out, vo.getIdCard());
+            writeString(out, vo.getEmailAddress());
+            writeString(out, vo.getDescription());
+            writeString(out, vo.getBankCardNumber());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CompactAccount(internedUserId, bytes.toByteArray());
+    }
+
+    CreateBankAccountVO decode() {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(fields))) {
+            CreateBankAccountVO vo = new CreateBankAccountVO();
+            vo.setBalance(BigDecimal.valueOf(in.readLong(), 2));
+            vo.setAccountHolderName(readString(in));
+            vo.setContactNumber(readString(in));
+            vo.setIdCard(readString(in));
+            vo.setEmailAddress(readString(in));
+            vo.setDescription(readString(in));
+            vo.setBankCardNumber(readString(in));
+            vo.setUserId(userId);
+            return vo;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int sizeInBytes() {
+        return OVERHEAD + fields.length;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
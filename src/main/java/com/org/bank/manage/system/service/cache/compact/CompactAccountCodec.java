@@ -0,0 +1,77 @@
+package com.org.bank.manage.system.service.cache.compact;
+
+import cn.hutool.core.lang.intern.Interner;
+import cn.hutool.core.lang.intern.InternUtil;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.PageRes;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+
+/**
+ * 账户详情与分页缓存值的紧凑编码。
+ * <p>
+ * 只编码成功返回的账户详情（data 为 {@link CreateBankAccountVO}）和账户分页（data 为其 {@link PageRes}），
+ * 其他值（包括余额无法按分表示的账户）原样保存。用户 ID 经弱引用驻留池去重，不再被引用后随 GC 回收。
+ *
+ * @author tucker
+ */
+public final class CompactAccountCodec {
+
+    private static final Interner<String> USER_IDS = InternUtil.createWeakInterner();
+
+    private static final String SUCCESS_MESSAGE = "ok";
+
+    private CompactAccountCodec() {
+    }
+
+    public static Object encode(Object value) {
+        if (!(value instanceof BaseResponse) || !isPlainSuccess((BaseResponse<?>) value)) {
+            return value;
+        }
+        Object data = ((BaseResponse<?>) value).getData();
+        if (data instanceof CreateBankAccountVO) {
+            CompactAccount account = encodeAccount((CreateBankAccountVO) data);
+            return account == null ? value : account;
+        }
+        if (data instanceof PageRes && ((PageRes<?>) data).getData() != null) {
+            PageRes<?> pageRes = (PageRes<?>) data;
+            CompactAccount[] accounts = new CompactAccount[pageRes.getData().size()];
+            for (int i = 0; i < accounts.length; i++) {
+                Object row = pageRes.getData().get(i);
+                accounts[i] = row instanceof CreateBankAccountVO ? encodeAccount((CreateBankAccountVO) row) : null;
+                if (accounts[i] == null) {
+                    return value;
+                }
+            }
+            return new CompactPage(pageRes, accounts);
+        }
+        return value;
+    }
+
+    public static Object decode(Object value) {
+        if (value instanceof CompactAccount) {
+            return success(((CompactAccount) value).decode());
+        }
+        if (value instanceof CompactPage) {
+            return success(((CompactPage) value).decode());
+        }
+        return value;
+    }
+
+    private static CompactAccount encodeAccount(CreateBankAccountVO vo) {
+        return CompactAccount.encode(vo, vo.getUserId() == null ? null : USER_IDS.intern(vo.getUserId()));
+    }
+
+    /**
+     * 与 ResultUtils.success(data) 构造的返回值相同，解码后能原样还原
+     */
+    private static boolean isPlainSuccess(BaseResponse<?> response) {
+        return response.getCode() == ErrorCode.SUCCESS.getCode()
+                && SUCCESS_MESSAGE.equals(response.getMessage())
+                && "".equals(response.getDescription());
+    }
+
+    private static <T> BaseResponse<T> success(T data) {
+        return new BaseResponse<>(ErrorCode.SUCCESS.getCode(), data, SUCCESS_MESSAGE);
+    }
+}
@@ -0,0 +1,70 @@
+package com.org.bank.manage.system.service.cache.compact;
+
+import com.org.bank.manage.system.common.PageRes;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一页账户列表的紧凑编码：分页信息存为基本类型，每个账户为一个 {@link CompactAccount}
+ *
+ * @author tucker
+ */
+public final class CompactPage implements CompactValue {
+
+    /**
+     * 对象头、四个 int、两个引用与数组头
+     */
+    private static final int OVERHEAD = 16 + 16 + 16 + 16;
+
+    private final int page;
+
+    private final int pageSize;
+
+    private final int totalPage;
+
+    private final int total;
+
+    private final String nextCursor;
+
+    private final CompactAccount[] accounts;
+
+    CompactPage(PageRes<?> pageRes, CompactAccount[] accounts) {
+        this.page = pageRes.getPage();
+        this.pageSize = pageRes.getPageSize();
+        this.totalPage = pageRes.getTotalPage();
+        this.total = pageRes.getTotal();
+        this.nextCursor = pageRes.getNextCursor();
+        this.accounts = accounts;
+    }
+
+    PageRes<CreateBankAccountVO> decode() {
+        PageRes<CreateBankAccountVO> pageRes = new PageRes<>(page, pageSize);
+        pageRes.setTotalPage(totalPage);
+        pageRes.setTotal(total);
+        pageRes.setNextCursor(nextCursor);
+        List<CreateBankAccountVO> data = new ArrayList<>(accounts.length);
+        for (CompactAccount account : accounts) {
+            data.add(account.decode());
+        }
+        pageRes.setData(data);
+        return pageRes;
+    }
+
+    /**
+     * 该页账户数
+     */
+    public int size() {
+        return accounts.length;
+    }
+
+    @Override
+    public int sizeInBytes() {
+        int size = OVERHEAD + 8 * accounts.length;
+        for (CompactAccount account : accounts) {
+            size += account.sizeInBytes();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,14 @@
+package com.org.bank.manage.system.service.cache.compact;
+
+/**
+ * 紧凑编码后的缓存值
+ *
+ * @author tucker
+ */
+public interface CompactValue {
+
+    /**
+     * 估算占用的堆内存字节数，按字节计权重时使用
+     */
+    int sizeInBytes();
+}
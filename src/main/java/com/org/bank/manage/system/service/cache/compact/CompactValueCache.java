@@ -0,0 +1,27 @@
+package com.org.bank.manage.system.service.cache.compact;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/**
+ * 写入时按 {@link CompactAccountCodec} 编码、读取时解码的 Caffeine 缓存；
+ * 仍是 {@link CaffeineCache}，统计与指标照常发布
+ *
+ * @author tucker
+ */
+public class CompactValueCache extends CaffeineCache {
+
+    public CompactValueCache(String name, Cache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    protected Object toStoreValue(Object userValue) {
+        return super.toStoreValue(CompactAccountCodec.encode(userValue));
+    }
+
+    @Override
+    protected Object fromStoreValue(Object storeValue) {
+        return CompactAccountCodec.decode(super.fromStoreValue(storeValue));
+    }
+}
@@ -0,0 +1,25 @@
+package com.org.bank.manage.system.service.cache.invalidation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一条缓存失效：某节点改动了某个账户，其他节点淘汰该账户详情及其所属用户的分页
+ *
+ * @author tucker
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidation {
+
+    private String origin;
+
+    private String bankCardNumber;
+
+    /**
+     * 为空表示只淘汰详情
+     */
+    private String userUid;
+}
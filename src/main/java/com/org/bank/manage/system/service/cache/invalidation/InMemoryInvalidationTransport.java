@@ -0,0 +1,31 @@
+package com.org.bank.manage.system.service.cache.invalidation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 进程内传输（bank.cache.invalidation.transport=in-memory）：同步投递给同一实例上的所有接收方，
+ * 用于单机运行和测试中模拟多个节点
+ *
+ * @author tucker
+ */
+@Component
+@ConditionalOnExpression("${bank.cache.invalidation.enabled:false} and '${bank.cache.invalidation.transport:jdbc}' == 'in-memory'")
+public class InMemoryInvalidationTransport implements InvalidationTransport {
+
+    private final List<Consumer<List<CacheInvalidation>>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(List<CacheInvalidation> invalidations) {
+        listeners.forEach(listener -> listener.accept(invalidations));
+    }
+
+    @Override
+    public void subscribe(Consumer<List<CacheInvalidation>> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,138 @@
+package com.org.bank.manage.system.service.cache.invalidation;
+
+import com.org.bank.manage.system.config.CacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效总线（bank.cache.invalidation.enabled=true 时启用）。
+ * <p>
+ * 本节点提交的账户改动先放入待发送集合，同一账户的重复失效在集合中合并；
+ * 每 flush-interval-ms 或攒满 max-batch 条时整批交给传输层发送，发送失败的批次放回集合下次重试。
+ * 收到其他节点的失效后通知本地订阅者淘汰缓存，本节点发出的失效被忽略。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.cache.invalidation", name = "enabled", havingValue = "true")
+public class InvalidationBus {
+
+    @Autowired
+    CacheProperties cacheProperties;
+
+    @Autowired
+    InvalidationTransport invalidationTransport;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    private final Set<CacheInvalidation> pending = ConcurrentHashMap.newKeySet();
+
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object flushLock = new Object();
+
+    private String nodeId;
+
+    private int maxBatch;
+
+    private Counter published;
+
+    private Counter coalesced;
+
+    private Counter received;
+
+    @PostConstruct
+    public void init() {
+        CacheProperties.Invalidation invalidation = cacheProperties.getInvalidation();
+        nodeId = invalidation.getNodeId() == null || invalidation.getNodeId().isEmpty()
+                ? UUID.randomUUID().toString() : invalidation.getNodeId();
+        maxBatch = Math.max(1, invalidation.getMaxBatch());
+        if (meterRegistry != null) {
+            published = Counter.builder("bank.cache.invalidation.published").register(meterRegistry);
+            coalesced = Counter.builder("bank.cache.invalidation.coalesced").register(meterRegistry);
+            received = Counter.builder("bank.cache.invalidation.received").register(meterRegistry);
+        }
+        invalidationTransport.subscribe(this::receive);
+        log.info("cache invalidation bus started on node {} over {}", nodeId, invalidation.getTransport());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 注册本地订阅者，收到其他节点的失效时调用
+     */
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 广播一个账户的改动，在事务提交后调用
+     *
+     * @param userUid 账户所属用户，为空表示只淘汰详情
+     */
+    public void publish(String bankCardNumber, String userUid) {
+        if (!pending.add(new CacheInvalidation(nodeId, bankCardNumber, userUid)) && coalesced != null) {
+            coalesced.increment();
+        }
+        if (pending.size() >= maxBatch) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bank.cache.invalidation.flush-interval-ms:20}")
+    public void flush() {
+        synchronized (flushLock) {
+            while (!pending.isEmpty()) {
+                List<CacheInvalidation> batch = new ArrayList<>(Math.min(maxBatch, pending.size()));
+                Iterator<CacheInvalidation> iterator = pending.iterator();
+                while (iterator.hasNext() && batch.size() < maxBatch) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+                try {
+                    invalidationTransport.publish(batch);
+                } catch (RuntimeException e) {
+                    log.warn("publish {} cache invalidations failed, will retry: {}", batch.size(), e.getMessage());
+                    pending.addAll(batch);
+                    return;
+                }
+                if (published != null) {
+                    published.increment(batch.size());
+                }
+            }
+        }
+    }
+
+    private void receive(List<CacheInvalidation> invalidations) {
+        for (CacheInvalidation invalidation : invalidations) {
+            if (nodeId.equals(invalidation.getOrigin())) {
+                continue;
+            }
+            if (received != null) {
+                received.increment();
+            }
+            for (Consumer<CacheInvalidation> listener : listeners) {
+                listener.accept(invalidation);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.org.bank.manage.system.service.cache.invalidation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效在节点间的传输方式，由 bank.cache.invalidation.transport 选择
+ *
+ * @author tucker
+ */
+public interface InvalidationTransport {
+
+    /**
+     * 发送一批失效，失败时抛出异常由调用方重试
+     */
+    void publish(List<CacheInvalidation> invalidations);
+
+    /**
+     * 注册接收方；收到的批次可能包含本节点发出的失效，由接收方过滤
+     */
+    void subscribe(Consumer<List<CacheInvalidation>> listener);
+}
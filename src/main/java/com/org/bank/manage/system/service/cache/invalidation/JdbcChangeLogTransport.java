@@ -0,0 +1,112 @@
+package com.org.bank.manage.system.service.cache.invalidation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.org.bank.manage.system.config.CacheProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 数据库变更日志传输（bank.cache.invalidation.transport=jdbc）。
+ * <p>
+ * 发送即向 cache_invalidation 表批量插入，各节点每 poll-interval-ms 读取新写入的记录。
+ * 自增 id 的提交顺序不保证与分配顺序一致，因此按数据库时间回看 poll-overlap 的窗口，
+ * 并记住已投递的 id 去重；重复投递只会多淘汰一次缓存。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${bank.cache.invalidation.enabled:false} and '${bank.cache.invalidation.transport:jdbc}' == 'jdbc'")
+public class JdbcChangeLogTransport implements InvalidationTransport {
+
+    private static final String INSERT_SQL = "INSERT INTO cache_invalidation " +
+            "(origin, bank_card_number, user_uid, created_at) VALUES (?, ?, ?, LOCALTIMESTAMP)";
+
+    private static final String SELECT_SQL = "SELECT id, origin, bank_card_number, user_uid, created_at " +
+            "FROM cache_invalidation WHERE created_at >= ? ORDER BY id";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    CacheProperties cacheProperties;
+
+    private final List<Consumer<List<CacheInvalidation>>> listeners = new CopyOnWriteArrayList<>();
+
+    private Cache<Long, Boolean> delivered;
+
+    private Timestamp since;
+
+    @PostConstruct
+    public void init() {
+        delivered = Caffeine.newBuilder()
+                .expireAfterWrite(cacheProperties.getInvalidation().getPollOverlap().multipliedBy(2))
+                .build();
+        since = now();
+    }
+
+    @Override
+    public void publish(List<CacheInvalidation> invalidations) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, invalidations.stream()
+                .map(i -> new Object[]{i.getOrigin(), i.getBankCardNumber(), i.getUserUid()})
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public void subscribe(Consumer<List<CacheInvalidation>> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.cache.invalidation.poll-interval-ms:200}")
+    public void poll() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        Timestamp from = new Timestamp(since.getTime() - cacheProperties.getInvalidation().getPollOverlap().toMillis());
+        List<CacheInvalidation> batch = new ArrayList<>();
+        try {
+            jdbcTemplate.query(SELECT_SQL, rs -> {
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                if (createdAt.after(since)) {
+                    since = createdAt;
+                }
+                if (delivered.asMap().putIfAbsent(rs.getLong("id"), Boolean.TRUE) == null) {
+                    batch.add(new CacheInvalidation(rs.getString("origin"),
+                            rs.getString("bank_card_number"), rs.getString("user_uid")));
+                }
+            }, from);
+        } catch (RuntimeException e) {
+            log.warn("poll cache invalidations failed: {}", e.getMessage());
+            return;
+        }
+        if (!batch.isEmpty()) {
+            listeners.forEach(listener -> listener.accept(batch));
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purge() {
+        Timestamp before = new Timestamp(now().getTime() - cacheProperties.getInvalidation().getRetention().toMillis());
+        int purged = jdbcTemplate.update("DELETE FROM cache_invalidation WHERE created_at < ?", before);
+        if (purged > 0) {
+            log.debug("purged {} cache invalidations", purged);
+        }
+    }
+
+    private Timestamp now() {
+        return jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", Timestamp.class);
+    }
+}
@@ -2,7 +2,9 @@ package com.org.bank.manage.system.service.convert;
 
 import com.org.bank.manage.system.common.AccountStatus;
 import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.repository.entity.TransferRecord;
 import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.request.TransferRecordVO;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
@@ -51,4 +53,7 @@ public interface BankMangeMapper {
             @Mapping(target = "userId", source = "bankAccount.userUid")
     })
     CreateBankAccountVO entityToVO(BankAccount bankAccount, String amountStr);
+
+    @Mapping(target = "amount", source = "amountStr")
+    TransferRecordVO recordToVO(TransferRecord transferRecord, String amountStr);
 }
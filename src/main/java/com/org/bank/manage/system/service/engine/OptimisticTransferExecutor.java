@@ -0,0 +1,153 @@
+package com.org.bank.manage.system.service.engine;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.TransferProperties;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.projection.AccountBalanceView;
+import com.org.bank.manage.system.request.BankTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 乐观并发转账（bank.transfer.mode=optimistic 时启用）。
+ * <p>
+ * 转出方用 "版本号未变且余额充足" 的条件更新扣款，冲突时带随机抖动指数退避后重新读取快照重试；
+ * 转入方用增量更新入账。每次尝试的扣款、入账与调用方的回调在一个短事务内执行，任一步失败整体回滚，
+ * 因此在 READ COMMITTED 隔离级别下也不会丢失更新；重试循环与退避等待在事务之外，等待期间不占用数据库连接。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.transfer", name = "mode", havingValue = "optimistic")
+public class OptimisticTransferExecutor {
+
+    @Autowired
+    TransferProperties transferProperties;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    private TransferConflictStats stats;
+
+    private TransactionTemplate attemptTemplate;
+
+    @PostConstruct
+    public void init() {
+        attemptTemplate = new TransactionTemplate(transactionManager);
+        stats = new TransferConflictStats(transferProperties.getOptimistic().getMaxTrackedCards());
+        if (meterRegistry != null) {
+            FunctionCounter.builder("bank.transfer.optimistic.conflicts", stats,
+                    TransferConflictStats::getConflicts).register(meterRegistry);
+            FunctionCounter.builder("bank.transfer.optimistic.retries", stats,
+                    TransferConflictStats::getRetries).register(meterRegistry);
+            FunctionCounter.builder("bank.transfer.optimistic.exhausted", stats,
+                    TransferConflictStats::getExhausted).register(meterRegistry);
+        }
+    }
+
+    public TransferConflictStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 需在事务之外调用，否则退避等待仍在调用方的事务内
+     *
+     * @param inTransaction 扣款成功的那次尝试在同一事务内执行的回调（写流水、日志等），抛出异常时该次扣款与入账一起回滚
+     */
+    public BaseResponse<?> transfer(BankTransferVO bankTransferVO, Runnable inTransaction) {
+        String sendBankCardNumber = bankTransferVO.getSendBankCardNumber();
+        String receiveBankCardNumber = bankTransferVO.getReceiveBankCardNumber();
+        BigDecimal amount = bankTransferVO.getAmount();
+
+        AccountBalanceView sender = loadSender(bankTransferVO);
+        Optional<AccountBalanceView> receiver =
+                bankAccountRepository.findBalanceView(receiveBankCardNumber);
+        if (!receiver.isPresent()) {
+            throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS, "账户" + receiveBankCardNumber + "不存在");
+        }
+        if (!receiver.get().getAccountHolderName()
+                .equals(bankTransferVO.getReceiveAccountHolderName().trim())) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "入账的账户名不正确");
+        }
+
+        TransferProperties.Optimistic retry = transferProperties.getOptimistic();
+        for (int attempt = 1; ; attempt++) {
+            Long version = sender.getVersion();
+            boolean transferred = Boolean.TRUE.equals(attemptTemplate.execute(status -> {
+                if (bankAccountRepository.debitIfUnchanged(amount, version,
+                        LocalDateTime.now(), sendBankCardNumber) != 1) {
+                    return false;
+                }
+                if (bankAccountRepository.credit(amount, LocalDateTime.now(), receiveBankCardNumber) != 1) {
+                    // 入账方在读取后被删除，抛出异常使本次扣款回滚
+                    throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS, "账户" + receiveBankCardNumber + "不存在");
+                }
+                inTransaction.run();
+                return true;
+            }));
+            if (transferred) {
+                return ResultUtils.success("transfer cash successfully");
+            }
+            stats.recordConflict(sendBankCardNumber);
+            if (attempt >= retry.getMaxAttempts()) {
+                stats.recordExhausted();
+                throw new BusinessException(ErrorCode.TRANSFER_CONFLICT,
+                        "账户" + sendBankCardNumber + "并发修改频繁，请稍后重试");
+            }
+            stats.recordRetry(sendBankCardNumber);
+            backoff(attempt, retry);
+            sender = loadSender(bankTransferVO);
+        }
+    }
+
+    /**
+     * 读取转出方最新快照并校验，余额不足等业务错误不重试
+     */
+    private AccountBalanceView loadSender(BankTransferVO bankTransferVO) {
+        String sendBankCardNumber = bankTransferVO.getSendBankCardNumber();
+        Optional<AccountBalanceView> sender = bankAccountRepository.findBalanceView(sendBankCardNumber);
+        if (!sender.isPresent()) {
+            throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS, "账户" + sendBankCardNumber + "不存在");
+        }
+        if (!sender.get().getAccountHolderName().equals(bankTransferVO.getSendAccountHolderName().trim())) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转账出的账户名不正确");
+        }
+        if (sender.get().getBalance().compareTo(bankTransferVO.getAmount()) < 0) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转账出的余额不足");
+        }
+        return sender.get();
+    }
+
+    private void backoff(int attempt, TransferProperties.Optimistic retry) {
+        long cap = Math.min(retry.getMaxBackoffMs(), retry.getInitialBackoffMs() << Math.min(attempt - 1, 20));
+        long sleepMs = cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.TRANSFER_CONFLICT, "转账重试被中断");
+        }
+    }
+}
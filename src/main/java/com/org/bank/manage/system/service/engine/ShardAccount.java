@@ -0,0 +1,29 @@
+package com.org.bank.manage.system.service.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 分片内存余额表中的一行
+ *
+ * @author tucker
+ */
+@Data
+@AllArgsConstructor
+class ShardAccount {
+
+    private Long id;
+
+    private String bankCardNumber;
+
+    private String accountHolderName;
+
+    private BigDecimal balance;
+
+    /**
+     * 加载或最近一次写库后的版本号，写库时按它做条件更新
+     */
+    private Long version;
+}
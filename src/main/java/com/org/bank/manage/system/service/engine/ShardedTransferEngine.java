@@ -0,0 +1,295 @@
+package com.org.bank.manage.system.service.engine;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.JournalProperties;
+import com.org.bank.manage.system.config.TransferProperties;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.request.BankTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.history.TransferRecordWriter;
+import com.org.bank.manage.system.service.journal.JournalEntry;
+import com.org.bank.manage.system.service.journal.TransferJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 按卡号哈希分片的单写线程转账引擎（bank.transfer.mode=sharded 时启用）。
+ * <p>
+ * 同分片转账由该分片线程一次完成；跨分片转账走显式两阶段交接：
+ * 转出分片预扣（PREPARE）-> 转入分片入账（CREDIT）-> 转出分片确认（COMMIT）或退回（ABORT）。
+ * 每个阶段先写分片日志再改余额，余额与流水在该阶段的同一个事务中写库，启动时根据日志处理悬而未决的转账。
+ * <p>
+ * 分片持有内存余额，引擎之外修改余额（更新、删除、批量转账）前先通过 {@link #fence} 让涉及的分片停下，
+ * 修改所在事务结束后分片丢弃这些账户的内存余额再继续；写库按版本号做条件更新，其他节点等情况下余额过期时重新加载后重试一次。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.transfer", name = "mode", havingValue = "sharded")
+public class ShardedTransferEngine {
+
+    @Autowired
+    TransferProperties transferProperties;
+
+    @Autowired
+    JournalProperties journalProperties;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TransferRecordWriter transferRecordWriter;
+
+    /**
+     * 余额过期时重新加载后的最多尝试次数
+     */
+    private static final int MAX_ATTEMPTS = 2;
+
+    private TransferShard[] shards;
+
+    @PostConstruct
+    public void start() {
+        int shardCount = Math.max(1, transferProperties.getShards());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        shards = new TransferShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            TransferJournal journal = new TransferJournal(Paths.get(transferProperties.getJournalDir(), "shard-" + i),
+                    (int) journalProperties.getSegmentSize().toBytes(), journalProperties.getRetainedSegments());
+            shards[i] = new TransferShard(i, transferProperties.getShardQueueCapacity(), journal,
+                    bankAccountRepository, transactionTemplate, transferRecordWriter);
+        }
+        recover();
+        log.info("sharded transfer engine started with {} shards", shardCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (TransferShard shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    public BaseResponse<?> transfer(BankTransferVO bankTransferVO) {
+        // 同一账户的两次条件写库版本号冲突，日志中也会记下加上金额后的余额，在进入分片之前拒绝
+        if (bankTransferVO.getSendBankCardNumber().equals(bankTransferVO.getReceiveBankCardNumber())) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转出与转入不能是同一账户");
+        }
+        for (int attempt = 1; ; attempt++) {
+            String txId = UUID.randomUUID().toString();
+            try {
+                await(submit(txId, bankTransferVO), txId);
+                return ResultUtils.success("transfer cash successfully");
+            } catch (TransferShard.StaleAccountException e) {
+                // 分片已丢弃过期的内存余额，重新加载后再试一次
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Void> submit(String txId, BankTransferVO bankTransferVO) {
+        String sendBankCardNumber = bankTransferVO.getSendBankCardNumber();
+        String receiveBankCardNumber = bankTransferVO.getReceiveBankCardNumber();
+        BigDecimal amount = bankTransferVO.getAmount();
+        TransferShard from = shardOf(sendBankCardNumber);
+        TransferShard to = shardOf(receiveBankCardNumber);
+
+        if (from == to) {
+            return from.submit(() -> from.transferLocal(txId,
+                    sendBankCardNumber, bankTransferVO.getSendAccountHolderName(),
+                    receiveBankCardNumber, bankTransferVO.getReceiveAccountHolderName(), amount));
+        }
+        // 各阶段通过 future 串联，调用方超时返回后交接流程仍会走完
+        return from.submit(() -> from.prepareDebit(txId, sendBankCardNumber,
+                        bankTransferVO.getSendAccountHolderName(), receiveBankCardNumber, amount))
+                .thenCompose(prepared -> to.submit(() -> to.credit(txId, receiveBankCardNumber,
+                                bankTransferVO.getReceiveAccountHolderName(), sendBankCardNumber, amount))
+                            .handle((credited, creditError) -> creditError))
+                .thenCompose(creditError -> {
+                    if (creditError == null) {
+                        return from.submit(() -> from.commitDebit(txId));
+                    }
+                    return from.submit(() -> from.abortDebit(txId))
+                            .thenCompose(aborted -> CompletableFuture.<Void>failedFuture(creditError));
+                });
+    }
+
+    /**
+     * 在引擎之外修改这些账户的余额前调用：按下标升序让涉及的分片依次停下，保证任意两个调用的顺序一致，不会互相等待。
+     * 当前线程存在事务同步时，分片在事务完成后丢弃这些账户的内存余额并继续，返回句柄的 close 不做任何事；
+     * 否则由调用方通过 try-with-resources 释放
+     */
+    public Fence fence(Collection<String> bankCardNumbers) {
+        Map<TransferShard, List<String>> byShard = new TreeMap<>(Comparator.comparingInt(TransferShard::getIndex));
+        for (String bankCardNumber : bankCardNumbers) {
+            byShard.computeIfAbsent(shardOf(bankCardNumber), shard -> new ArrayList<>()).add(bankCardNumber);
+        }
+        Fence fence = new Fence();
+        try {
+            for (Map.Entry<TransferShard, List<String>> entry : byShard.entrySet()) {
+                entry.getKey().hold(entry.getValue(), fence.released, transferProperties.getFenceTimeoutMs())
+                        .get(transferProperties.getTimeoutMs(), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fence.release();
+            throw new BusinessException(ErrorCode.TRANSFER_BUSY, "等待转账分片被中断");
+        } catch (TimeoutException e) {
+            fence.release();
+            throw new BusinessException(ErrorCode.TRANSFER_BUSY, "账户" + String.join(",", bankCardNumbers)
+                    + "所在的转账分片繁忙，请稍后重试");
+        } catch (ExecutionException e) {
+            fence.release();
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                    : new BusinessException(ErrorCode.SYSTEM_ERROR, String.valueOf(e.getCause()));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            fence.deferred = true;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    fence.release();
+                }
+            });
+        }
+        return fence;
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    TransferShard shardOf(String bankCardNumber) {
+        int h = bankCardNumber.hashCode();
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
+
+    private void await(CompletableFuture<Void> result, String txId) {
+        try {
+            result.get(transferProperties.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.TRANSFER_TIMEOUT, "转账" + txId + "处理中断");
+        } catch (TimeoutException e) {
+            throw new BusinessException(ErrorCode.TRANSFER_TIMEOUT, "转账" + txId + "处理超时，结果以日志为准");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, String.valueOf(cause));
+        }
+    }
+
+    /**
+     * 处理上次停机时悬而未决的跨分片转账：
+     * 转入方已入账则确认预扣，否则退回，并把涉及账户按日志中最后的余额写回数据库。
+     * CREDIT 在入账事务提交之前写日志，日志中有 CREDIT 不代表已入账，以数据库中转入方的流水为准
+     */
+    private void recover() {
+        List<List<JournalEntry>> journals = new ArrayList<>();
+        Map<String, String> creditedCards = new HashMap<>();
+        for (TransferShard shard : shards) {
+            List<JournalEntry> entries = shard.readJournal();
+            journals.add(entries);
+            Set<String> abortedCredits = new HashSet<>();
+            for (JournalEntry entry : entries) {
+                if (JournalEntry.ABORT.equals(entry.getPhase())) {
+                    abortedCredits.add(entry.getTxId() + "/" + entry.getBankCardNumber());
+                }
+            }
+            for (JournalEntry entry : entries) {
+                if (JournalEntry.CREDIT.equals(entry.getPhase())
+                        && !abortedCredits.contains(entry.getTxId() + "/" + entry.getBankCardNumber())) {
+                    creditedCards.put(entry.getTxId(), entry.getBankCardNumber());
+                }
+            }
+        }
+        for (int i = 0; i < shards.length; i++) {
+            Map<String, JournalEntry> inDoubt = new HashMap<>();
+            Map<String, BigDecimal> lastBalance = new HashMap<>();
+            for (JournalEntry entry : journals.get(i)) {
+                lastBalance.put(entry.getBankCardNumber(), entry.getBalance());
+                if (JournalEntry.PREPARE.equals(entry.getPhase())) {
+                    inDoubt.put(entry.getTxId(), entry);
+                } else if (JournalEntry.COMMIT.equals(entry.getPhase())
+                        || JournalEntry.ABORT.equals(entry.getPhase())) {
+                    inDoubt.remove(entry.getTxId());
+                }
+            }
+            for (JournalEntry prepare : inDoubt.values()) {
+                String bankCardNumber = prepare.getBankCardNumber();
+                BigDecimal balance = lastBalance.get(bankCardNumber);
+                String phase = JournalEntry.COMMIT;
+                String receiver = creditedCards.get(prepare.getTxId());
+                if (receiver == null || !transferRecordWriter.hasLeg(prepare.getTxId(), receiver)) {
+                    balance = balance.add(prepare.getAmount());
+                    phase = JournalEntry.ABORT;
+                }
+                shards[i].appendJournal(new JournalEntry(prepare.getTxId(), phase, bankCardNumber,
+                        prepare.getAmount(), balance, System.currentTimeMillis()));
+                shards[i].recoverDebit(prepare.getTxId(), bankCardNumber, balance,
+                        JournalEntry.ABORT.equals(phase));
+                lastBalance.put(bankCardNumber, balance);
+                log.warn("recovered in-doubt transfer {} on shard {} as {}", prepare.getTxId(), i, phase);
+            }
+        }
+    }
+
+    /**
+     * 停下的分片，释放后各分片丢弃相关账户的内存余额再继续
+     */
+    public static final class Fence implements AutoCloseable {
+
+        private final CompletableFuture<Void> released = new CompletableFuture<>();
+
+        private boolean deferred;
+
+        @Override
+        public void close() {
+            if (!deferred) {
+                release();
+            }
+        }
+
+        private void release() {
+            released.complete(null);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.org.bank.manage.system.service.engine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 乐观转账的冲突 / 重试计数，按卡号统计，跟踪的卡数有上限。
+ * 超过上限时按访问频率淘汰最冷的卡，之后才变热的卡仍能被跟踪
+ *
+ * @author tucker
+ */
+public class TransferConflictStats {
+
+    private final Cache<String, CardCounters> perCard;
+
+    private final LongAdder conflicts = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    public TransferConflictStats(int maxTrackedCards) {
+        // 淘汰在记录冲突的线程上完成，不占用公共线程池
+        this.perCard = Caffeine.newBuilder()
+                .maximumSize(maxTrackedCards)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    public void recordConflict(String bankCardNumber) {
+        conflicts.increment();
+        perCard.get(bankCardNumber, k -> new CardCounters()).conflicts.increment();
+    }
+
+    public void recordRetry(String bankCardNumber) {
+        retries.increment();
+        perCard.get(bankCardNumber, k -> new CardCounters()).retries.increment();
+    }
+
+    public void recordExhausted() {
+        exhausted.increment();
+    }
+
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * 冲突次数最多的前 top 张卡
+     */
+    public Map<String, Map<String, Long>> topCards(int top) {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        perCard.asMap().entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, CardCounters> e) -> e.getValue().conflicts.sum()).reversed())
+                .limit(top)
+                .forEach(e -> {
+                    Map<String, Long> counters = new LinkedHashMap<>();
+                    counters.put("conflicts", e.getValue().conflicts.sum());
+                    counters.put("retries", e.getValue().retries.sum());
+                    result.put(e.getKey(), counters);
+                });
+        return result;
+    }
+
+    private static class CardCounters {
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+    }
+}
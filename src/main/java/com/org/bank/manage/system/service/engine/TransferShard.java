@@ -0,0 +1,354 @@
+package com.org.bank.manage.system.service.engine;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.service.history.TransferRecordWriter;
+import com.org.bank.manage.system.service.journal.JournalEntry;
+import com.org.bank.manage.system.service.journal.TransferJournal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 单个转账分片：一个工作线程独占该分片内账户的内存余额表和日志，
+ * 所有状态只在工作线程内读写，因此同一账户上的操作天然串行，无需数据库行锁。
+ * <p>
+ * 余额按加载时的版本号条件写库，流水与余额在同一个事务中写入；版本号不一致说明账户在引擎之外被修改过，
+ * 丢弃内存中的账户并抛出 {@link StaleAccountException}，由引擎重新加载后重试。
+ *
+ * @author tucker
+ */
+@Slf4j
+class TransferShard {
+
+    private final int index;
+
+    private final ThreadPoolExecutor worker;
+
+    private final TransferJournal journal;
+
+    private final BankAccountRepository bankAccountRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransferRecordWriter transferRecordWriter;
+
+    /**
+     * 内存余额表，仅工作线程访问
+     */
+    private final Map<String, ShardAccount> accounts = new HashMap<>();
+
+    /**
+     * 退回预扣时遇到版本号不一致，重新加载后最多尝试的次数
+     */
+    private static final int MAX_REFUND_ATTEMPTS = 3;
+
+    /**
+     * 已预扣但尚未提交的跨分片转出，txId -> PREPARE 记录，仅工作线程访问
+     */
+    private final Map<String, JournalEntry> pendingDebits = new HashMap<>();
+
+    TransferShard(int index, int queueCapacity, TransferJournal journal,
+                  BankAccountRepository bankAccountRepository,
+                  TransactionTemplate transactionTemplate,
+                  TransferRecordWriter transferRecordWriter) {
+        this.index = index;
+        this.journal = journal;
+        this.bankAccountRepository = bankAccountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.transferRecordWriter = transferRecordWriter;
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory("transfer-shard-" + index + "-", false));
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * 提交任务到分片工作线程，队列满时快速失败
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, worker);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new BusinessException(ErrorCode.TRANSFER_BUSY, "分片" + index + "繁忙，请稍后重试"));
+        }
+    }
+
+    /**
+     * 同分片转账：两个账户都归本分片所有，一次完成
+     */
+    Void transferLocal(String txId, String sendBankCardNumber, String sendAccountHolderName,
+                       String receiveBankCardNumber, String receiveAccountHolderName,
+                       BigDecimal amount) {
+        ShardAccount sender = requireAccount(sendBankCardNumber);
+        checkHolder(sender, sendAccountHolderName, "转账出的账户名不正确");
+        if (sender.getBalance().compareTo(amount) < 0) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转账出的余额不足");
+        }
+        ShardAccount receiver = requireAccount(receiveBankCardNumber);
+        checkHolder(receiver, receiveAccountHolderName, "入账的账户名不正确");
+
+        BigDecimal balanceRemained = sender.getBalance().subtract(amount);
+        BigDecimal balanceAdded = receiver.getBalance().add(amount);
+        long now = System.currentTimeMillis();
+        // 双方的变动作为一组写日志，只刷一次盘
+        journal.appendAll(List.of(
+                new JournalEntry(txId, JournalEntry.TRANSFER, sendBankCardNumber,
+                        amount.negate(), balanceRemained, now),
+                new JournalEntry(txId, JournalEntry.TRANSFER, receiveBankCardNumber,
+                        amount, balanceAdded, now)));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                persist(sender, balanceRemained);
+                persist(receiver, balanceAdded);
+                transferRecordWriter.record(txId, sendBankCardNumber, receiveBankCardNumber, amount);
+            });
+        } catch (RuntimeException e) {
+            long abortedAt = System.currentTimeMillis();
+            journal.appendAll(List.of(
+                    new JournalEntry(txId, JournalEntry.ABORT, sendBankCardNumber,
+                            amount.negate(), sender.getBalance(), abortedAt),
+                    new JournalEntry(txId, JournalEntry.ABORT, receiveBankCardNumber,
+                            amount, receiver.getBalance(), abortedAt)));
+            throw e;
+        }
+        applied(sender, balanceRemained);
+        applied(receiver, balanceAdded);
+        return null;
+    }
+
+    /**
+     * 跨分片第一阶段：校验并预扣转出方余额，预扣后的余额与转出方流水立即写库
+     */
+    Void prepareDebit(String txId, String bankCardNumber, String accountHolderName,
+                      String counterpartyCardNumber, BigDecimal amount) {
+        ShardAccount sender = requireAccount(bankCardNumber);
+        checkHolder(sender, accountHolderName, "转账出的账户名不正确");
+        if (sender.getBalance().compareTo(amount) < 0) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转账出的余额不足");
+        }
+        BigDecimal balanceRemained = sender.getBalance().subtract(amount);
+        JournalEntry prepare = new JournalEntry(txId, JournalEntry.PREPARE, bankCardNumber,
+                amount, balanceRemained, System.currentTimeMillis());
+        journal.append(prepare);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                persist(sender, balanceRemained);
+                transferRecordWriter.recordLeg(txId, bankCardNumber, counterpartyCardNumber, amount.negate());
+            });
+        } catch (RuntimeException e) {
+            journal.append(new JournalEntry(txId, JournalEntry.ABORT, bankCardNumber,
+                    amount, sender.getBalance(), System.currentTimeMillis()));
+            throw e;
+        }
+        applied(sender, balanceRemained);
+        pendingDebits.put(txId, prepare);
+        return null;
+    }
+
+    /**
+     * 跨分片第二阶段：转入方入账，余额与转入方流水写库
+     */
+    Void credit(String txId, String bankCardNumber, String accountHolderName,
+                String counterpartyCardNumber, BigDecimal amount) {
+        ShardAccount receiver = requireAccount(bankCardNumber);
+        checkHolder(receiver, accountHolderName, "入账的账户名不正确");
+        BigDecimal balanceAdded = receiver.getBalance().add(amount);
+        journal.append(new JournalEntry(txId, JournalEntry.CREDIT, bankCardNumber,
+                amount, balanceAdded, System.currentTimeMillis()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                persist(receiver, balanceAdded);
+                transferRecordWriter.recordLeg(txId, bankCardNumber, counterpartyCardNumber, amount);
+            });
+        } catch (RuntimeException e) {
+            journal.append(new JournalEntry(txId, JournalEntry.ABORT, bankCardNumber,
+                    amount, receiver.getBalance(), System.currentTimeMillis()));
+            throw e;
+        }
+        applied(receiver, balanceAdded);
+        return null;
+    }
+
+    /**
+     * 跨分片第三阶段（成功）：预扣转为正式扣款，余额已在第一阶段写库
+     */
+    Void commitDebit(String txId) {
+        JournalEntry prepare = pendingDebits.remove(txId);
+        if (prepare == null) {
+            return null;
+        }
+        ShardAccount sender = requireAccount(prepare.getBankCardNumber());
+        journal.append(new JournalEntry(txId, JournalEntry.COMMIT, prepare.getBankCardNumber(),
+                prepare.getAmount(), sender.getBalance(), System.currentTimeMillis()));
+        return null;
+    }
+
+    /**
+     * 跨分片第三阶段（失败）：退回转出方预扣并删除转出方流水。
+     * 退回是增量的，账户在预扣之后被引擎外修改过时重新加载余额再退回
+     */
+    Void abortDebit(String txId) {
+        JournalEntry prepare = pendingDebits.remove(txId);
+        if (prepare == null) {
+            return null;
+        }
+        String bankCardNumber = prepare.getBankCardNumber();
+        for (int attempt = 1; ; attempt++) {
+            ShardAccount sender = requireAccount(bankCardNumber);
+            BigDecimal restored = sender.getBalance().add(prepare.getAmount());
+            journal.append(new JournalEntry(txId, JournalEntry.ABORT, bankCardNumber,
+                    prepare.getAmount(), restored, System.currentTimeMillis()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    persist(sender, restored);
+                    transferRecordWriter.deleteLeg(txId, bankCardNumber);
+                });
+            } catch (StaleAccountException e) {
+                if (attempt >= MAX_REFUND_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            applied(sender, restored);
+            return null;
+        }
+    }
+
+    /**
+     * 让工作线程停在当前位置，直到 released 完成或超过 maxHoldMs，返回的 future 在线程停下时完成；
+     * 继续处理之前丢弃给定账户的内存余额，之后的转账从数据库重新加载
+     */
+    CompletableFuture<Void> hold(Collection<String> bankCardNumbers, CompletableFuture<Void> released,
+                                 long maxHoldMs) {
+        CompletableFuture<Void> held = new CompletableFuture<>();
+        try {
+            worker.execute(() -> {
+                held.complete(null);
+                try {
+                    released.get(maxHoldMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // 版本号条件更新兜底，提前继续最多让后续转账冲突后重新加载
+                    log.warn("transfer shard {} resumed after holding for {} ms", index, maxHoldMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // released 只会正常完成
+                }
+                bankCardNumbers.forEach(accounts::remove);
+            });
+        } catch (RejectedExecutionException e) {
+            held.completeExceptionally(
+                    new BusinessException(ErrorCode.TRANSFER_BUSY, "分片" + index + "繁忙，请稍后重试"));
+        }
+        return held;
+    }
+
+    /**
+     * 启动时处理悬而未决的预扣：按日志中的余额写库（此时还没有转账在处理，不做版本号校验），
+     * 退回时同时删除转出方流水
+     */
+    void recoverDebit(String txId, String bankCardNumber, BigDecimal balance, boolean aborted) {
+        transactionTemplate.executeWithoutResult(status -> {
+            bankAccountRepository.updateBankAccountBalance(balance, LocalDateTime.now(), bankCardNumber);
+            if (aborted) {
+                transferRecordWriter.deleteLeg(txId, bankCardNumber);
+            }
+        });
+    }
+
+    List<JournalEntry> readJournal() {
+        return journal.readAll();
+    }
+
+    void appendJournal(JournalEntry entry) {
+        journal.append(entry);
+    }
+
+    void shutdown() {
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("transfer shard {} did not drain in time", index);
+                worker.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            worker.shutdownNow();
+        }
+        journal.close();
+    }
+
+    private ShardAccount requireAccount(String bankCardNumber) {
+        ShardAccount account = accounts.get(bankCardNumber);
+        if (account != null) {
+            return account;
+        }
+        Optional<BankAccount> bankAccountOptional =
+                bankAccountRepository.findByBankCardNumber(bankCardNumber);
+        if (!bankAccountOptional.isPresent()) {
+            throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS, "账户" + bankCardNumber + "不存在");
+        }
+        BankAccount bankAccount = bankAccountOptional.get();
+        account = new ShardAccount(bankAccount.getId(), bankAccount.getBankCardNumber(),
+                bankAccount.getAccountHolderName(), bankAccount.getBalance(), bankAccount.getVersion());
+        accounts.put(bankCardNumber, account);
+        return account;
+    }
+
+    /**
+     * 在当前事务中按版本号写余额；版本号不一致时丢弃内存中的账户，事务回滚后由调用方重新加载
+     */
+    private void persist(ShardAccount account, BigDecimal balance) {
+        if (bankAccountRepository.updateBalanceIfUnchanged(account.getId(), balance, account.getVersion()) != 1) {
+            accounts.remove(account.getBankCardNumber());
+            throw new StaleAccountException(account.getBankCardNumber());
+        }
+    }
+
+    /**
+     * 写库的事务提交后更新内存中的余额与版本号
+     */
+    private void applied(ShardAccount account, BigDecimal balance) {
+        account.setBalance(balance);
+        account.setVersion(account.getVersion() + 1);
+    }
+
+    private void checkHolder(ShardAccount account, String accountHolderName, String message) {
+        if (!account.getAccountHolderName().equals(accountHolderName.trim())) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, message);
+        }
+    }
+
+    /**
+     * 账户在引擎之外被修改（其他节点或直接改库），内存中的余额已过期
+     */
+    static final class StaleAccountException extends BusinessException {
+
+        StaleAccountException(String bankCardNumber) {
+            super(ErrorCode.TRANSFER_CONFLICT, "账户" + bankCardNumber + "已被修改，请重试");
+        }
+    }
+}
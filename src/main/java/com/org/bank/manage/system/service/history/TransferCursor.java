@@ -0,0 +1,45 @@
+package com.org.bank.manage.system.service.history;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.repository.entity.TransferRecord;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 流水分页游标：上一页最后一条的 (created_at, id)，对外编码为不透明的 base64url 字符串
+ *
+ * @author tucker
+ */
+@Getter
+@AllArgsConstructor
+public class TransferCursor {
+
+    private final LocalDateTime createdAt;
+
+    private final Long id;
+
+    public static TransferCursor of(TransferRecord transferRecord) {
+        return new TransferCursor(transferRecord.getCreatedAt(), transferRecord.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransferCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new TransferCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "无效的游标" + cursor);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.org.bank.manage.system.service.history;
+
+import com.org.bank.manage.system.request.BankTransferVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 写转账流水：每笔转账两行，在调用方事务内用 JDBC 批量插入
+ *
+ * @author tucker
+ */
+@Component
+public class TransferRecordWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO transfer_record " +
+            "(tx_id, bank_card_number, counterparty_card_number, amount, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String DELETE_SQL = "DELETE FROM transfer_record WHERE tx_id = ? AND bank_card_number = ?";
+
+    private static final String COUNT_LEG_SQL =
+            "SELECT COUNT(*) FROM transfer_record WHERE tx_id = ? AND bank_card_number = ?";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    public void record(String txId, String sendBankCardNumber, String receiveBankCardNumber, BigDecimal amount) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(2);
+        addRows(rows, txId, sendBankCardNumber, receiveBankCardNumber, amount, now);
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * 批量转账的每一笔各自生成流水号
+     */
+    public void recordAll(List<BankTransferVO> transfers) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(transfers.size() * 2);
+        for (BankTransferVO transfer : transfers) {
+            addRows(rows, UUID.randomUUID().toString(), transfer.getSendBankCardNumber(),
+                    transfer.getReceiveBankCardNumber(), transfer.getAmount(), now);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * 跨分片转账：双方的流水分别在各自分片的事务中写入，这里只写一方
+     */
+    public void recordLeg(String txId, String bankCardNumber, String counterpartyCardNumber, BigDecimal amount) {
+        jdbcTemplate.update(INSERT_SQL, txId, bankCardNumber, counterpartyCardNumber, amount,
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 跨分片转账入账失败、退回转出方时删除转出方的流水
+     */
+    public void deleteLeg(String txId, String bankCardNumber) {
+        jdbcTemplate.update(DELETE_SQL, txId, bankCardNumber);
+    }
+
+    /**
+     * 跨分片转账的一方是否已写过流水，入账据此保证同一流水号只入账一次
+     */
+    public boolean hasLeg(String txId, String bankCardNumber) {
+        Long count = jdbcTemplate.queryForObject(COUNT_LEG_SQL, Long.class, txId, bankCardNumber);
+        return count != null && count > 0;
+    }
+
+    private void addRows(List<Object[]> rows, String txId, String sendBankCardNumber,
+                         String receiveBankCardNumber, BigDecimal amount, Timestamp now) {
+        rows.add(new Object[]{txId, sendBankCardNumber, receiveBankCardNumber, amount.negate(), now});
+        rows.add(new Object[]{txId, receiveBankCardNumber, sendBankCardNumber, amount, now});
+    }
+}
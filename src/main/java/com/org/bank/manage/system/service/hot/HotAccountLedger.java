@@ -0,0 +1,182 @@
+package com.org.bank.manage.system.service.hot;
+
+import com.org.bank.manage.system.config.HotAccountProperties;
+import com.org.bank.manage.system.repository.AccountSlotRepository;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.AccountSlot;
+import com.org.bank.manage.system.service.lock.AccountLockManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * 热点账户子余额槽（bank.hot-account.enabled=true 时启用）。
+ * <p>
+ * 配置的热点账户额外拥有 N 个子余额槽，转入时随机挑一个槽做增量更新，
+ * 不锁主账户行，也不占用该卡号的进程内分段锁，大量并发转入分散到 N 行上。
+ * 扣款、修改、删除前先把所有槽归并回主余额；查询余额时加上槽余额之和；定时任务周期性归并。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.hot-account", name = "enabled", havingValue = "true")
+public class HotAccountLedger {
+
+    @Autowired
+    HotAccountProperties hotAccountProperties;
+
+    @Autowired
+    AccountSlotRepository accountSlotRepository;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    AccountLockManager accountLockManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    private Set<String> hotCards;
+
+    private Counter slotCredits;
+
+    private Counter folds;
+
+    @PostConstruct
+    public void init() {
+        hotCards = new HashSet<>(hotAccountProperties.getCards());
+        if (meterRegistry != null) {
+            slotCredits = Counter.builder("bank.hot-account.slot.credits").register(meterRegistry);
+            folds = Counter.builder("bank.hot-account.folds").register(meterRegistry);
+        }
+    }
+
+    public boolean isHot(String bankCardNumber) {
+        return hotCards.contains(bankCardNumber);
+    }
+
+    /**
+     * 为热点账户创建子余额槽，需在调用方事务内执行
+     */
+    public void provision(String bankCardNumber) {
+        if (!isHot(bankCardNumber) || accountSlotRepository.countByBankCardNumber(bankCardNumber) > 0) {
+            return;
+        }
+        for (int i = 0; i < hotAccountProperties.getSlots(); i++) {
+            accountSlotRepository.save(new AccountSlot(null, bankCardNumber, i, BigDecimal.ZERO));
+        }
+    }
+
+    /**
+     * 转入到随机的一个槽；槽尚未创建时退回到主账户增量入账
+     *
+     * @return 是否入账成功（主账户不存在时为 false）
+     */
+    public boolean credit(String bankCardNumber, BigDecimal amount) {
+        int slotNo = ThreadLocalRandom.current().nextInt(hotAccountProperties.getSlots());
+        if (accountSlotRepository.credit(amount, bankCardNumber, slotNo) == 1) {
+            if (slotCredits != null) {
+                slotCredits.increment();
+            }
+            return true;
+        }
+        return bankAccountRepository.credit(amount, LocalDateTime.now(), bankCardNumber) == 1;
+    }
+
+    /**
+     * 把所有槽归并回主余额，需在调用方事务内、持有该卡号分段锁时执行
+     */
+    public void fold(String bankCardNumber) {
+        if (!isHot(bankCardNumber)) {
+            return;
+        }
+        List<AccountSlot> slots = accountSlotRepository.findAllForUpdate(bankCardNumber);
+        BigDecimal sum = slots.stream().map(AccountSlot::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (sum.signum() == 0) {
+            return;
+        }
+        accountSlotRepository.clear(bankCardNumber);
+        bankAccountRepository.credit(sum, LocalDateTime.now(), bankCardNumber);
+        if (folds != null) {
+            folds.increment();
+        }
+    }
+
+    /**
+     * 槽余额之和，非热点账户为 0
+     */
+    public BigDecimal slotBalance(String bankCardNumber) {
+        if (!isHot(bankCardNumber)) {
+            return BigDecimal.ZERO;
+        }
+        return accountSlotRepository.sumBalance(bankCardNumber);
+    }
+
+    /**
+     * 批量取槽余额之和，只返回其中的热点账户
+     */
+    public Map<String, BigDecimal> slotBalances(Collection<String> bankCardNumbers) {
+        List<String> hot = bankCardNumbers.stream().filter(this::isHot).collect(Collectors.toList());
+        Map<String, BigDecimal> balances = new HashMap<>();
+        if (hot.isEmpty()) {
+            return balances;
+        }
+        for (Object[] row : accountSlotRepository.sumBalances(hot)) {
+            balances.put((String) row[0], (BigDecimal) row[1]);
+        }
+        return balances;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void provisionExisting() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (String bankCardNumber : hotCards) {
+            if (bankAccountRepository.findByBankCardNumberExisted(bankCardNumber) > 0) {
+                transactionTemplate.executeWithoutResult(status -> provision(bankCardNumber));
+            }
+        }
+        log.info("hot account ledger enabled for {} cards with {} slots each",
+                hotCards.size(), hotAccountProperties.getSlots());
+    }
+
+    @Scheduled(fixedDelayString = "${bank.hot-account.compaction-interval-ms:1000}")
+    public void compact() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (String bankCardNumber : hotCards) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (AccountLockManager.Handle ignored = accountLockManager.lock(bankCardNumber)) {
+                        fold(bankCardNumber);
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.warn("compact hot account {} failed: {}", bankCardNumber, e.getMessage());
+            }
+        }
+    }
+}
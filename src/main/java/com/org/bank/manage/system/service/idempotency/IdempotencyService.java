@@ -0,0 +1,350 @@
+package com.org.bank.manage.system.service.idempotency;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.IdempotencyProperties;
+import com.org.bank.manage.system.repository.IdempotencyRecordRepository;
+import com.org.bank.manage.system.repository.entity.IdempotencyRecord;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.shard.AccountShards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key 去重。
+ * <p>
+ * 执行业务前先在独立事务中按主键插入 PENDING 记录占用 key，插入成功的请求才执行业务，执行完再存入响应；
+ * 业务失败时删除占用，同一个 key 可以重试。占用失败说明其他请求（可能在其他节点上）正在或已经执行，
+ * 同一进程内的并发重复请求直接等待首个请求的结果，其他节点的请求轮询记录直到响应存入，超时返回处理中。
+ * 业务在占用与存入响应之间的任何路径（包括分片引擎与跨分片转账各自提交的事务）都只执行一次；
+ * 业务已提交而响应未存入（进程退出或存入失败）时 key 保持占用，直到按 bank.idempotency.ttl 过期前重试都返回处理中。
+ * 重放只按主键读取幂等表，不访问账户表。记录按 bank.idempotency.max-records 限制总量。
+ * 启用分库时记录都写在主库（0 号分片）上。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    /**
+     * 等待其他节点存入响应时的轮询间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL_MS = 50;
+
+    @Autowired
+    IdempotencyProperties idempotencyProperties;
+
+    @Autowired
+    IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    /**
+     * 仅在 bank.sharding.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    AccountShards accountShards;
+
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    private Counter replays;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (meterRegistry != null) {
+            replays = Counter.builder("bank.idempotency.replays").register(meterRegistry);
+        }
+    }
+
+    /**
+     * 按幂等键执行请求，没有幂等键时直接执行
+     *
+     * @param scope          作用域，区分不同接口的同名 key
+     * @param idempotencyKey 客户端传入的 Idempotency-Key
+     * @param request        请求体，用于计算指纹
+     * @param action         实际业务
+     */
+    public BaseResponse<?> execute(String scope, String idempotencyKey, Object request,
+                                   Supplier<BaseResponse<?>> action) {
+        if (!StringUtils.hasText(idempotencyKey)) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "Idempotency-Key 长度不能超过" + MAX_KEY_LENGTH);
+        }
+        String key = scope + ":" + idempotencyKey;
+        String requestHash = fingerprint(request);
+        BaseResponse<?> replay = replay(key, requestHash);
+        if (replay != null) {
+            return replay;
+        }
+
+        InFlight mine = new InFlight(requestHash);
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running, requestHash);
+        }
+        try {
+            BaseResponse<?> response = claimAndExecute(key, requestHash, action);
+            mine.future.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 清理过期记录，并在超出容量时清理最旧的记录
+     */
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge-interval-ms:60000}")
+    public void purge() {
+        onHome(() -> {
+            purgeRecords();
+            return null;
+        });
+    }
+
+    private void purgeRecords() {
+        int expired = idempotencyRecordRepository.deleteCreatedBefore(expiredBefore());
+        int evicted = 0;
+        List<LocalDateTime> oldestKept =
+                idempotencyRecordRepository.findCreatedAtAtOffset(idempotencyProperties.getMaxRecords() - 1);
+        if (!oldestKept.isEmpty()) {
+            evicted = idempotencyRecordRepository.deleteCreatedBefore(oldestKept.get(0));
+        }
+        if (expired + evicted > 0) {
+            log.info("purged {} expired and {} overflowing idempotency records", expired, evicted);
+        }
+    }
+
+    private BaseResponse<?> claimAndExecute(String key, String requestHash, Supplier<BaseResponse<?>> action) {
+        if (!claim(key, requestHash)) {
+            return awaitRecorded(key, requestHash);
+        }
+        BaseResponse<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            try {
+                inTransaction(() -> idempotencyRecordRepository.release(key));
+            } catch (RuntimeException releaseFailure) {
+                log.warn("release idempotency key {} failed, held until it expires: {}", key,
+                        releaseFailure.getMessage());
+            }
+            throw e;
+        }
+        try {
+            String json = toJson(response);
+            inTransaction(() -> idempotencyRecordRepository.complete(key, json));
+        } catch (RuntimeException e) {
+            // 业务已执行，key 保持占用，重试返回处理中而不会再执行一次
+            log.error("store response of idempotency key {} failed, held until it expires", key, e);
+        }
+        return response;
+    }
+
+    /**
+     * 在独立事务中占用 key，过期的旧记录先删除；主键冲突说明已被占用
+     */
+    private boolean claim(String key, String requestHash) {
+        try {
+            inTransaction(() -> {
+                idempotencyRecordRepository.deleteExpired(key, expiredBefore());
+                idempotencyRecordRepository.claim(key, requestHash, LocalDateTime.now());
+                return null;
+            });
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * key 已被其他请求占用：轮询直到响应存入后重放，超时或占用被释放时返回处理中
+     */
+    private BaseResponse<?> awaitRecorded(String key, String requestHash) {
+        long deadline = System.currentTimeMillis() + idempotencyProperties.getInFlightTimeoutMs();
+        while (true) {
+            Optional<IdempotencyRecord> record = find(key);
+            if (!record.isPresent()) {
+                throw new BusinessException(ErrorCode.IDEMPOTENCY_IN_PROGRESS);
+            }
+            checkSameRequest(record.get().getRequestHash(), requestHash);
+            if (IdempotencyRecord.DONE.equals(record.get().getStatus())) {
+                return replayed(record.get());
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new BusinessException(ErrorCode.IDEMPOTENCY_IN_PROGRESS);
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ErrorCode.IDEMPOTENCY_IN_PROGRESS);
+            }
+        }
+    }
+
+    /**
+     * 已存入响应的记录直接重放；没有记录、已过期或仍被占用时返回 null
+     */
+    private BaseResponse<?> replay(String key, String requestHash) {
+        Optional<IdempotencyRecord> record = find(key);
+        if (!record.isPresent() || record.get().getCreatedAt().isBefore(expiredBefore())) {
+            return null;
+        }
+        checkSameRequest(record.get().getRequestHash(), requestHash);
+        if (!IdempotencyRecord.DONE.equals(record.get().getStatus())) {
+            return null;
+        }
+        return replayed(record.get());
+    }
+
+    private BaseResponse<?> replayed(IdempotencyRecord record) {
+        if (replays != null) {
+            replays.increment();
+        }
+        return fromJson(record.getResponse());
+    }
+
+    private Optional<IdempotencyRecord> find(String key) {
+        return onHome(() -> idempotencyRecordRepository.findById(key));
+    }
+
+    /**
+     * 在独立事务中执行，启用分库时先开始事务再路由到主库
+     */
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> onHome(action));
+    }
+
+    /**
+     * 启用分库时在主库上执行
+     */
+    private <T> T onHome(Supplier<T> action) {
+        if (accountShards == null) {
+            return action.get();
+        }
+        try (AccountShards.Scope ignored = accountShards.onShard(AccountShards.HOME)) {
+            return action.get();
+        }
+    }
+
+    private BaseResponse<?> await(InFlight running, String requestHash) {
+        checkSameRequest(running.requestHash, requestHash);
+        try {
+            BaseResponse<?> response =
+                    running.future.get(idempotencyProperties.getInFlightTimeoutMs(), TimeUnit.MILLISECONDS);
+            if (replays != null) {
+                replays.increment();
+            }
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.IDEMPOTENCY_IN_PROGRESS);
+        } catch (TimeoutException e) {
+            throw new BusinessException(ErrorCode.IDEMPOTENCY_IN_PROGRESS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, String.valueOf(cause));
+        }
+    }
+
+    private void checkSameRequest(String recorded, String requestHash) {
+        if (!recorded.equals(requestHash)) {
+            throw new BusinessException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        }
+    }
+
+    private LocalDateTime expiredBefore() {
+        return LocalDateTime.now().minus(idempotencyProperties.getTtl());
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            return DigestUtil.sha256Hex(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, e.getMessage());
+        }
+    }
+
+    private String toJson(BaseResponse<?> response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, e.getMessage());
+        }
+    }
+
+    /**
+     * data 以 JsonNode 还原，序列化结果与首次响应一致
+     */
+    private BaseResponse<?> fromJson(String json) {
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            return new BaseResponse<>(node.path("code").asInt(), node.get("data"),
+                    node.path("message").asText(), node.path("description").asText());
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, e.getMessage());
+        }
+    }
+
+    private static class InFlight {
+
+        private final String requestHash;
+
+        private final CompletableFuture<BaseResponse<?>> future = new CompletableFuture<>();
+
+        private InFlight(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+}
@@ -3,26 +3,57 @@ package com.org.bank.manage.system.service.impl;
 import com.org.bank.manage.system.common.*;
 import com.org.bank.manage.system.common.exception.BusinessException;
 import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.TransferRecordRepository;
+import com.org.bank.manage.system.repository.entity.TransferRecord;
 import com.org.bank.manage.system.repository.entity.BankAccount;
 import com.org.bank.manage.system.request.*;
 import com.org.bank.manage.system.service.BankManageService;
+import com.org.bank.manage.system.service.async.AsyncTransferExecutor;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.cache.CardNumberFilter;
 import com.org.bank.manage.system.service.convert.BankMangeMapper;
+import com.org.bank.manage.system.service.engine.OptimisticTransferExecutor;
+import com.org.bank.manage.system.service.engine.ShardedTransferEngine;
+import com.org.bank.manage.system.service.history.TransferCursor;
+import com.org.bank.manage.system.service.history.TransferRecordWriter;
+import com.org.bank.manage.system.service.hot.HotAccountLedger;
+import com.org.bank.manage.system.service.journal.JournalEntry;
+import com.org.bank.manage.system.service.journal.TransferJournalWriter;
+import com.org.bank.manage.system.service.lock.AccountLockManager;
+import com.org.bank.manage.system.service.paging.AccountCursor;
+import com.org.bank.manage.system.service.replica.ReplicaReads;
+import com.org.bank.manage.system.service.shard.AccountShards;
+import com.org.bank.manage.system.service.shard.CrossShardTransfer;
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.DecimalFormat;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -30,135 +61,419 @@ import java.util.stream.Collectors;
  */
 @Component
 public class BankManageServiceImpl implements BankManageService {
+    private static final int HISTORY_DEFAULT_LIMIT = 20;
+
+    private static final int HISTORY_MAX_LIMIT = 200;
+
+    private static final int ACCOUNT_PAGE_DEFAULT_LIMIT = 20;
+
+    private static final int ACCOUNT_PAGE_MAX_LIMIT = 200;
+
     @Autowired
     BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    AccountLockManager accountLockManager;
+
+    @Autowired
+    AsyncTransferExecutor asyncTransferExecutor;
+
+    @Autowired
+    TransferRecordWriter transferRecordWriter;
+
+    @Autowired
+    TransferRecordRepository transferRecordRepository;
+
+    @Autowired
+    AccountCacheSupport accountCacheSupport;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /**
+     * 经代理调用自身，保证异步执行的转账仍走事务与缓存注解
+     */
+    @Lazy
+    @Autowired
+    BankManageService self;
+
+    /**
+     * 仅在 bank.transfer.mode=sharded 时存在
+     */
+    @Autowired(required = false)
+    ShardedTransferEngine shardedTransferEngine;
+
+    /**
+     * 仅在 bank.transfer.mode=optimistic 时存在
+     */
+    @Autowired(required = false)
+    OptimisticTransferExecutor optimisticTransferExecutor;
+
+    /**
+     * 仅在 bank.journal.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    TransferJournalWriter transferJournalWriter;
+
+    /**
+     * 仅在 bank.hot-account.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    HotAccountLedger hotAccountLedger;
+
+    /**
+     * 仅在 bank.card-filter.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    CardNumberFilter cardNumberFilter;
+
+    /**
+     * 仅在 bank.replica.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    ReplicaReads replicaReads;
+
+    /**
+     * 仅在 bank.sharding.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    AccountShards accountShards;
+
+    /**
+     * 仅在 bank.sharding.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    CrossShardTransfer crossShardTransfer;
+
+    /**
+     * 转账按模式决定事务边界：乐观模式每次尝试一个短事务，其余模式整笔转账一个事务
+     */
+    private TransactionTemplate transferTemplate;
+
+    @PostConstruct
+    public void registerViews() {
+        accountCacheSupport.setDetailView(this::detailView);
+        accountCacheSupport.setPageView(this::listPage);
+        transferTemplate = new TransactionTemplate(transactionManager);
+    }
+
     @Transactional
     @Override
-    @Caching(evict = {
-            @CacheEvict(value = "bankaccounts", allEntries = true),
-            @CacheEvict(value = "bankaccount", key = "#createBankAccountVO.bankCardNumber",
-                    condition = "#createBankAccountVO.bankCardNumber != null")
-    })
     public BaseResponse<?> createBankAccount(CreateBankAccountVO createBankAccountVO) {
-        String bankCardNumber = createBankAccountVO.getBankCardNumber();
-        Long isExisted =
-                bankAccountRepository
-                        .findByBankCardNumberExisted(bankCardNumber);
-        if(isExisted>=1L) {
-            throw new BusinessException(ErrorCode.ACCOUNT_ALREADY_EXISTS);
-        }
-        BankAccount bankAccount =
-                BankMangeMapper.INSTANCE.createVoToEntity(createBankAccountVO,
-                        AccountStatus.ACTIVE);
-        try{
-            this.bankAccountRepository.save(bankAccount);
-        } catch (DataIntegrityViolationException e) {
-            throw new BusinessException(ErrorCode.ACCOUNT_ALREADY_EXISTS);
+        try (AccountShards.Scope shard = userShard(createBankAccountVO.getUserId())) {
+            String bankCardNumber = createBankAccountVO.getBankCardNumber();
+            // 过滤器判定一定不存在时省去查重，详情缓存中有该卡号时一定已存在，唯一约束兜底
+            boolean absent = cardNumberFilter != null && cardNumberFilter.definitelyAbsent(bankCardNumber);
+            if (!absent) {
+                if (accountCacheSupport.detailCached(bankCardNumber)) {
+                    throw new BusinessException(ErrorCode.ACCOUNT_ALREADY_EXISTS,
+                            ErrorCode.ACCOUNT_ALREADY_EXISTS.getDescription(), false);
+                }
+                Long isExisted =
+                        bankAccountRepository
+                                .findByBankCardNumberExisted(bankCardNumber);
+                if(isExisted>=1L) {
+                    throw new BusinessException(ErrorCode.ACCOUNT_ALREADY_EXISTS);
+                }
+            }
+            // 分库时先在目录中占用卡号，其他用户已在别的分片上开过该卡号时拒绝
+            if (accountShards != null && !accountShards.claim(bankCardNumber,
+                    accountShards.shardOfUser(createBankAccountVO.getUserId()))) {
+                throw new BusinessException(ErrorCode.ACCOUNT_ALREADY_EXISTS);
+            }
+            BankAccount bankAccount =
+                    BankMangeMapper.INSTANCE.createVoToEntity(createBankAccountVO,
+                            AccountStatus.ACTIVE);
+            try{
+                if (accountShards != null) {
+                    // 插入语句在范围内执行，否则推迟到提交时刷新，路由已恢复到进入前的分片
+                    this.bankAccountRepository.saveAndFlush(bankAccount);
+                } else {
+                    this.bankAccountRepository.save(bankAccount);
+                }
+            } catch (DataIntegrityViolationException e) {
+                throw new BusinessException(ErrorCode.ACCOUNT_ALREADY_EXISTS);
+            }
+            if (hotAccountLedger != null) {
+                hotAccountLedger.provision(bankCardNumber);
+            }
+            if (cardNumberFilter != null) {
+                cardNumberFilter.added(bankCardNumber);
+            }
+            accountCacheSupport.accountChanged(bankCardNumber);
+            return ResultUtils.success(bankAccount);
         }
-        return ResultUtils.success(bankAccount);
     }
 
     @Transactional
     @Override
-    @Caching(evict = {
-            @CacheEvict(value = "bankaccounts", allEntries = true),
-            @CacheEvict(value = "bankaccount", key = "#editBankAccountReq.bankCardNumber",
-                    condition = "#editBankAccountReq.bankCardNumber != null")
-    })
     public BaseResponse<?> updateBankAccount(UpdateBankAccountVO editBankAccountReq) {
         String bankCardNumber = editBankAccountReq.getBankCardNumber();
-        Optional<BankAccount> bankAccountOptional =
-                bankAccountRepository
-                        .findByBankCardNumber(bankCardNumber);
-        if(bankAccountOptional.isPresent() == false) {
-            throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS);
-        }
-        // 状态校验：仅允许正常状态的账户被修改
-        if(AccountStatus.ACTIVE.equals(bankAccountOptional.get().getStatus()) == false) {
-            throw new BusinessException(ErrorCode.ACCOUNT_STATUS_NOT_ALLOWED);
+        try (AccountShards.Scope shard = cardShard(bankCardNumber);
+             AccountLockManager.Handle ignored = accountLockManager.lock(bankCardNumber);
+             ShardedTransferEngine.Fence fence = fenceShardedBalances(List.of(bankCardNumber))) {
+            // 修改会覆盖主余额，先把热点账户的子余额槽清空；归并会改版本号，需在读取账户之前
+            foldHotAccount(bankCardNumber);
+            Optional<BankAccount> bankAccountOptional =
+                    bankAccountRepository
+                            .loadByBankCardNumber(bankCardNumber);
+            if(bankAccountOptional.isPresent() == false) {
+                throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS);
+            }
+            // 状态校验：仅允许正常状态的账户被修改
+            BankAccount bankAccount = bankAccountOptional.get();
+            if(AccountStatus.ACTIVE.equals(bankAccount.getStatus()) == false) {
+                throw new BusinessException(ErrorCode.ACCOUNT_STATUS_NOT_ALLOWED);
+            }
+            // 余额变动写入转账日志，启动时按日志回写余额不会覆盖这次修改
+            journalAdjustment(bankAccount, editBankAccountReq.getBalance());
+            // 修改托管的实体，提交时按版本号更新并同步到二级缓存
+            bankAccount.setBalance(editBankAccountReq.getBalance());
+            bankAccount.setIdCard(editBankAccountReq.getIdCard());
+            bankAccount.setContactNumber(editBankAccountReq.getContactNumber());
+            bankAccount.setDescription(editBankAccountReq.getDescription());
+            accountCacheSupport.accountChanged(bankCardNumber);
+            return ResultUtils.success("update success");
         }
-        try{
-            this.bankAccountRepository.updateBankAccount(
-                    editBankAccountReq.getBalance(),
-                    editBankAccountReq.getIdCard(),
-                    editBankAccountReq.getContactNumber(),
-                    editBankAccountReq.getBankCardNumber(),
-                    editBankAccountReq.getDescription(),
-                    LocalDateTime.now());
-        } catch (DataIntegrityViolationException e) {
-            throw new BusinessException(ErrorCode.ACCOUNT_ALREADY_EXISTS);
-        }
-        return ResultUtils.success("update success");
     }
 
     @Transactional
     @Override
-    @Caching(evict = {
-            @CacheEvict(value = "bankaccounts", allEntries = true),
-            @CacheEvict(value = "bankaccount", key = "#vo.bankCardNumber",
-                    condition = "#vo.bankCardNumber != null")
-    })
     public BaseResponse<?> deleteBankAccount(DeleteBankAccountVO vo) {
         String bankCardNumber = vo.getBankCardNumber();
-        Optional<BankAccount> bankAccountOptional =
-                bankAccountRepository
-                        .findByBankCardNumber(bankCardNumber);
-        if(bankAccountOptional.isPresent() == false) {
-            throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS);
+        try (AccountShards.Scope shard = cardShard(bankCardNumber);
+             AccountLockManager.Handle ignored = accountLockManager.lock(bankCardNumber);
+             ShardedTransferEngine.Fence fence = fenceShardedBalances(List.of(bankCardNumber))) {
+            foldHotAccount(bankCardNumber);
+            Optional<BankAccount> bankAccountOptional =
+                    bankAccountRepository
+                            .loadByBankCardNumber(bankCardNumber);
+            if(bankAccountOptional.isPresent() == false) {
+                throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS);
+            }
+            bankAccountOptional.get().setStatus(AccountStatus.DELETED);
+            accountCacheSupport.accountChanged(bankCardNumber);
+            return ResultUtils.success("delete success");
         }
-        try{
-            this.bankAccountRepository.updateBankAccountStatus(
-                    AccountStatus.DELETED, bankCardNumber
-            );
-        } catch (DataIntegrityViolationException e) {
-            throw new BusinessException(ErrorCode.ACCOUNT_ALREADY_EXISTS);
-        }
-        return ResultUtils.success("delete success");
     }
 
     @Override
-    @Cacheable(value = "bankaccounts", key = "#pageNo + '-' + #pageSize + '-' + #userId")
+    @Cacheable(value = AccountCacheSupport.ACCOUNT_PAGES,
+            key = "@accountCacheSupport.pageKey(#userId, #pageNo, #pageSize)", sync = true)
     public BaseResponse<?> listAccount(Integer pageNo, Integer pageSize, String userId){
+        return listPage(pageNo, pageSize, userId);
+    }
+
+    /**
+     * 分页接口的返回值，同时用于分页缓存过期前的后台刷新
+     */
+    private BaseResponse<?> listPage(Integer pageNo, Integer pageSize, String userId) {
         Pageable pageable = PageRequest.of(pageNo - 1, pageSize);
-        DecimalFormat df = new DecimalFormat("0.00");
-        Page<BankAccount> allWithPagination = bankAccountRepository
-                .findAllWithPagination(pageable, userId);
+        Page<CreateBankAccountVO> allWithPagination;
+        try (AccountShards.Scope shard = userShard(userId)) {
+            // 启用读写分离时该用户近期没有写过则读从库
+            allWithPagination = replicaReads == null
+                    ? bankAccountRepository.findAccountViews(pageable, userId)
+                    : replicaReads.forUser(userId, () -> bankAccountRepository.findAccountViews(pageable, userId));
+        }
         int total = (int) allWithPagination.getTotalElements();
         PageRes<CreateBankAccountVO> result = new PageRes<>(pageNo,pageSize,total);
-        List<CreateBankAccountVO> content = allWithPagination.getContent().stream().map(t->{
-            String amountStr = df.format(t.getBalance());
+        result.setData(withSlotBalances(allWithPagination.getContent()));
+        return ResultUtils.success(result);
+    }
+
+    @Override
+    @ReadOnlyTransactional
+    public BaseResponse<?> listAccountByCursor(String userId, String after, Integer limit, boolean withTotal) {
+        try (AccountShards.Scope shard = userShard(userId)) {
+            int pageSize = limit == null || limit <= 0
+                    ? ACCOUNT_PAGE_DEFAULT_LIMIT : Math.min(limit, ACCOUNT_PAGE_MAX_LIMIT);
+            // 多取一条用来判断是否还有下一页
+            Pageable pageable = PageRequest.of(0, pageSize + 1);
+            List<BankAccount> accounts = after == null || after.isEmpty()
+                    ? bankAccountRepository.findFirstByUser(userId, pageable)
+                    : bankAccountRepository.findAfterByUser(userId, AccountCursor.decode(after).getId(), pageable);
+            PageRes<CreateBankAccountVO> result = new PageRes<>(0, pageSize);
+            result.setTotal(withTotal
+                    ? (int) accountCacheSupport.userTotal(userId, () -> bankAccountRepository.countByUser(userId))
+                    : -1);
+            if (accounts.size() > pageSize) {
+                accounts = accounts.subList(0, pageSize);
+                result.setNextCursor(new AccountCursor(accounts.get(pageSize - 1).getId()).encode());
+            }
+            result.setData(accountViews(accounts));
+            return ResultUtils.success(result);
+        }
+    }
+
+    /**
+     * 投影查询直接返回的账户：余额按两位小数输出（与 detailView 的格式化一致），热点账户加上子余额槽
+     */
+    private List<CreateBankAccountVO> withSlotBalances(List<CreateBankAccountVO> views) {
+        Map<String, BigDecimal> slotBalances = hotAccountLedger == null ? Collections.emptyMap()
+                : hotAccountLedger.slotBalances(views.stream()
+                        .map(CreateBankAccountVO::getBankCardNumber).collect(Collectors.toList()));
+        for (CreateBankAccountVO view : views) {
+            view.setBalance(view.getBalance()
+                    .add(slotBalances.getOrDefault(view.getBankCardNumber(), BigDecimal.ZERO))
+                    .setScale(2, RoundingMode.HALF_EVEN));
+        }
+        return views;
+    }
+
+    /**
+     * 列表中的账户，余额含热点账户的子余额槽
+     */
+    private List<CreateBankAccountVO> accountViews(List<BankAccount> accounts) {
+        DecimalFormat df = new DecimalFormat("0.00");
+        Map<String, BigDecimal> slotBalances = hotAccountLedger == null ? Collections.emptyMap()
+                : hotAccountLedger.slotBalances(accounts.stream()
+                        .map(BankAccount::getBankCardNumber).collect(Collectors.toList()));
+        return accounts.stream().map(t->{
+            String amountStr = df.format(t.getBalance()
+                    .add(slotBalances.getOrDefault(t.getBankCardNumber(), BigDecimal.ZERO)));
             return BankMangeMapper.INSTANCE.entityToVO(t,amountStr);
         }).collect(Collectors.toList());
-        result.setData(content);
-        return ResultUtils.success(result);
     }
 
     @Override
-    @Cacheable(value = "bankaccounts", key = "#bankCardNumber")
+    @Cacheable(value = AccountCacheSupport.ACCOUNT_DETAIL, key = "#bankCardNumber", sync = true)
     public BaseResponse<?> detailAccount(String bankCardNumber) {
-        Optional<BankAccount> bankAccountOptional =
-                bankAccountRepository
-                        .findByBankCardNumber(bankCardNumber);
-        if(bankAccountOptional.isPresent() == false) {
+        if (cardNumberFilter != null && cardNumberFilter.knownMissing(bankCardNumber)) {
+            throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS,
+                    ErrorCode.ACCOUNT_NOT_EXISTS.getDescription(), false);
+        }
+        Optional<CreateBankAccountVO> accountView;
+        try (AccountShards.Scope shard = cardShard(bankCardNumber)) {
+            accountView = replicaReads == null
+                    ? bankAccountRepository.findAccountView(bankCardNumber)
+                    : replicaReads.forAccount(bankCardNumber, () -> bankAccountRepository.findAccountView(bankCardNumber));
+        }
+        if(accountView.isPresent() == false) {
+            markMissing(bankCardNumber);
             throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS);
         }
-        BankAccount bankAccount = bankAccountOptional.get();
+        return ResultUtils.success(withSlotBalances(List.of(accountView.get())).get(0));
+    }
+
+    /**
+     * 详情接口的返回值，同时用于写操作提交后直接写入详情缓存
+     */
+    private BaseResponse<?> detailView(BankAccount bankAccount) {
         DecimalFormat df = new DecimalFormat("0.00");
-        String amountStr = df.format(bankAccount.getBalance());
+        BigDecimal balance = bankAccount.getBalance();
+        if (hotAccountLedger != null) {
+            balance = balance.add(hotAccountLedger.slotBalance(bankAccount.getBankCardNumber()));
+        }
+        String amountStr = df.format(balance);
         return ResultUtils
                 .success(BankMangeMapper.INSTANCE.entityToVO(bankAccount,amountStr));
     }
 
-    @Transactional
     @Override
-    @Caching(evict = {
-            @CacheEvict(value = "bankaccounts", allEntries = true),
-            @CacheEvict(value = "bankaccount", key = "#bankTransferVO.sendBankCardNumber",
-                    condition = "#bankTransferVO.sendBankCardNumber != null"),
-            @CacheEvict(value = "bankaccount", key = "#bankTransferVO.receiveBankCardNumber",
-                    condition = "#bankTransferVO.receiveBankCardNumber != null")
-    })
+    @ReadOnlyTransactional
+    public BaseResponse<?> transferHistory(String bankCardNumber, String after, Integer limit) {
+        // 流水与账户在同一分片
+        try (AccountShards.Scope shard = cardShard(bankCardNumber)) {
+            int pageSize = limit == null || limit <= 0 ? HISTORY_DEFAULT_LIMIT : Math.min(limit, HISTORY_MAX_LIMIT);
+            // 多取一条用来判断是否还有下一页
+            Pageable pageable = PageRequest.of(0, pageSize + 1);
+            List<TransferRecord> records;
+            if (after == null || after.isEmpty()) {
+                records = transferRecordRepository.findLatest(bankCardNumber, pageable);
+            } else {
+                TransferCursor cursor = TransferCursor.decode(after);
+                records = transferRecordRepository.findBefore(bankCardNumber,
+                        cursor.getCreatedAt(), cursor.getId(), pageable);
+            }
+            PageRes<TransferRecordVO> result = new PageRes<>(0, pageSize);
+            if (records.size() > pageSize) {
+                records = records.subList(0, pageSize);
+                result.setNextCursor(TransferCursor.of(records.get(pageSize - 1)).encode());
+            }
+            DecimalFormat df = new DecimalFormat("0.00");
+            result.setData(records.stream()
+                    .map(t -> BankMangeMapper.INSTANCE.recordToVO(t, df.format(t.getAmount())))
+                    .collect(Collectors.toList()));
+            return ResultUtils.success(result);
+        }
+    }
+
+    @Override
     public BaseResponse<?> bankTransfer(BankTransferVO bankTransferVO) {
+        // 各种转账模式下都拒绝转给自己，不写流水和日志
+        if (bankTransferVO.getSendBankCardNumber().equals(bankTransferVO.getReceiveBankCardNumber())) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转出与转入不能是同一账户");
+        }
+        // 不存在的卡号在加锁、查库之前拒绝
+        rejectKnownMissing(bankTransferVO.getSendBankCardNumber());
+        rejectKnownMissing(bankTransferVO.getReceiveBankCardNumber());
+        // 分库时双方不在同一分片上，不能在一个本地事务中完成
+        boolean crossesShards = crossShardTransfer != null && crossShardTransfer.crossesShards(bankTransferVO);
+        // 热点账户转入只更新随机一个子余额槽，不占用其分段锁
+        boolean hotReceiver = hotAccountLedger != null
+                && hotAccountLedger.isHot(bankTransferVO.getReceiveBankCardNumber());
+        if (optimisticTransferExecutor != null && !crossesShards && !hotReceiver) {
+            // 重试与退避在事务之外
+            return transferOptimistically(bankTransferVO);
+        }
+        return transferTemplate.execute(status -> transferInTransaction(bankTransferVO, crossesShards, hotReceiver));
+    }
+
+    private BaseResponse<?> transferInTransaction(BankTransferVO bankTransferVO, boolean crossesShards,
+                                                  boolean hotReceiver) {
+        accountCacheSupport.accountsChanged(List.of(bankTransferVO.getSendBankCardNumber(),
+                bankTransferVO.getReceiveBankCardNumber()));
+        if (shardedTransferEngine != null) {
+            // 流水与余额在分片的事务中一起写入
+            return shardedTransferEngine.transfer(bankTransferVO);
+        }
+        if (crossesShards) {
+            return crossShardTransfer.transfer(bankTransferVO);
+        }
+        String[] bankCardNumbers = hotReceiver
+                ? new String[]{bankTransferVO.getSendBankCardNumber()}
+                : new String[]{bankTransferVO.getSendBankCardNumber(), bankTransferVO.getReceiveBankCardNumber()};
+        try (AccountShards.Scope shard = cardShard(bankTransferVO.getSendBankCardNumber());
+             AccountLockManager.Handle ignored = accountLockManager.lock(bankCardNumbers)) {
+            foldHotAccount(bankTransferVO.getSendBankCardNumber());
+            return transferDirectly(bankTransferVO, hotReceiver);
+        }
+    }
+
+    /**
+     * 乐观模式靠带条件的余额更新检测冲突，不占用分段锁；只有转出方是热点账户时，为归并子余额槽锁住转出方。
+     * 流水、日志与缓存刷新在扣款成功的那次尝试的事务内完成
+     */
+    private BaseResponse<?> transferOptimistically(BankTransferVO bankTransferVO) {
+        String sendBankCardNumber = bankTransferVO.getSendBankCardNumber();
+        boolean hotSender = hotAccountLedger != null && hotAccountLedger.isHot(sendBankCardNumber);
+        try (AccountShards.Scope shard = cardShard(sendBankCardNumber);
+             AccountLockManager.Handle ignored = hotSender ? accountLockManager.lock(sendBankCardNumber) : null) {
+            foldHotAccount(sendBankCardNumber);
+            return optimisticTransferExecutor.transfer(bankTransferVO, () -> {
+                accountCacheSupport.accountsChanged(List.of(sendBankCardNumber,
+                        bankTransferVO.getReceiveBankCardNumber()));
+                String txId = recordTransfer(bankTransferVO);
+                if (transferJournalWriter != null) {
+                    // 增量入账不知道结果余额，在同一事务内读回
+                    journalTransfer(txId, bankTransferVO,
+                            currentBalance(sendBankCardNumber),
+                            currentBalance(bankTransferVO.getReceiveBankCardNumber()));
+                }
+            });
+        }
+    }
+
+    @Override
+    public CompletableFuture<BaseResponse<?>> bankTransferAsync(BankTransferVO bankTransferVO) {
+        return asyncTransferExecutor.submit(() -> self.bankTransfer(bankTransferVO));
+    }
+
+    private BaseResponse<?> transferDirectly(BankTransferVO bankTransferVO, boolean hotReceiver) {
         String sendAccountHolderName = bankTransferVO.getSendAccountHolderName();
         String sendBankCardNumber = bankTransferVO.getSendBankCardNumber();
         String receiveAccountHolderName = bankTransferVO.getReceiveAccountHolderName();
@@ -166,8 +481,9 @@ public class BankManageServiceImpl implements BankManageService {
         BigDecimal amount = bankTransferVO.getAmount();
         Optional<BankAccount> bankAccountOptional =
                 bankAccountRepository
-                        .findByBankCardNumber(sendBankCardNumber);
+                        .loadByBankCardNumber(sendBankCardNumber);
         if(!bankAccountOptional.isPresent()) {
+            markMissing(sendBankCardNumber);
             throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS, "账户"+sendBankCardNumber +"不存在");
         }
         if(!bankAccountOptional.get().getAccountHolderName().equals(sendAccountHolderName.trim())) {
@@ -179,8 +495,9 @@ public class BankManageServiceImpl implements BankManageService {
 
         Optional<BankAccount> receiveBankAccountOptional =
                 bankAccountRepository
-                        .findByBankCardNumber(receiveBankCardNumber);
+                        .loadByBankCardNumber(receiveBankCardNumber);
         if(!receiveBankAccountOptional.isPresent()) {
+            markMissing(receiveBankCardNumber);
             throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS, "账户"+receiveBankCardNumber +"不存在");
         }
         if(!receiveBankAccountOptional.get().getAccountHolderName()
@@ -188,17 +505,225 @@ public class BankManageServiceImpl implements BankManageService {
             throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "入账的账户名不正确");
         }
 
+        // 账户是托管的实体，余额在提交时按版本号更新，二级缓存随之更新而不是整个区域失效
         BigDecimal balanceRemained =bankAccountOptional.get().getBalance().subtract(amount);
-        this.bankAccountRepository.updateBankAccountBalance(
-                    balanceRemained,
-                    LocalDateTime.now(), bankAccountOptional.get().getUserUid());
+        bankAccountOptional.get().setBalance(balanceRemained);
 
-        BigDecimal balanceAdded = receiveBankAccountOptional.get().getBalance().add(amount);
-
-        this.bankAccountRepository.updateBankAccountBalance(
-                    balanceAdded,
-                    LocalDateTime.now(), receiveBankAccountOptional.get().getUserUid());
+        BigDecimal balanceAdded;
+        if (hotReceiver) {
+            if (!hotAccountLedger.credit(receiveBankCardNumber, amount)) {
+                throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS, "账户"+receiveBankCardNumber +"不存在");
+            }
+            balanceAdded = currentBalance(receiveBankCardNumber)
+                    .add(hotAccountLedger.slotBalance(receiveBankCardNumber));
+        } else {
+            balanceAdded = receiveBankAccountOptional.get().getBalance().add(amount);
+            receiveBankAccountOptional.get().setBalance(balanceAdded);
+        }
 
+        journalTransfer(recordTransfer(bankTransferVO), bankTransferVO, balanceRemained, balanceAdded);
         return ResultUtils.success("transfer cash successfully");
     }
+
+    private void rejectKnownMissing(String bankCardNumber) {
+        if (cardNumberFilter != null && cardNumberFilter.knownMissing(bankCardNumber)) {
+            throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS, "账户" + bankCardNumber + "不存在", false);
+        }
+    }
+
+    private void markMissing(String bankCardNumber) {
+        if (cardNumberFilter != null) {
+            cardNumberFilter.markMissing(bankCardNumber);
+        }
+    }
+
+    /**
+     * 在当前事务内写转账双方的流水
+     *
+     * @return 流水号
+     */
+    private String recordTransfer(BankTransferVO bankTransferVO) {
+        String txId = UUID.randomUUID().toString();
+        transferRecordWriter.record(txId, bankTransferVO.getSendBankCardNumber(),
+                bankTransferVO.getReceiveBankCardNumber(), bankTransferVO.getAmount());
+        return txId;
+    }
+
+    /**
+     * 转账双方的变动在事务提交前写入转账日志
+     */
+    private void journalTransfer(String txId, BankTransferVO bankTransferVO, BigDecimal senderBalance,
+                                 BigDecimal receiverBalance) {
+        if (transferJournalWriter == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        transferJournalWriter.record(List.of(
+                new JournalEntry(txId, JournalEntry.TRANSFER, bankTransferVO.getSendBankCardNumber(),
+                        bankTransferVO.getAmount().negate(), senderBalance, now),
+                new JournalEntry(txId, JournalEntry.TRANSFER, bankTransferVO.getReceiveBankCardNumber(),
+                        bankTransferVO.getAmount(), receiverBalance, now)));
+    }
+
+    /**
+     * 修改账户时的余额变动在事务提交前写入转账日志
+     */
+    private void journalAdjustment(BankAccount bankAccount, BigDecimal balance) {
+        if (transferJournalWriter == null || bankAccount.getBalance().compareTo(balance) == 0) {
+            return;
+        }
+        transferJournalWriter.record(List.of(new JournalEntry(UUID.randomUUID().toString(), JournalEntry.ADJUST,
+                bankAccount.getBankCardNumber(), balance.subtract(bankAccount.getBalance()), balance,
+                System.currentTimeMillis())));
+    }
+
+    private BigDecimal currentBalance(String bankCardNumber) {
+        return bankAccountRepository.findBalanceView(bankCardNumber)
+                .orElseThrow(() -> new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS,
+                        "账户" + bankCardNumber + "不存在"))
+                .getBalance();
+    }
+
+    @Transactional
+    @Override
+    public BaseResponse<?> bankTransferBatch(BankTransferBatchVO bankTransferBatchVO) {
+        List<BankTransferVO> transfers = bankTransferBatchVO.getTransfers();
+        Set<String> bankCardNumbers = new HashSet<>();
+        for (BankTransferVO transfer : transfers) {
+            bankCardNumbers.add(transfer.getSendBankCardNumber());
+            bankCardNumbers.add(transfer.getReceiveBankCardNumber());
+        }
+        // 与单笔转账、修改账户使用同一组分段锁（按下标升序获取），避免并发的托管实体提交时版本号冲突
+        try (AccountShards.Scope shard = batchShard(bankCardNumbers);
+             AccountLockManager.Handle ignored = accountLockManager.lock(bankCardNumbers.toArray(new String[0]));
+             ShardedTransferEngine.Fence fence = fenceShardedBalances(bankCardNumbers)) {
+            // 批量转账按主余额校验与轧差，先把涉及的热点账户归并
+            if (hotAccountLedger != null) {
+                bankCardNumbers.forEach(hotAccountLedger::fold);
+            }
+            Map<String, BankAccount> accounts = new HashMap<>();
+            for (BankAccount account : bankAccountRepository.findAllByBankCardNumbers(bankCardNumbers)) {
+                accounts.put(account.getBankCardNumber(), account);
+            }
+
+            // 按顺序在内存中逐笔校验并记账，任何一笔不合法则整批拒绝
+            Map<String, BigDecimal> balances = new HashMap<>();
+            accounts.forEach((bankCardNumber, account) -> balances.put(bankCardNumber, account.getBalance()));
+            for (int i = 0; i < transfers.size(); i++) {
+                BankTransferVO transfer = transfers.get(i);
+                String prefix = "第" + (i + 1) + "笔转账：";
+                if (transfer.getSendBankCardNumber().equals(transfer.getReceiveBankCardNumber())) {
+                    throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, prefix + "转出与转入不能是同一账户");
+                }
+                BankAccount sender = accounts.get(transfer.getSendBankCardNumber());
+                if (sender == null) {
+                    throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS,
+                            prefix + "账户" + transfer.getSendBankCardNumber() + "不存在");
+                }
+                if (!sender.getAccountHolderName().equals(transfer.getSendAccountHolderName().trim())) {
+                    throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, prefix + "转账出的账户名不正确");
+                }
+                BankAccount receiver = accounts.get(transfer.getReceiveBankCardNumber());
+                if (receiver == null) {
+                    throw new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS,
+                            prefix + "账户" + transfer.getReceiveBankCardNumber() + "不存在");
+                }
+                if (!receiver.getAccountHolderName().equals(transfer.getReceiveAccountHolderName().trim())) {
+                    throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, prefix + "入账的账户名不正确");
+                }
+                BigDecimal senderBalance = balances.get(sender.getBankCardNumber());
+                if (senderBalance.compareTo(transfer.getAmount()) < 0) {
+                    throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, prefix + "转账出的余额不足");
+                }
+                balances.put(sender.getBankCardNumber(), senderBalance.subtract(transfer.getAmount()));
+                balances.merge(receiver.getBankCardNumber(), transfer.getAmount(), BigDecimal::add);
+            }
+
+            // 轧差：每个余额有变化的账户只更新一次，版本号不一致说明被并发修改，整批回滚
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<String> updatedCards = new ArrayList<>();
+            List<Object[]> batchArgs = new ArrayList<>();
+            balances.forEach((bankCardNumber, balance) -> {
+                BankAccount account = accounts.get(bankCardNumber);
+                if (balance.compareTo(account.getBalance()) != 0) {
+                    updatedCards.add(bankCardNumber);
+                    batchArgs.add(new Object[]{balance, now, bankCardNumber, account.getVersion()});
+                }
+            });
+            if (!batchArgs.isEmpty()) {
+                int[] updated = jdbcTemplate.batchUpdate(
+                        "UPDATE bankaccount SET balance = ?, version = version + 1, updated_at = ? " +
+                                "WHERE bank_card_number = ? AND version = ?", batchArgs);
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        throw new BusinessException(ErrorCode.TRANSFER_CONFLICT,
+                                "账户" + updatedCards.get(i) + "在批量转账期间被修改，请重试");
+                    }
+                }
+                // JDBC 批量更新绕过了 Hibernate，提交后把这些账户从二级缓存中淘汰
+                List<Long> updatedIds = updatedCards.stream()
+                        .map(bankCardNumber -> accounts.get(bankCardNumber).getId())
+                        .collect(Collectors.toList());
+                TransactionUtils.afterCommit(() -> bankAccountRepository.evictCached(updatedIds));
+            }
+            transferRecordWriter.recordAll(transfers);
+            if (transferJournalWriter != null && !updatedCards.isEmpty()) {
+                String txId = UUID.randomUUID().toString();
+                long journaledAt = System.currentTimeMillis();
+                transferJournalWriter.record(updatedCards.stream()
+                        .map(bankCardNumber -> new JournalEntry(txId, JournalEntry.TRANSFER, bankCardNumber,
+                                balances.get(bankCardNumber).subtract(accounts.get(bankCardNumber).getBalance()),
+                                balances.get(bankCardNumber), journaledAt))
+                        .collect(Collectors.toList()));
+            }
+            accountCacheSupport.accountsChanged(updatedCards);
+            return ResultUtils.success(new BankTransferBatchResultVO(transfers.size(), updatedCards.size()));
+        }
+    }
+
+    /**
+     * 启用分库时把当前线程路由到卡号所在分片，未启用时返回 null（try-with-resources 跳过 null 资源）
+     */
+    private AccountShards.Scope cardShard(String bankCardNumber) {
+        return accountShards == null ? null : accountShards.forCard(bankCardNumber);
+    }
+
+    /**
+     * 启用分库时把当前线程路由到用户的账户所在分片，未启用时返回 null
+     */
+    private AccountShards.Scope userShard(String userId) {
+        return accountShards == null ? null : accountShards.forUser(userId);
+    }
+
+    /**
+     * 批量转账在一个本地事务中轧差，启用分库时要求涉及的账户都在同一分片上；目录中没有的卡号在后面按不存在拒绝
+     */
+    private AccountShards.Scope batchShard(Set<String> bankCardNumbers) {
+        if (accountShards == null) {
+            return null;
+        }
+        Set<Integer> shards = bankCardNumbers.stream()
+                .flatMap(bankCardNumber -> accountShards.shardOfCard(bankCardNumber).stream())
+                .collect(Collectors.toSet());
+        if (shards.size() > 1) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "批量转账涉及的账户不在同一分片上，请拆分后提交");
+        }
+        return accountShards.onShard(shards.isEmpty() ? AccountShards.HOME : shards.iterator().next());
+    }
+
+    /**
+     * 热点账户扣款或覆盖余额前，把子余额槽归并回主余额
+     */
+    private void foldHotAccount(String bankCardNumber) {
+        if (hotAccountLedger != null) {
+            hotAccountLedger.fold(bankCardNumber);
+        }
+    }
+
+    /**
+     * 分片引擎持有内存余额，在引擎外修改余额时让所在分片停到事务结束，之后重新加载；未启用时返回 null
+     */
+    private ShardedTransferEngine.Fence fenceShardedBalances(Collection<String> bankCardNumbers) {
+        return shardedTransferEngine == null ? null : shardedTransferEngine.fence(bankCardNumbers);
+    }
 }
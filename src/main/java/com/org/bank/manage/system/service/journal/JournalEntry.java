@@ -0,0 +1,62 @@
+package com.org.bank.manage.system.service.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 转账日志记录
+ *
+ * @author tucker
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntry {
+
+    public static final String TRANSFER = "TRANSFER";
+    public static final String PREPARE = "PREPARE";
+    public static final String CREDIT = "CREDIT";
+    public static final String COMMIT = "COMMIT";
+    public static final String ABORT = "ABORT";
+    /**
+     * 在转账之外直接修改余额（修改账户接口），amount 为变动量，balance 为修改后的余额
+     */
+    public static final String ADJUST = "ADJUST";
+
+    private static final String SEPARATOR = "|";
+
+    private String txId;
+
+    /**
+     * 记录阶段：TRANSFER / PREPARE / CREDIT / COMMIT / ABORT / ADJUST
+     */
+    private String phase;
+
+    private String bankCardNumber;
+
+    private BigDecimal amount;
+
+    /**
+     * 该阶段执行后账户余额
+     */
+    private BigDecimal balance;
+
+    private long timestamp;
+
+    public String encode() {
+        return String.join(SEPARATOR, txId, phase, bankCardNumber,
+                amount.toPlainString(), balance.toPlainString(), String.valueOf(timestamp));
+    }
+
+    public static JournalEntry decode(String line) {
+        String[] parts = line.split("\\" + SEPARATOR);
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("invalid journal entry: " + line);
+        }
+        return new JournalEntry(parts[0], parts[1], parts[2],
+                new BigDecimal(parts[3]), new BigDecimal(parts[4]), Long.parseLong(parts[5]));
+    }
+}
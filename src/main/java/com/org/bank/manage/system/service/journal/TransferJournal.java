@@ -0,0 +1,384 @@
+package com.org.bank.manage.system.service.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 只追加的转账日志。
+ * <p>
+ * 日志由目录下固定大小的内存映射段文件（segment-00000000000000000000.log …）组成，
+ * 每条记录格式为 [长度 int][CRC32 int][UTF-8 内容]，长度为 0 表示段内数据结束。
+ * {@link #append} 写入映射区后等待落盘再返回，并发的追加通过组提交共享一次 force：
+ * 第一个等待者负责刷盘，刷盘期间到达的追加由下一次刷盘一并覆盖。
+ * 刷盘失败时落盘位置不前进，本轮覆盖到的追加都收到同一个错误。
+ * 段写满后滚动到新段，并删除超出保留段数的最旧段；打开时扫描所有段，遇到残缺记录即截断，从该位置继续追加。
+ *
+ * @author tucker
+ */
+@Slf4j
+public class TransferJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+
+    private final int segmentSize;
+
+    /**
+     * 最多保留的段数（含当前段），0 表示不删除旧段
+     */
+    private final int retainedSegments;
+
+    /**
+     * 写入锁：保护当前段及写入位置
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * 刷盘锁：保护组提交状态
+     */
+    private final Object flushLock = new Object();
+
+    private final LongAdder appends = new LongAdder();
+
+    private final LongAdder forces = new LongAdder();
+
+    private MappedByteBuffer segment;
+
+    private long segmentBase;
+
+    private int position;
+
+    /**
+     * 当前段中已落盘的位置
+     */
+    private int flushedPosition;
+
+    /**
+     * 全局已写入字节偏移（段起始偏移 + 段内位置），追加返回的票据即该值
+     */
+    private long written;
+
+    /**
+     * 全局已落盘字节偏移
+     */
+    private long durable;
+
+    private boolean flushing;
+
+    /**
+     * 最近一次失败的刷盘覆盖到的票据及失败原因，票据不超过该值且尚未落盘的追加收到同一个错误
+     */
+    private long failedTarget;
+
+    private RuntimeException flushFailure;
+
+    private boolean closed;
+
+    public TransferJournal(Path dir, int segmentSize) {
+        this(dir, segmentSize, 0);
+    }
+
+    public TransferJournal(Path dir, int segmentSize, int retainedSegments) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.retainedSegments = retainedSegments;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot create journal dir " + dir, e);
+        }
+        open();
+    }
+
+    /**
+     * 追加一条记录并等待其落盘
+     */
+    public void append(JournalEntry entry) {
+        awaitDurable(write(entry));
+    }
+
+    /**
+     * 追加多条记录，共享一次落盘等待
+     */
+    public void appendAll(List<JournalEntry> entries) {
+        long ticket = 0L;
+        for (JournalEntry entry : entries) {
+            ticket = write(entry);
+        }
+        awaitDurable(ticket);
+    }
+
+    /**
+     * 按写入顺序重放所有段中的记录
+     */
+    public void replay(Consumer<JournalEntry> consumer) {
+        synchronized (writeLock) {
+            for (Path file : segmentFiles()) {
+                MappedByteBuffer buffer = file.equals(segmentPath(segmentBase)) ? segment : map(file);
+                scan(buffer, file, consumer);
+            }
+        }
+    }
+
+    public List<JournalEntry> readAll() {
+        List<JournalEntry> entries = new ArrayList<>();
+        replay(entries::add);
+        return entries;
+    }
+
+    public long getAppends() {
+        return appends.sum();
+    }
+
+    /**
+     * 实际 force 次数，与追加次数之比反映组提交的合并效果
+     */
+    public long getForces() {
+        return forces.sum();
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segment.force();
+        }
+    }
+
+    private long write(JournalEntry entry) {
+        byte[] payload = entry.encode().getBytes(StandardCharsets.UTF_8);
+        int recordSize = HEADER_BYTES + payload.length;
+        if (recordSize + HEADER_BYTES > segmentSize) {
+            throw new IllegalArgumentException("journal entry too large: " + payload.length);
+        }
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IllegalStateException("journal " + dir + " is closed");
+            }
+            // 为结束标记保留一个头部的空间
+            if (position + recordSize + HEADER_BYTES > segmentSize) {
+                roll();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            segment.put(position + HEADER_BYTES, payload);
+            segment.putInt(position + 4, (int) crc.getValue());
+            // 长度最后写入，保证扫描时看到长度就能看到完整内容
+            segment.putInt(position, payload.length);
+            position += recordSize;
+            written = segmentBase + position;
+            appends.increment();
+            return written;
+        }
+    }
+
+    /**
+     * 组提交：没有刷盘在进行时由当前线程做领导者，一次 force 覆盖截至此刻写入的全部记录；
+     * 刷盘期间到达的线程等待，本轮没覆盖到的由它们中的一个发起下一轮
+     */
+    private void awaitDurable(long ticket) {
+        while (true) {
+            synchronized (flushLock) {
+                while (flushing && durable < ticket) {
+                    try {
+                        flushLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted while waiting for journal flush", e);
+                    }
+                }
+                if (durable >= ticket) {
+                    return;
+                }
+                if (flushFailure != null && ticket <= failedTarget) {
+                    throw new IllegalStateException("journal " + dir + " flush failed", flushFailure);
+                }
+                flushing = true;
+            }
+            MappedByteBuffer buffer;
+            int from;
+            int to;
+            long target;
+            synchronized (writeLock) {
+                buffer = segment;
+                from = flushedPosition;
+                to = position;
+                target = written;
+                flushedPosition = position;
+            }
+            try {
+                if (to > from) {
+                    buffer.force(from, to - from);
+                }
+                forces.increment();
+            } catch (RuntimeException e) {
+                synchronized (writeLock) {
+                    // 下一轮刷盘从本轮起点重新覆盖
+                    if (segment == buffer) {
+                        flushedPosition = Math.min(flushedPosition, from);
+                    }
+                }
+                synchronized (flushLock) {
+                    failedTarget = Math.max(failedTarget, target);
+                    flushFailure = e;
+                    flushing = false;
+                    flushLock.notifyAll();
+                }
+                throw e;
+            }
+            synchronized (flushLock) {
+                durable = Math.max(durable, target);
+                flushing = false;
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 当前段写满：同步刷盘后切换到新段，旧段的票据即视为已落盘；随后删除超出保留段数的最旧段
+     */
+    private void roll() {
+        segment.force();
+        forces.increment();
+        long nextBase = segmentBase + segmentSize;
+        segment = createSegment(nextBase);
+        segmentBase = nextBase;
+        position = 0;
+        flushedPosition = 0;
+        synchronized (flushLock) {
+            durable = Math.max(durable, written);
+            flushLock.notifyAll();
+        }
+        log.info("journal {} rolled to segment {}", dir, nextBase);
+        deleteExpiredSegments();
+    }
+
+    private void deleteExpiredSegments() {
+        if (retainedSegments <= 0) {
+            return;
+        }
+        List<Path> files = segmentFiles();
+        for (Path file : files.subList(0, Math.max(0, files.size() - retainedSegments))) {
+            try {
+                Files.deleteIfExists(file);
+                log.info("journal {} deleted expired segment {}", dir, file.getFileName());
+            } catch (IOException e) {
+                log.warn("cannot delete expired journal segment {}", file, e);
+            }
+        }
+    }
+
+    private void open() {
+        List<Path> files = segmentFiles();
+        if (files.isEmpty()) {
+            segment = createSegment(0L);
+            return;
+        }
+        Path last = files.get(files.size() - 1);
+        segmentBase = baseOf(last);
+        segment = map(last);
+        position = scan(segment, last, entry -> { });
+        flushedPosition = position;
+        written = segmentBase + position;
+        durable = written;
+        log.info("journal {} recovered {} segments, appending at {}", dir, files.size(), written);
+    }
+
+    /**
+     * 扫描一个段，返回有效数据结束的位置；遇到残缺记录时把残缺部分清零
+     */
+    private int scan(MappedByteBuffer buffer, Path file, Consumer<JournalEntry> consumer) {
+        int pos = 0;
+        while (pos + HEADER_BYTES <= segmentSize) {
+            int length = buffer.getInt(pos);
+            if (length == 0) {
+                break;
+            }
+            int checksum = buffer.getInt(pos + 4);
+            if (length < 0 || pos + HEADER_BYTES + length > segmentSize) {
+                log.warn("truncate torn journal record in {} at {}", file, pos);
+                zero(buffer, pos, segmentSize - pos);
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(pos + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("truncate corrupted journal record in {} at {}", file, pos);
+                zero(buffer, pos, HEADER_BYTES + length);
+                break;
+            }
+            consumer.accept(JournalEntry.decode(new String(payload, StandardCharsets.UTF_8)));
+            pos += HEADER_BYTES + length;
+        }
+        return pos;
+    }
+
+    private void zero(MappedByteBuffer buffer, int from, int length) {
+        for (int i = from; i < from + length; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.force(from, length);
+    }
+
+    private MappedByteBuffer createSegment(long base) {
+        return map(segmentPath(base));
+    }
+
+    private MappedByteBuffer map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 映射在通道关闭后依然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot map journal segment " + file, e);
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+    }
+
+    private long baseOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private List<Path> segmentFiles() {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                        String name = f.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot list journal dir " + dir, e);
+        }
+    }
+}
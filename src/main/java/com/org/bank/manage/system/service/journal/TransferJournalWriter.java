@@ -0,0 +1,159 @@
+package com.org.bank.manage.system.service.journal;
+
+import com.org.bank.manage.system.config.JournalProperties;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 服务层转账日志（bank.journal.enabled=true 时启用）。
+ * <p>
+ * 转账记录在事务提交前写入日志并等待落盘，日志落盘后数据库才提交、接口才返回，
+ * 并发转账的落盘通过 {@link TransferJournal} 的组提交合并；事务回滚时补写 ABORT 记录。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.journal", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TransferJournalWriter {
+
+    @Autowired
+    JournalProperties journalProperties;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    private TransferJournal journal;
+
+    @PostConstruct
+    public void start() {
+        journal = new TransferJournal(Paths.get(journalProperties.getDir()),
+                (int) journalProperties.getSegmentSize().toBytes(), journalProperties.getRetainedSegments());
+        if (meterRegistry != null) {
+            FunctionCounter.builder("bank.journal.appends", journal, TransferJournal::getAppends)
+                    .register(meterRegistry);
+            FunctionCounter.builder("bank.journal.forces", journal, TransferJournal::getForces)
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        journal.close();
+    }
+
+    /**
+     * 记录一笔转账涉及的各账户变动；存在事务时在提交前落盘，否则立即落盘
+     */
+    public void record(List<JournalEntry> entries) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            journal.appendAll(entries);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                journal.appendAll(entries);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                // 日志可能已落盘而数据库未提交，补写 ABORT 使重放时忽略这笔转账
+                long now = System.currentTimeMillis();
+                journal.appendAll(entries.stream()
+                        .map(e -> new JournalEntry(e.getTxId(), JournalEntry.ABORT, e.getBankCardNumber(),
+                                e.getAmount(), e.getBalance(), now))
+                        .collect(Collectors.toList()));
+            }
+        });
+    }
+
+    public TransferJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * 按日志重放出每个账户最后的余额（转账与修改账户的余额），被 ABORT 的记录不计入；只覆盖仍保留的段
+     */
+    public Map<String, BigDecimal> lastBalances() {
+        List<JournalEntry> entries = journal.readAll();
+        Set<String> aborted = new HashSet<>();
+        for (JournalEntry entry : entries) {
+            if (JournalEntry.ABORT.equals(entry.getPhase())) {
+                aborted.add(entry.getTxId());
+            }
+        }
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        for (JournalEntry entry : entries) {
+            boolean balanceChange = JournalEntry.TRANSFER.equals(entry.getPhase())
+                    || JournalEntry.ADJUST.equals(entry.getPhase());
+            if (balanceChange && !aborted.contains(entry.getTxId())) {
+                balances.put(entry.getBankCardNumber(), entry.getBalance());
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * 按日志回写数据库中已存在账户的余额。日志只有余额变动，没有开户信息，不能重建丢失的账户行；
+     * 数据库中不存在的账户跳过并记录告警
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!journalProperties.isRestoreOnStartup()) {
+            return;
+        }
+        Map<String, BigDecimal> balances = lastBalances();
+        log.info("transfer journal {} holds {} accounts", journalProperties.getDir(), balances.size());
+        if (balances.isEmpty()) {
+            return;
+        }
+        List<String> missing = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                balances.forEach((bankCardNumber, balance) -> {
+                    int updated = bankAccountRepository.updateBankAccountBalance(balance, LocalDateTime.now(),
+                            bankCardNumber);
+                    if (updated == 0) {
+                        missing.add(bankCardNumber);
+                    }
+                }));
+        if (!missing.isEmpty()) {
+            log.warn("{} accounts in transfer journal do not exist in database and were not restored: {}",
+                    missing.size(), missing);
+        }
+        log.info("restored {} account balances from transfer journal", balances.size() - missing.size());
+    }
+}
@@ -0,0 +1,236 @@
+package com.org.bank.manage.system.service.lock;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.LockProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 按卡号分段的进程内账户写锁。
+ * <p>
+ * 卡号哈希到固定数量的 {@link StampedLock} 分段上，多个账户按分段下标升序加锁，
+ * 保证任意两个操作的加锁顺序一致，不会死锁。在事务内加锁时，锁会保持到事务结束后才释放，
+ * 避免其他线程在提交前读到旧余额。
+ *
+ * @author tucker
+ */
+@Component
+public class AccountLockManager {
+
+    /**
+     * 等待时间直方图的桶上界（纳秒），最后一个桶为无穷大
+     */
+    private static final long[] WAIT_BUCKETS_NANOS = {
+            1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L, Long.MAX_VALUE
+    };
+
+    private static final String[] WAIT_BUCKET_NAMES = {
+            "<=1us", "<=10us", "<=100us", "<=1ms", "<=10ms", "<=100ms", "<=1s", ">1s"
+    };
+
+    private final StampedLock[] stripes;
+
+    private final int mask;
+
+    private final long timeoutNanos;
+
+    private final LongAdder[] contended;
+
+    private final LongAdder[] waitNanos;
+
+    private final LongAdder[] waitHistogram = new LongAdder[WAIT_BUCKETS_NANOS.length];
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final Timer waitTimer;
+
+    public AccountLockManager(LockProperties lockProperties, @Nullable MeterRegistry meterRegistry) {
+        int size = Integer.highestOneBit(Math.max(1, lockProperties.getStripes() - 1)) << 1;
+        this.stripes = new StampedLock[size];
+        this.contended = new LongAdder[size];
+        this.waitNanos = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new StampedLock();
+            contended[i] = new LongAdder();
+            waitNanos[i] = new LongAdder();
+        }
+        for (int i = 0; i < waitHistogram.length; i++) {
+            waitHistogram[i] = new LongAdder();
+        }
+        this.mask = size - 1;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(lockProperties.getTimeoutMs());
+        this.waitTimer = meterRegistry == null ? null : Timer.builder("bank.account.lock.wait")
+                .description("time spent waiting for account lock stripes")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(5))
+                .register(meterRegistry);
+    }
+
+    /**
+     * 锁住给定卡号所在的全部分段（按下标升序）。
+     * 当前线程存在事务同步时，锁在事务完成后释放，返回句柄的 close 不做任何事；
+     * 否则由调用方通过 try-with-resources 释放。
+     */
+    public Handle lock(String... bankCardNumbers) {
+        int[] indexes = Arrays.stream(bankCardNumbers)
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+        long[] stamps = new long[indexes.length];
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (int i = 0; i < indexes.length; i++) {
+            stamps[i] = acquire(indexes[i], deadline);
+            if (stamps[i] == 0L) {
+                unlock(indexes, stamps, i);
+                timeouts.increment();
+                throw new BusinessException(ErrorCode.ACCOUNT_LOCK_TIMEOUT,
+                        "账户" + String.join(",", bankCardNumbers) + "正在被其他操作修改");
+            }
+        }
+        Handle handle = new Handle(indexes, stamps);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            handle.deferred = true;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    handle.release();
+                }
+            });
+        }
+        return handle;
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * 等待时间直方图：桶名 -> 次数
+     */
+    public Map<String, Long> waitHistogram() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < waitHistogram.length; i++) {
+            result.put(WAIT_BUCKET_NAMES[i], waitHistogram[i].sum());
+        }
+        return result;
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * 争用次数最多的前 top 个分段
+     */
+    public List<Map<String, Long>> mostContendedStripes(int top) {
+        return IntStream.range(0, stripes.length)
+                .filter(i -> contended[i].sum() > 0)
+                .boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> contended[i].sum()).reversed())
+                .limit(top)
+                .map(i -> {
+                    Map<String, Long> stripe = new LinkedHashMap<>();
+                    stripe.put("stripe", (long) i);
+                    stripe.put("contended", contended[i].sum());
+                    stripe.put("waitMicros", TimeUnit.NANOSECONDS.toMicros(waitNanos[i].sum()));
+                    return stripe;
+                })
+                .collect(Collectors.toList());
+    }
+
+    int stripeOf(String bankCardNumber) {
+        int h = bankCardNumber.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private long acquire(int index, long deadline) {
+        StampedLock lock = stripes[index];
+        long stamp = lock.tryWriteLock();
+        if (stamp != 0L) {
+            recordWait(0L);
+            return stamp;
+        }
+        contended[index].increment();
+        long start = System.nanoTime();
+        try {
+            stamp = lock.tryWriteLock(Math.max(0L, deadline - start), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stamp = 0L;
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos[index].add(waited);
+        recordWait(waited);
+        return stamp;
+    }
+
+    private void recordWait(long nanos) {
+        for (int i = 0; i < WAIT_BUCKETS_NANOS.length; i++) {
+            if (nanos <= WAIT_BUCKETS_NANOS[i]) {
+                waitHistogram[i].increment();
+                break;
+            }
+        }
+        if (waitTimer != null) {
+            waitTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void unlock(int[] indexes, long[] stamps, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlockWrite(stamps[i]);
+        }
+    }
+
+    /**
+     * 已获取的分段锁
+     */
+    public final class Handle implements AutoCloseable {
+
+        private final int[] indexes;
+
+        private final long[] stamps;
+
+        private boolean deferred;
+
+        private boolean released;
+
+        private Handle(int[] indexes, long[] stamps) {
+            this.indexes = indexes;
+            this.stamps = stamps;
+        }
+
+        @Override
+        public void close() {
+            if (!deferred) {
+                release();
+            }
+        }
+
+        private void release() {
+            if (!released) {
+                released = true;
+                unlock(indexes, stamps, indexes.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.org.bank.manage.system.service.paging;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 账户列表分页游标：上一页最后一个账户的 id（同一用户内按 id 升序），对外编码为不透明的 base64url 字符串
+ *
+ * @author tucker
+ */
+@Getter
+@AllArgsConstructor
+public class AccountCursor {
+
+    private static final String PREFIX = "a|";
+
+    private final Long id;
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AccountCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(raw);
+            }
+            return new AccountCursor(Long.parseLong(raw.substring(PREFIX.length())));
+        } catch (RuntimeException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "无效的游标" + cursor);
+        }
+    }
+}
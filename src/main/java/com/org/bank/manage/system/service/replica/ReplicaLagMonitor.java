@@ -0,0 +1,123 @@
+package com.org.bank.manage.system.service.replica;
+
+import com.org.bank.manage.system.config.ReplicaProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * 从库延迟监测（bank.replica.enabled=true 时启用）。
+ * <p>
+ * 定时向主库 replication_heartbeat 写入当前时间，再从从库读回这一行：从库包含了该心跳之前提交的所有数据，
+ * 现在与该心跳的时间差就是从库数据最多落后的时间。从库不可达或复制中断时心跳不再前进，落后时间随之增大，
+ * 超过 bank.replica.max-staleness 后读请求自动回到主库，恢复后重新读从库；从库连不上时立即回到主库。
+ * 各节点的心跳写同一行，依赖节点间时钟同步。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.replica", name = "enabled", havingValue = "true")
+public class ReplicaLagMonitor {
+
+    private static final String UPDATE_BEAT = "UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1";
+
+    private static final String INSERT_BEAT = "INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, ?)";
+
+    private static final String SELECT_BEAT = "SELECT beat_at FROM replication_heartbeat WHERE id = 1";
+
+    private final ReplicaProperties replicaProperties;
+
+    private final JdbcTemplate primaryJdbc;
+
+    private final JdbcTemplate replicaJdbc;
+
+    /**
+     * 从库上最新的心跳时间，0 表示还没有读到
+     */
+    private volatile long replicaBeatAt;
+
+    private volatile boolean replicaReachable = true;
+
+    @Autowired
+    public ReplicaLagMonitor(ReplicaProperties replicaProperties,
+                             @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                             @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                             @Nullable MeterRegistry meterRegistry) {
+        if (replicaProperties.getMaxStaleness().toMillis() <= replicaProperties.getHeartbeatIntervalMs()) {
+            throw new IllegalArgumentException("bank.replica.max-staleness must be longer than heartbeat-interval-ms");
+        }
+        this.replicaProperties = replicaProperties;
+        this.primaryJdbc = new JdbcTemplate(primaryDataSource);
+        this.replicaJdbc = new JdbcTemplate(replicaDataSource);
+        if (meterRegistry != null) {
+            Gauge.builder("bank.replica.staleness", this,
+                            m -> m.replicaBeatAt == 0 ? Double.NaN : m.stalenessMillis())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 向主库写入心跳
+     */
+    @Scheduled(fixedDelayString = "${bank.replica.heartbeat-interval-ms:500}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        try {
+            if (primaryJdbc.update(UPDATE_BEAT, now) == 0) {
+                primaryJdbc.update(INSERT_BEAT, now);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // 其他节点同时插入了心跳行，下一次更新即可
+        } catch (RuntimeException e) {
+            log.warn("write replication heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从从库读回心跳
+     */
+    @Scheduled(fixedDelayString = "${bank.replica.heartbeat-interval-ms:500}")
+    public void checkLag() {
+        try {
+            Long beatAt = replicaJdbc.query(SELECT_BEAT, rs -> rs.next() ? rs.getLong(1) : null);
+            if (beatAt != null && beatAt > replicaBeatAt) {
+                replicaBeatAt = beatAt;
+            }
+            if (!replicaReachable) {
+                log.info("replica is reachable again, staleness {} ms", stalenessMillis());
+                replicaReachable = true;
+            }
+        } catch (RuntimeException e) {
+            if (replicaReachable) {
+                log.warn("read replication heartbeat from replica failed, reads go to primary: {}", e.getMessage());
+                replicaReachable = false;
+            }
+        }
+    }
+
+    /**
+     * 从库数据最多落后的毫秒数
+     */
+    public long stalenessMillis() {
+        return replicaBeatAt == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - replicaBeatAt;
+    }
+
+    /**
+     * 从库可达且落后时间在 bank.replica.max-staleness 以内
+     */
+    public boolean withinTolerance() {
+        return replicaReachable && stalenessMillis() <= replicaProperties.getMaxStaleness().toMillis();
+    }
+}
@@ -0,0 +1,132 @@
+package com.org.bank.manage.system.service.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.org.bank.manage.system.config.ReplicaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * 可读从库的查询（bank.replica.enabled=true 时启用）。
+ * <p>
+ * 只有经 {@link #forAccount}/{@link #forUser} 执行、且处于只读事务中的查询会被
+ * {@link ReplicaRoutingDataSource} 路由到从库，其余读写（包括只读事务中的幂等键等查询）仍走主库。
+ * 账户或用户的缓存在写操作提交后刷新或淘汰时记为“近期写过”（本节点的写与失效总线收到的其他节点的写），
+ * bank.replica.sticky-window 内对它的查询读主库，既保证读己之写，也避免从库上的旧值被重新写入缓存。
+ *
+ * @author tucker
+ */
+@Component
+@ConditionalOnProperty(prefix = "bank.replica", name = "enabled", havingValue = "true")
+public class ReplicaReads {
+
+    private static final ThreadLocal<Boolean> REPLICA_ALLOWED = new ThreadLocal<>();
+
+    private static final String ACCOUNT_PREFIX = "account:";
+
+    private static final String USER_PREFIX = "user:";
+
+    @Autowired
+    ReplicaProperties replicaProperties;
+
+    @Autowired
+    ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    private Cache<String, Boolean> recentWrites;
+
+    private Counter replicaReads;
+
+    private Counter stickyReads;
+
+    private Counter staleReads;
+
+    @PostConstruct
+    public void init() {
+        if (replicaProperties.getStickyWindow().compareTo(replicaProperties.getMaxStaleness()) < 0) {
+            throw new IllegalArgumentException("bank.replica.sticky-window must not be shorter than max-staleness");
+        }
+        recentWrites = Caffeine.newBuilder()
+                .maximumSize(replicaProperties.getMaxTrackedKeys())
+                .expireAfterWrite(replicaProperties.getStickyWindow())
+                .build();
+        if (meterRegistry != null) {
+            replicaReads = Counter.builder("bank.replica.reads").register(meterRegistry);
+            stickyReads = Counter.builder("bank.replica.primary.reads").tag("reason", "sticky").register(meterRegistry);
+            staleReads = Counter.builder("bank.replica.primary.reads").tag("reason", "stale").register(meterRegistry);
+        }
+    }
+
+    /**
+     * 账户刚被写过
+     */
+    public void accountWritten(String bankCardNumber) {
+        recentWrites.put(ACCOUNT_PREFIX + bankCardNumber, Boolean.TRUE);
+    }
+
+    /**
+     * 用户的账户列表刚发生变化
+     */
+    public void userWritten(String userId) {
+        recentWrites.put(USER_PREFIX + userId, Boolean.TRUE);
+    }
+
+    /**
+     * 按卡号查询账户，该账户近期未被写过时允许读从库
+     */
+    public <T> T forAccount(String bankCardNumber, Supplier<T> query) {
+        return read(ACCOUNT_PREFIX + bankCardNumber, query);
+    }
+
+    /**
+     * 查询用户的账户列表，该用户近期未被写过时允许读从库
+     */
+    public <T> T forUser(String userId, Supplier<T> query) {
+        return read(USER_PREFIX + userId, query);
+    }
+
+    /**
+     * 当前线程的只读事务是否读从库，由 {@link ReplicaRoutingDataSource} 在取连接时调用
+     */
+    boolean routeToReplica() {
+        if (REPLICA_ALLOWED.get() == null) {
+            return false;
+        }
+        if (!replicaLagMonitor.withinTolerance()) {
+            increment(staleReads);
+            return false;
+        }
+        increment(replicaReads);
+        return true;
+    }
+
+    private <T> T read(String key, Supplier<T> query) {
+        if (recentWrites.getIfPresent(key) != null) {
+            increment(stickyReads);
+            return query.get();
+        }
+        boolean outermost = REPLICA_ALLOWED.get() == null;
+        REPLICA_ALLOWED.set(Boolean.TRUE);
+        try {
+            return query.get();
+        } finally {
+            if (outermost) {
+                REPLICA_ALLOWED.remove();
+            }
+        }
+    }
+
+    private void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
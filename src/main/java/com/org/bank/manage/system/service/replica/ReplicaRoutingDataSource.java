@@ -0,0 +1,37 @@
+package com.org.bank.manage.system.service.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * 主从路由数据源：只读事务中、经 {@link ReplicaReads} 允许的查询取从库连接，其余取主库连接。
+ * <p>
+ * 事务管理器在事务开始时就取连接，此时只读标记还没有登记到当前线程，
+ * 因此外面需要包一层 {@code LazyConnectionDataSourceProxy}，等第一条语句执行时再决定取哪个库的连接。
+ *
+ * @author tucker
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    private static final String REPLICA = "replica";
+
+    private final ReplicaReads replicaReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaReads replicaReads) {
+        this.replicaReads = replicaReads;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaReads.routeToReplica()
+                ? REPLICA : PRIMARY;
+    }
+}
@@ -0,0 +1,418 @@
+package com.org.bank.manage.system.service.shard;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.TransferMode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.HotAccountProperties;
+import com.org.bank.manage.system.config.JournalProperties;
+import com.org.bank.manage.system.config.ReplicaProperties;
+import com.org.bank.manage.system.config.ShardingProperties;
+import com.org.bank.manage.system.config.TransferProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * 账户分片（bank.sharding.enabled=true 时启用）。
+ * <p>
+ * 账户按 user_uid 的 CRC32 对分片数取模分布在各个数据库上，同一用户的账户、账户的转账流水都在同一分片。
+ * 主库（分片 0）上的 account_shard_directory 记录每个卡号所在的分片，按卡号的读写先查目录（本地缓存），
+ * 再用 {@link #forCard}/{@link #forUser} 把当前线程路由到对应分片，{@link ShardRoutingDataSource}
+ * 在取连接时按它选择分片。一个事务只能使用一个分片，跨分片的查询用 {@link #onAllShards} 并行执行。
+ * <p>
+ * 开户前先在目录中占用卡号（{@link #claim}），卡号在全部分片范围内唯一；卡号不复用，目录条目不会改变，可以一直缓存。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.sharding", name = "enabled", havingValue = "true")
+public class AccountShards {
+
+    /**
+     * 主库，保存卡号目录；没有设置分片时的默认分片
+     */
+    public static final int HOME = 0;
+
+    /**
+     * 账户 id 的低位为分片号预留的取值个数，分片数不能超过它
+     */
+    public static final int MAX_SHARDS = 1024;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private static final String SELECT_SHARD =
+            "SELECT shard FROM account_shard_directory WHERE bank_card_number = ?";
+
+    private static final String SELECT_CLAIMED =
+            "SELECT bank_card_number FROM account_shard_directory WHERE bank_card_number IN (%s)";
+
+    private static final String SELECT_CARDS = "SELECT bank_card_number FROM account_shard_directory";
+
+    private static final String SELECT_DIRECTORY_COUNTS =
+            "SELECT shard, COUNT(*) AS cards FROM account_shard_directory GROUP BY shard";
+
+    private static final String SELECT_ACCOUNT_STATS = "SELECT COUNT(*) AS accounts, "
+            + "COALESCE(SUM(CASE WHEN status <> 'DELETED' THEN 1 ELSE 0 END), 0) AS active, "
+            + "COALESCE(SUM(CASE WHEN status <> 'DELETED' THEN balance ELSE 0 END), 0) AS balance FROM bankaccount";
+
+    private static final String INSERT_ENTRY =
+            "INSERT INTO account_shard_directory (bank_card_number, shard) VALUES (?, ?)";
+
+    private static final String DELETE_ENTRY =
+            "DELETE FROM account_shard_directory WHERE bank_card_number = ? AND shard = ?";
+
+    @Autowired
+    ShardingProperties shardingProperties;
+
+    @Autowired
+    TransferProperties transferProperties;
+
+    @Autowired
+    HotAccountProperties hotAccountProperties;
+
+    @Autowired
+    JournalProperties journalProperties;
+
+    @Autowired
+    ReplicaProperties replicaProperties;
+
+    @Autowired
+    ShardRoutingDataSource shardRoutingDataSource;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    /**
+     * 各分片自己的连接，不参与当前事务
+     */
+    private List<JdbcTemplate> shardJdbc;
+
+    private Cache<String, Integer> directory;
+
+    private ExecutorService fanOutExecutor;
+
+    private Counter fanOuts;
+
+    @PostConstruct
+    public void init() {
+        require(shardingProperties.shardCount() <= MAX_SHARDS, "bank.sharding supports at most " + MAX_SHARDS + " shards");
+        // 以下功能在内存中或按单库设计，与分库一起使用时会读写错误的分片
+        require(transferProperties.getMode() == TransferMode.DIRECT, "bank.sharding requires bank.transfer.mode=direct");
+        require(!hotAccountProperties.isEnabled(), "bank.sharding does not support bank.hot-account");
+        require(!replicaProperties.isEnabled(), "bank.sharding does not support bank.replica");
+        require(!journalProperties.isRestoreOnStartup(), "bank.sharding does not support bank.journal.restore-on-startup");
+        shardJdbc = new ArrayList<>(shardingProperties.shardCount());
+        for (DataSource shard : shardRoutingDataSource.getShards()) {
+            shardJdbc.add(new JdbcTemplate(shard));
+        }
+        directory = Caffeine.newBuilder().maximumSize(shardingProperties.getDirectoryCacheSize()).build();
+        fanOutExecutor = Executors.newFixedThreadPool(Math.max(1, shardingProperties.getFanOutThreads()),
+                new NamedThreadFactory("shard-fan-out-", true));
+        if (meterRegistry != null) {
+            fanOuts = Counter.builder("bank.sharding.fan-outs").register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    public int shardCount() {
+        return shardJdbc.size();
+    }
+
+    /**
+     * 用户的账户所在分片
+     */
+    public int shardOfUser(String userUid) {
+        CRC32 crc = new CRC32();
+        crc.update(userUid.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardCount());
+    }
+
+    /**
+     * 按目录查卡号所在分片，目录中没有表示卡号没有发放过
+     */
+    public Optional<Integer> shardOfCard(String bankCardNumber) {
+        Integer shard = directory.getIfPresent(bankCardNumber);
+        if (shard == null) {
+            shard = home().query(SELECT_SHARD, rs -> rs.next() ? rs.getInt(1) : null, bankCardNumber);
+            if (shard != null) {
+                directory.put(bankCardNumber, shard);
+            }
+        }
+        return Optional.ofNullable(shard);
+    }
+
+    /**
+     * 把当前线程路由到卡号所在分片；目录中没有的卡号不在任何分片上，路由到主库，查询自然查不到
+     */
+    public Scope forCard(String bankCardNumber) {
+        return enter(shardOfCard(bankCardNumber).orElse(HOME));
+    }
+
+    /**
+     * 把当前线程路由到用户的账户所在分片
+     */
+    public Scope forUser(String userUid) {
+        return enter(shardOfUser(userUid));
+    }
+
+    public Scope onShard(int shard) {
+        if (shard < 0 || shard >= shardCount()) {
+            throw new IllegalArgumentException("no such shard: " + shard);
+        }
+        return enter(shard);
+    }
+
+    /**
+     * 开户前在目录中占用卡号。卡号已登记在同一分片上时视为成功，由分片上的唯一约束判断账户是否已存在；
+     * 当前事务回滚时释放本次登记的条目
+     *
+     * @return 卡号已被其他分片占用时返回 false
+     */
+    public boolean claim(String bankCardNumber, int shard) {
+        try {
+            home().update(INSERT_ENTRY, bankCardNumber, shard);
+        } catch (DuplicateKeyException e) {
+            return shardOfCard(bankCardNumber).map(claimed -> claimed == shard).orElse(false);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(bankCardNumber, shard);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * 目录中已登记的卡号，包括已删除的账户
+     */
+    public Set<String> claimedCards(Collection<String> bankCardNumbers) {
+        if (bankCardNumbers.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String placeholders = String.join(",", Collections.nCopies(bankCardNumbers.size(), "?"));
+        return new HashSet<>(home().queryForList(String.format(SELECT_CLAIMED, placeholders), String.class,
+                bankCardNumbers.toArray()));
+    }
+
+    /**
+     * 遍历目录中的全部卡号
+     */
+    public void forEachCard(Consumer<String> action) {
+        home().query(SELECT_CARDS, rs -> {
+            action.accept(rs.getString(1));
+        });
+    }
+
+    /**
+     * 直接使用分片的连接，不经过路由，也不参与当前事务
+     */
+    public JdbcTemplate jdbc(int shard) {
+        return shardJdbc.get(shard);
+    }
+
+    /**
+     * 卡号所在分片的连接，不参与当前事务
+     */
+    public JdbcTemplate jdbcForCard(String bankCardNumber) {
+        return jdbc(shardOfCard(bankCardNumber).orElse(HOME));
+    }
+
+    /**
+     * 在每个分片上并行执行，按分片顺序返回结果。每个分片在各自的线程上执行、已路由到该分片，不参与调用方的事务
+     */
+    public <T> List<T> onAllShards(IntFunction<T> task) {
+        if (fanOuts != null) {
+            fanOuts.increment();
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount());
+        for (int i = 0; i < shardCount(); i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try (Scope ignored = enter(shard)) {
+                    return task.apply(shard);
+                }
+            }, fanOutExecutor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(shardingProperties.getFanOutTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "跨分片查询超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "跨分片查询被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, String.valueOf(e.getCause()));
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    /**
+     * 每个分片的账户数、未删除的账户数与余额合计（并行查询），以及目录中登记在该分片上的卡号数
+     */
+    public List<Map<String, Object>> stats() {
+        Map<Integer, Long> directoryCounts = new HashMap<>();
+        home().query(SELECT_DIRECTORY_COUNTS, rs -> {
+            directoryCounts.put(rs.getInt("shard"), rs.getLong("cards"));
+        });
+        return onAllShards(shard -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("shard", shard);
+            stats.putAll(jdbc(shard).queryForMap(SELECT_ACCOUNT_STATS));
+            stats.put("directoryCards", directoryCounts.getOrDefault(shard, 0L));
+            return stats;
+        });
+    }
+
+    private JdbcTemplate home() {
+        return shardJdbc.get(HOME);
+    }
+
+    private void release(String bankCardNumber, int shard) {
+        try {
+            home().update(DELETE_ENTRY, bankCardNumber, shard);
+            directory.invalidate(bankCardNumber);
+        } catch (RuntimeException e) {
+            // 残留的条目只指向开户用户的分片，该用户可以重新开户
+            log.warn("release card {} from shard directory failed: {}", bankCardNumber, e.getMessage());
+        }
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * 把当前线程路由到指定分片；当前事务已在其他分片上取过连接时拒绝切换
+     */
+    static Scope enter(int shard) {
+        Integer bound = boundShard();
+        if (bound != null && bound != shard) {
+            throw new IllegalStateException("transaction is bound to shard " + bound + ", cannot switch to shard " + shard);
+        }
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return new Scope(previous);
+    }
+
+    /**
+     * 当前事务已绑定的分片，否则为当前线程路由到的分片
+     */
+    static int currentShard() {
+        Integer bound = boundShard();
+        return bound != null ? bound : routedShard();
+    }
+
+    static int routedShard() {
+        Integer shard = CURRENT.get();
+        return shard == null ? HOME : shard;
+    }
+
+    /**
+     * 事务第一次取连接时登记所在分片，随事务的同步一起挂起与清除
+     */
+    static void bindTransaction(int shard) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() && boundShard() == null) {
+            TransactionSynchronizationManager.registerSynchronization(new ShardBinding(shard));
+        }
+    }
+
+    private static Integer boundShard() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof ShardBinding) {
+                return ((ShardBinding) synchronization).shard;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 路由范围，关闭时恢复到进入前的分片
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Integer previous;
+
+        private boolean closed;
+
+        private Scope(Integer previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    private static final class ShardBinding implements TransactionSynchronization {
+
+        private final int shard;
+
+        private ShardBinding(int shard) {
+            this.shard = shard;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.org.bank.manage.system.service.shard;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.ShardingProperties;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.repository.entity.PendingTransfer;
+import com.org.bank.manage.system.repository.projection.AccountBalanceView;
+import com.org.bank.manage.system.request.BankTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.history.TransferRecordWriter;
+import com.org.bank.manage.system.service.journal.JournalEntry;
+import com.org.bank.manage.system.service.journal.TransferJournalWriter;
+import com.org.bank.manage.system.service.lock.AccountLockManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 跨分片转账（bank.sharding.enabled=true 时启用）。
+ * <p>
+ * 转账双方在不同数据库上，无法在一个本地事务中完成，按以下步骤执行，每一步是所在分片上的一个独立事务：
+ * 在转入分片上校验入账账户；在转出分片上扣款、写转出方流水与待完成记录（pending_transfer）；
+ * 在转入分片上入账并写转入方流水；最后在转出分片上删除待完成记录。
+ * 入账按流水号幂等：转入方已有该流水号的流水时不再入账。入账报错时先确认转入方确实没有流水才退回扣款
+ * （同一事务中删除待完成记录与转出方流水），入账其实已提交时按成功返回，无法确认时保留待完成记录。
+ * 扣款提交后、入账或退回完成前，转出方余额已减少而转入方尚未增加，其他请求可能读到这一中间状态；
+ * 进程在中途退出、退回失败或无法确认入账结果时，超过 bank.sharding.recovery-delay 的待完成记录由 {@link #recover}
+ * 完成入账，入账账户已不存在或户名不符时退回扣款。
+ *
+ * @author tucker
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "bank.sharding", name = "enabled", havingValue = "true")
+public class CrossShardTransfer {
+
+    private static final String INSERT_PENDING = "INSERT INTO pending_transfer (tx_id, send_account_holder_name, " +
+            "send_bank_card_number, receive_account_holder_name, receive_bank_card_number, amount, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_PENDING = "SELECT * FROM pending_transfer WHERE created_at < ? ORDER BY created_at";
+
+    private static final String LOCK_PENDING = "SELECT tx_id FROM pending_transfer WHERE tx_id = ? FOR UPDATE";
+
+    private static final String DELETE_PENDING = "DELETE FROM pending_transfer WHERE tx_id = ?";
+
+    @Autowired
+    AccountShards accountShards;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    AccountLockManager accountLockManager;
+
+    @Autowired
+    TransferRecordWriter transferRecordWriter;
+
+    @Autowired
+    AccountCacheSupport accountCacheSupport;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ShardingProperties shardingProperties;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    /**
+     * 仅在 bank.journal.enabled=true 时存在
+     */
+    @Autowired(required = false)
+    TransferJournalWriter transferJournalWriter;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    /**
+     * 每一步挂起调用方的事务，在新事务中执行
+     */
+    private TransactionTemplate stepTemplate;
+
+    private Counter committed;
+
+    private Counter refunded;
+
+    private Counter refundFailed;
+
+    private Counter recovered;
+
+    @PostConstruct
+    public void init() {
+        stepTemplate = new TransactionTemplate(transactionManager);
+        stepTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (meterRegistry != null) {
+            committed = counter("committed");
+            refunded = counter("refunded");
+            refundFailed = counter("refund-failed");
+            recovered = counter("recovered");
+        }
+    }
+
+    /**
+     * 转账双方是否在不同分片上，目录中没有的卡号按主库计
+     */
+    public boolean crossesShards(BankTransferVO bankTransferVO) {
+        return shardOf(bankTransferVO.getSendBankCardNumber()) != shardOf(bankTransferVO.getReceiveBankCardNumber());
+    }
+
+    public BaseResponse<?> transfer(BankTransferVO bankTransferVO) {
+        int senderShard = shardOf(bankTransferVO.getSendBankCardNumber());
+        int receiverShard = shardOf(bankTransferVO.getReceiveBankCardNumber());
+        String txId = UUID.randomUUID().toString();
+        // 入账账户不存在或户名不对时在扣款前拒绝，不必退回
+        step(receiverShard, () -> checkReceiver(bankTransferVO));
+        step(senderShard, () -> debit(txId, bankTransferVO));
+        try {
+            step(receiverShard, () -> credit(txId, bankTransferVO));
+        } catch (RuntimeException e) {
+            if (!credited(txId, bankTransferVO, receiverShard, e)) {
+                refund(txId, bankTransferVO, senderShard, e);
+                throw e;
+            }
+            log.warn("cross-shard transfer {} reported a credit failure but was credited: {}", txId, e.getMessage());
+        }
+        complete(txId, senderShard);
+        increment(committed);
+        return ResultUtils.success("transfer cash successfully");
+    }
+
+    /**
+     * 恢复任务：扫描各分片上超过 recovery-delay 的待完成记录，逐条完成入账或退回扣款；
+     * 处理时锁住待完成记录，多个节点的恢复任务与转账请求的退回互斥
+     */
+    @Scheduled(initialDelayString = "${bank.sharding.recovery-interval-ms:30000}",
+            fixedDelayString = "${bank.sharding.recovery-interval-ms:30000}")
+    public void recover() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(shardingProperties.getRecoveryDelay()));
+        for (int shard = 0; shard < accountShards.shardCount(); shard++) {
+            List<PendingTransfer> pending = accountShards.jdbc(shard).query(SELECT_PENDING,
+                    new BeanPropertyRowMapper<>(PendingTransfer.class), cutoff);
+            for (PendingTransfer transfer : pending) {
+                int senderShard = shard;
+                try {
+                    step(senderShard, () -> resolve(transfer));
+                } catch (RuntimeException e) {
+                    log.warn("recover cross-shard transfer {} failed, retry later: {}", transfer.getTxId(),
+                            e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Void resolve(PendingTransfer transfer) {
+        String txId = transfer.getTxId();
+        if (jdbcTemplate.queryForList(LOCK_PENDING, String.class, txId).isEmpty()) {
+            return null;
+        }
+        BankTransferVO bankTransferVO = new BankTransferVO(transfer.getSendAccountHolderName(),
+                transfer.getSendBankCardNumber(), transfer.getAmount(), transfer.getReceiveAccountHolderName(),
+                transfer.getReceiveBankCardNumber());
+        int receiverShard = shardOf(transfer.getReceiveBankCardNumber());
+        try {
+            step(receiverShard, () -> credit(txId, bankTransferVO));
+        } catch (CreditRejectedException e) {
+            // 入账账户已不存在或户名不符，入账不会成功，在锁住待完成记录的事务中退回
+            refundLocked(txId, bankTransferVO);
+            increment(refunded);
+            log.warn("cross-shard transfer {} refunded by recovery: {}", txId, e.getMessage());
+            return null;
+        }
+        jdbcTemplate.update(DELETE_PENDING, txId);
+        increment(recovered);
+        log.info("cross-shard transfer {} completed by recovery", txId);
+        return null;
+    }
+
+    private Void checkReceiver(BankTransferVO bankTransferVO) {
+        String receiveBankCardNumber = bankTransferVO.getReceiveBankCardNumber();
+        AccountBalanceView receiver = bankAccountRepository.findBalanceView(receiveBankCardNumber)
+                .orElseThrow(() -> new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS,
+                        "账户" + receiveBankCardNumber + "不存在"));
+        if (!receiver.getAccountHolderName().equals(bankTransferVO.getReceiveAccountHolderName().trim())) {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "入账的账户名不正确");
+        }
+        return null;
+    }
+
+    private Void debit(String txId, BankTransferVO bankTransferVO) {
+        String sendBankCardNumber = bankTransferVO.getSendBankCardNumber();
+        BigDecimal amount = bankTransferVO.getAmount();
+        try (AccountLockManager.Handle ignored = accountLockManager.lock(sendBankCardNumber)) {
+            BankAccount sender = load(sendBankCardNumber);
+            if (!sender.getAccountHolderName().equals(bankTransferVO.getSendAccountHolderName().trim())) {
+                throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转账出的账户名不正确");
+            }
+            if (sender.getBalance().compareTo(amount) < 0) {
+                throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转账出的余额不足");
+            }
+            sender.setBalance(sender.getBalance().subtract(amount));
+            transferRecordWriter.recordLeg(txId, sendBankCardNumber, bankTransferVO.getReceiveBankCardNumber(),
+                    amount.negate());
+            jdbcTemplate.update(INSERT_PENDING, txId, bankTransferVO.getSendAccountHolderName().trim(),
+                    sendBankCardNumber, bankTransferVO.getReceiveAccountHolderName().trim(),
+                    bankTransferVO.getReceiveBankCardNumber(), amount, Timestamp.valueOf(LocalDateTime.now()));
+            journal(txId, JournalEntry.TRANSFER, sendBankCardNumber, amount.negate(), sender.getBalance());
+            accountCacheSupport.accountChanged(sendBankCardNumber);
+            return null;
+        }
+    }
+
+    /**
+     * 入账；转入方已有该流水号的流水时说明已经入过账，直接返回
+     */
+    private Void credit(String txId, BankTransferVO bankTransferVO) {
+        String receiveBankCardNumber = bankTransferVO.getReceiveBankCardNumber();
+        BigDecimal amount = bankTransferVO.getAmount();
+        try (AccountLockManager.Handle ignored = accountLockManager.lock(receiveBankCardNumber)) {
+            if (transferRecordWriter.hasLeg(txId, receiveBankCardNumber)) {
+                return null;
+            }
+            BankAccount receiver = bankAccountRepository.loadByBankCardNumber(receiveBankCardNumber)
+                    .orElseThrow(() -> new CreditRejectedException(ErrorCode.ACCOUNT_NOT_EXISTS,
+                            "账户" + receiveBankCardNumber + "不存在"));
+            if (!receiver.getAccountHolderName().equals(bankTransferVO.getReceiveAccountHolderName().trim())) {
+                throw new CreditRejectedException(ErrorCode.TRANSFER_NOT_ALLOWED, "入账的账户名不正确");
+            }
+            receiver.setBalance(receiver.getBalance().add(amount));
+            transferRecordWriter.recordLeg(txId, receiveBankCardNumber, bankTransferVO.getSendBankCardNumber(),
+                    amount);
+            journal(txId, JournalEntry.TRANSFER, receiveBankCardNumber, amount, receiver.getBalance());
+            accountCacheSupport.accountChanged(receiveBankCardNumber);
+            return null;
+        }
+    }
+
+    /**
+     * 入账报错后确认转入方是否已有流水：入账可能已提交而提交结果没有返回。无法确认时保留待完成记录，交给恢复任务
+     */
+    private boolean credited(String txId, BankTransferVO bankTransferVO, int receiverShard, RuntimeException cause) {
+        try {
+            return step(receiverShard, () -> transferRecordWriter.hasLeg(txId,
+                    bankTransferVO.getReceiveBankCardNumber()));
+        } catch (RuntimeException e) {
+            log.error("cross-shard transfer {} credit outcome unknown ({}), left to recovery", txId,
+                    cause.getMessage(), e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "转账" + txId + "入账结果未知，将自动完成或退回");
+        }
+    }
+
+    /**
+     * 退回扣款；待完成记录已被恢复任务处理时不再退回
+     */
+    private void refund(String txId, BankTransferVO bankTransferVO, int senderShard, RuntimeException cause) {
+        boolean refundedHere;
+        try {
+            refundedHere = step(senderShard, () -> refundLocked(txId, bankTransferVO));
+        } catch (RuntimeException e) {
+            increment(refundFailed);
+            log.error("cross-shard transfer {} debited {} by {} but was neither credited nor refunded, left to recovery",
+                    txId, bankTransferVO.getSendBankCardNumber(), bankTransferVO.getAmount(), e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "转账" + txId + "入账失败且未能退回，将自动完成或退回");
+        }
+        if (!refundedHere) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "转账" + txId + "已由恢复任务处理");
+        }
+        increment(refunded);
+        log.warn("cross-shard transfer {} refunded to {}: {}", txId, bankTransferVO.getSendBankCardNumber(),
+                cause.getMessage());
+    }
+
+    /**
+     * 在转出分片的事务中删除待完成记录，删除成功才退回扣款并删除转出方流水；转账日志中补写 ABORT，重放时忽略这笔转账
+     */
+    private boolean refundLocked(String txId, BankTransferVO bankTransferVO) {
+        if (jdbcTemplate.update(DELETE_PENDING, txId) == 0) {
+            return false;
+        }
+        String sendBankCardNumber = bankTransferVO.getSendBankCardNumber();
+        BigDecimal amount = bankTransferVO.getAmount();
+        try (AccountLockManager.Handle ignored = accountLockManager.lock(sendBankCardNumber)) {
+            BankAccount sender = load(sendBankCardNumber);
+            sender.setBalance(sender.getBalance().add(amount));
+            transferRecordWriter.deleteLeg(txId, sendBankCardNumber);
+            journal(txId, JournalEntry.ABORT, sendBankCardNumber, amount, sender.getBalance());
+            accountCacheSupport.accountChanged(sendBankCardNumber);
+            return true;
+        }
+    }
+
+    /**
+     * 入账完成后删除待完成记录；删除失败时记录由恢复任务确认已入账后删除
+     */
+    private void complete(String txId, int senderShard) {
+        try {
+            step(senderShard, () -> jdbcTemplate.update(DELETE_PENDING, txId));
+        } catch (RuntimeException e) {
+            log.warn("delete pending cross-shard transfer {} failed, left to recovery: {}", txId, e.getMessage());
+        }
+    }
+
+    /**
+     * 在分片上的新事务中执行一步；先开始事务再路由，调用方的事务已在其他分片上取过连接也不受影响
+     */
+    private <T> T step(int shard, Supplier<T> action) {
+        return stepTemplate.execute(status -> {
+            try (AccountShards.Scope ignored = accountShards.onShard(shard)) {
+                return action.get();
+            }
+        });
+    }
+
+    private BankAccount load(String bankCardNumber) {
+        return bankAccountRepository.loadByBankCardNumber(bankCardNumber)
+                .orElseThrow(() -> new BusinessException(ErrorCode.ACCOUNT_NOT_EXISTS,
+                        "账户" + bankCardNumber + "不存在"));
+    }
+
+    private void journal(String txId, String phase, String bankCardNumber, BigDecimal amount, BigDecimal balance) {
+        if (transferJournalWriter != null) {
+            transferJournalWriter.record(List.of(new JournalEntry(txId, phase, bankCardNumber, amount, balance,
+                    System.currentTimeMillis())));
+        }
+    }
+
+    private int shardOf(String bankCardNumber) {
+        return accountShards.shardOfCard(bankCardNumber).orElse(AccountShards.HOME);
+    }
+
+    private Counter counter(String outcome) {
+        return Counter.builder("bank.sharding.cross-shard-transfers").tag("outcome", outcome).register(meterRegistry);
+    }
+
+    private void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * 入账账户不存在或户名不符，重试也不会成功
+     */
+    static final class CreditRejectedException extends BusinessException {
+
+        CreditRejectedException(ErrorCode errorCode, String description) {
+            super(errorCode, description);
+        }
+    }
+}
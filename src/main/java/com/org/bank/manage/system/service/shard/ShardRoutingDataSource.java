@@ -0,0 +1,62 @@
+package com.org.bank.manage.system.service.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分片路由数据源：按当前线程所在的分片（{@link AccountShards#onShard} 设置，默认主库）取连接，
+ * 取连接时把分片登记到当前事务上，之后该事务不能再切换到其他分片。
+ * <p>
+ * 事务管理器在事务开始时就取连接，此时业务代码还没有确定分片，
+ * 因此外面需要包一层 {@code LazyConnectionDataSourceProxy}，等第一条语句执行时再决定取哪个分片的连接。
+ *
+ * @author tucker
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = Collections.unmodifiableList(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(AccountShards.HOME));
+        afterPropertiesSet();
+    }
+
+    /**
+     * 各分片自己的数据源，不经过路由，也不参与当前事务
+     */
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        int shard = AccountShards.routedShard();
+        AccountShards.bindTransaction(shard);
+        return shard;
+    }
+
+    /**
+     * 主库的连接池是单独的 bean，由容器关闭；这里关闭其余分片的连接池
+     */
+    @Override
+    public void close() throws IOException {
+        for (int i = 1; i < shards.size(); i++) {
+            if (shards.get(i) instanceof Closeable) {
+                ((Closeable) shards.get(i)).close();
+            }
+        }
+    }
+}
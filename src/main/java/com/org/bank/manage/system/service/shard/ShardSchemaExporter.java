@@ -0,0 +1,60 @@
+package com.org.bank.manage.system.service.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+/**
+ * 主库以外的分片的表结构：Hibernate 只按 spring.jpa.hibernate.ddl-auto 处理默认数据源（主库），
+ * 这里在启动时用同一份映射、同样的配置对其他分片各执行一次；ddl-auto 为 none 时什么都不做。
+ * create-drop 时其他分片只建表，关闭时不删除。
+ *
+ * @author tucker
+ */
+@Slf4j
+public class ShardSchemaExporter implements Integrator, SmartInitializingSingleton {
+
+    private final int shardCount;
+
+    private Metadata metadata;
+
+    private SessionFactoryImplementor sessionFactory;
+
+    public ShardSchemaExporter(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    /**
+     * 容器中的单例（包括 EntityManagerFactory）都创建完后、开始处理请求之前执行
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (metadata == null) {
+            return;
+        }
+        for (int shard = 1; shard < shardCount; shard++) {
+            try (AccountShards.Scope ignored = AccountShards.enter(shard)) {
+                SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                        sessionFactory.getProperties(), action -> {
+                        });
+            }
+            log.info("schema of shard {} processed", shard);
+        }
+    }
+}
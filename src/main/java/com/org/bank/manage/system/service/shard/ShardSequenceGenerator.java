@@ -0,0 +1,74 @@
+package com.org.bank.manage.system.service.shard;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 账户 id 生成器：每个分片各有一个同名序列，按当前事务所在分片的序列取值，id = 序列值 * 1024 + 分片号，
+ * 各分片的 id 互不重复，二级缓存可以继续按 id 缓存。未启用分片时（分片数为 1）与序列值相同。
+ * <p>
+ * 每个分片单独一个 {@link SequenceStyleGenerator}，各自的 pooled-lo 号段在内存中分配。
+ *
+ * @author tucker
+ */
+public class ShardSequenceGenerator implements IdentifierGenerator {
+
+    /**
+     * Hibernate 配置项：分片数，由 ShardDataSourceConfig 设置
+     */
+    public static final String SHARD_COUNT = "bank.sharding.shard-count";
+
+    private SequenceStyleGenerator[] shards;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        int shardCount = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(SHARD_COUNT, StandardConverters.INTEGER, 1);
+        if (shardCount < 1 || shardCount > AccountShards.MAX_SHARDS) {
+            throw new MappingException("invalid shard count: " + shardCount);
+        }
+        shards = new SequenceStyleGenerator[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new SequenceStyleGenerator();
+            shards[i].configure(type, params, serviceRegistry);
+        }
+    }
+
+    /**
+     * 各分片的序列同名，登记为同一个数据库对象，在每个分片上各建一次
+     */
+    @Override
+    public void registerExportables(Database database) {
+        for (SequenceStyleGenerator shard : shards) {
+            shard.registerExportables(database);
+        }
+    }
+
+    @Override
+    public void initialize(SqlStringGenerationContext context) {
+        for (SequenceStyleGenerator shard : shards) {
+            shard.initialize(context);
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (shards.length == 1) {
+            return shards[0].generate(session, object);
+        }
+        int shard = AccountShards.currentShard();
+        long value = ((Number) shards[shard].generate(session, object)).longValue();
+        return value * AccountShards.MAX_SHARDS + shard;
+    }
+}
@@ -0,0 +1,165 @@
+package com.org.bank.manage.system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.org.bank.manage.system.common.AccountStatus;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.config.CacheProperties;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.cache.ResponseBodyCache;
+import com.org.bank.manage.system.service.cache.SerializedResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+// 账户缓存精确维护与响应字节缓存的单元测试，使用真实的 Caffeine 缓存，数据库读取通过 Mockito 模拟
+class AccountCacheSupportTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private CaffeineCacheManager cacheManager;
+
+    private AccountCacheSupport accountCacheSupport;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder().expireAfterWrite(10, TimeUnit.MINUTES));
+        accountCacheSupport = new AccountCacheSupport();
+        ReflectionTestUtils.setField(accountCacheSupport, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(accountCacheSupport, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(accountCacheSupport, "responseBodyCache", responseBodyCache(cacheManager));
+        accountCacheSupport.init();
+        accountCacheSupport.setDetailView(a -> ResultUtils.success(a.getBalance()));
+    }
+
+    /**
+     * 写操作只淘汰账户所属用户的分页，其他用户的分页仍然命中；之后的分页键换用新代号
+     */
+    @Test
+    void testEvictOnlyOwnersPages() {
+        Cache pages = cacheManager.getCache(AccountCacheSupport.ACCOUNT_PAGES);
+        String ownerKey = accountCacheSupport.pageKey("owner", 1, 10);
+        String otherKey = accountCacheSupport.pageKey("other", 1, 10);
+        pages.put(ownerKey, ResultUtils.success("owner page"));
+        pages.put(otherKey, ResultUtils.success("other page"));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("NO-1")))
+                .thenReturn(List.of(account("NO-1", "owner", AccountStatus.ACTIVE)));
+
+        accountCacheSupport.accountChanged("NO-1");
+
+        assertNull(pages.get(ownerKey));
+        assertNotNull(pages.get(otherKey));
+        assertNotEquals(ownerKey, accountCacheSupport.pageKey("owner", 1, 10));
+        assertEquals(otherKey, accountCacheSupport.pageKey("other", 1, 10));
+    }
+
+    /**
+     * 详情按最新数据直接写入缓存，已删除的账户从缓存中移除
+     */
+    @Test
+    void testWriteThroughDetail() {
+        Cache detail = cacheManager.getCache(AccountCacheSupport.ACCOUNT_DETAIL);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("NO-1")))
+                .thenReturn(List.of(account("NO-1", "owner", AccountStatus.ACTIVE)));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("NO-2")))
+                .thenReturn(List.of(account("NO-2", "owner", AccountStatus.DELETED)));
+        detail.put("NO-2", ResultUtils.success(BigDecimal.ONE));
+
+        accountCacheSupport.accountsChanged(List.of("NO-1", "NO-2"));
+
+        BaseResponse<?> cached = (BaseResponse<?>) detail.get("NO-1").get();
+        assertEquals(new BigDecimal("42"), cached.getData());
+        assertNull(detail.get("NO-2"));
+    }
+
+    /**
+     * 响应字节随详情一起写入，之后的读取直接命中字节缓存，不再调用加载函数
+     */
+    @Test
+    void testSerializedDetail() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("NO-1")))
+                .thenReturn(List.of(account("NO-1", "owner", AccountStatus.ACTIVE)));
+
+        accountCacheSupport.accountChanged("NO-1");
+
+        ResponseBodyCache responseBodyCache = responseBodyCache(cacheManager);
+        SerializedResponse response = responseBodyCache.get(ResponseBodyCache.ACCOUNT_DETAIL_BYTES, "NO-1",
+                () -> fail("should be served from the byte cache"));
+        assertTrue(new String(response.getBody(), StandardCharsets.UTF_8).contains("\"data\":42"));
+        assertEquals(responseBodyCache.serialize(ResultUtils.success(new BigDecimal("42"))).getEtag(),
+                response.getEtag());
+    }
+
+    /**
+     * 分页加载器从分页键解析出用户与页码，用户 ID 中带有连字符也能正确解析
+     */
+    @Test
+    void testLoadPageFromKey() {
+        List<Object> args = new ArrayList<>();
+        accountCacheSupport.setPageView((pageNo, pageSize, userId) -> {
+            args.addAll(List.of(pageNo, pageSize, userId));
+            return ResultUtils.success(List.of("page"));
+        });
+
+        BaseResponse<?> page = accountCacheSupport.loadPage(accountCacheSupport.pageKey("user-a-1", 2, 10));
+
+        assertEquals(List.of("page"), page.getData());
+        assertEquals(List.of(2, 10, "user-a-1"), args);
+    }
+
+    /**
+     * 预热只写入缓存中还没有的账户，不覆盖写操作提交后写入的新值，跳过已删除的账户
+     */
+    @Test
+    void testWarmKeepsNewerValue() {
+        Cache detail = cacheManager.getCache(AccountCacheSupport.ACCOUNT_DETAIL);
+        detail.put("NO-1", ResultUtils.success(BigDecimal.TEN));
+
+        int warmed = accountCacheSupport.warm(List.of(account("NO-1", "owner", AccountStatus.ACTIVE),
+                account("NO-2", "owner", AccountStatus.ACTIVE), account("NO-3", "owner", AccountStatus.DELETED)));
+
+        assertEquals(1, warmed);
+        assertEquals(BigDecimal.TEN, ((BaseResponse<?>) detail.get("NO-1").get()).getData());
+        assertEquals(new BigDecimal("42"), ((BaseResponse<?>) detail.get("NO-2").get()).getData());
+        assertNull(detail.get("NO-3"));
+    }
+
+    private ResponseBodyCache responseBodyCache(CacheManager cacheManager) {
+        ResponseBodyCache responseBodyCache = new ResponseBodyCache();
+        ReflectionTestUtils.setField(responseBodyCache, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(responseBodyCache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(responseBodyCache, "cacheProperties", new CacheProperties());
+        return responseBodyCache;
+    }
+
+    private BankAccount account(String bankCardNumber, String userUid, AccountStatus status) {
+        BankAccount account = new BankAccount();
+        account.setBankCardNumber(bankCardNumber);
+        account.setUserUid(userUid);
+        account.setStatus(status);
+        account.setBalance(new BigDecimal("42"));
+        return account;
+    }
+}
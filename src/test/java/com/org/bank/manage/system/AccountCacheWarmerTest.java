@@ -0,0 +1,54 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.config.WarmUpProperties;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.cache.AccountCacheWarmer;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// 启动预热的单元测试，账户表读取与缓存写入通过 Mockito 模拟
+class AccountCacheWarmerTest {
+
+    /**
+     * 最新账户的 id 范围按分段并行读取，每个分段只读一次，失败的分段不影响其他分段
+     */
+    @Test
+    void testWarmUpInChunks() {
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        AccountCacheSupport accountCacheSupport = Mockito.mock(AccountCacheSupport.class);
+        when(jdbcTemplate.queryForMap(anyString(), eq(5000))).thenReturn(Map.of("low", 1L, "high", 2500L));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1501L), eq(2500L)))
+                .thenReturn(List.of(new BankAccount(), new BankAccount()));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(501L), eq(1500L)))
+                .thenThrow(new IllegalStateException("database down"));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(1L), eq(500L)))
+                .thenReturn(List.of(new BankAccount()));
+        when(accountCacheSupport.warm(anyCollection()))
+                .thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+        WarmUpProperties properties = new WarmUpProperties();
+        properties.setMaxAccounts(5000);
+        AccountCacheWarmer warmer = new AccountCacheWarmer();
+        ReflectionTestUtils.setField(warmer, "warmUpProperties", properties);
+        ReflectionTestUtils.setField(warmer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(warmer, "accountCacheSupport", accountCacheSupport);
+
+        assertEquals(3L, warmer.warmUp());
+        verify(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(1L), eq(500L));
+    }
+}
@@ -0,0 +1,85 @@
+package com.org.bank.manage.system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.service.BankManageService;
+import com.org.bank.manage.system.service.bulk.AccountExporter;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 账户流式导出测试，使用内存数据库中的 bankaccount 表
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class AccountExporterTest {
+
+    @Autowired
+    AccountExporter accountExporter;
+
+    @Autowired
+    BankManageService bankManageService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    /**
+     * 按 id 升序每行输出一个账户，只包含该用户的账户；导出的行不写入二级缓存
+     */
+    @Test
+    void testExportUser() throws Exception {
+        List<String> bankCardNumbers = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            bankCardNumbers.add("EXP-" + i);
+            bankManageService.createBankAccount(account("EXP-" + i, "export-user"));
+        }
+        bankManageService.createBankAccount(account("EXP-OTHER", "export-other"));
+        entityManagerFactory.getCache().evictAll();
+        long cachePuts = statistics().getSecondLevelCachePutCount();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = accountExporter.exportUser("export-user", out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1200, rows);
+        assertEquals(1200, lines.length);
+        List<String> exported = new ArrayList<>();
+        for (String line : lines) {
+            exported.add(objectMapper.readValue(line, CreateBankAccountVO.class).getBankCardNumber());
+        }
+        assertEquals(bankCardNumbers, exported);
+        assertEquals(new BigDecimal("10.00"), objectMapper.readValue(lines[0], CreateBankAccountVO.class).getBalance());
+        assertEquals(cachePuts, statistics().getSecondLevelCachePutCount());
+    }
+
+    /**
+     * 没有账户的用户导出为空
+     */
+    @Test
+    void testExportEmpty() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, accountExporter.exportUser("nobody", out));
+        assertEquals(0, out.size());
+    }
+
+    private org.hibernate.stat.Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private CreateBankAccountVO account(String bankCardNumber, String userId) {
+        return new CreateBankAccountVO("holder", "13800000000", "110101199001011234", null,
+                new BigDecimal("10.00"), "exported", bankCardNumber, userId);
+    }
+}
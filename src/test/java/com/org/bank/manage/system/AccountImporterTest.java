@@ -0,0 +1,102 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.request.AccountImportErrorVO;
+import com.org.bank.manage.system.request.AccountImportResultVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.service.BankManageService;
+import com.org.bank.manage.system.service.bulk.AccountImportFormat;
+import com.org.bank.manage.system.service.bulk.AccountImporter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 批量导入账户测试，使用内存数据库中的 bankaccount 表
+@SpringBootTest
+class AccountImporterTest {
+
+    @Autowired
+    AccountImporter accountImporter;
+
+    @Autowired
+    BankManageService bankManageService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    /**
+     * 不合法、格式错误、导入数据中重复与库中已存在的行逐行报告，其余行正常导入；id 由序列成段分配，连续递增
+     */
+    @Test
+    void testImportNdjsonWithRowErrors() throws Exception {
+        bankManageService.createBankAccount(account("IMP-EXISTING"));
+        String body = String.join("\n",
+                json("IMP-1"),
+                json("IMP-2"),
+                "",
+                "{\"bankCardNumber\": \"IMP-3\",",
+                json("IMP-1"),
+                json("IMP-EXISTING"),
+                "{\"bankCardNumber\": \"IMP-4\", \"userId\": \"import-user\"}",
+                json("IMP-5"));
+
+        AccountImportResultVO result = accountImporter.importAccounts(reader(body), AccountImportFormat.NDJSON);
+
+        assertEquals(7, result.getTotalRows());
+        assertEquals(3, result.getImportedCount());
+        assertEquals(4, result.getFailedCount());
+        assertEquals(List.of(4L, 5L, 6L, 7L),
+                result.getErrors().stream().map(AccountImportErrorVO::getLine).sorted().collect(Collectors.toList()));
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM bankaccount WHERE bank_card_number IN " +
+                "('IMP-1', 'IMP-2', 'IMP-5') ORDER BY id", Long.class);
+        assertEquals(3, ids.size());
+        assertEquals(ids.get(0) + 2, ids.get(2));
+        BaseResponse<?> detail = bankManageService.detailAccount("IMP-5");
+        assertEquals("IMP-5", ((CreateBankAccountVO) detail.getData()).getBankCardNumber());
+    }
+
+    /**
+     * CSV 按表头的列名取值，列的顺序任意，支持双引号包裹含逗号的字段
+     */
+    @Test
+    void testImportCsv() throws Exception {
+        String body = String.join("\n",
+                "bankCardNumber,userId,accountHolderName,contactNumber,idCard,balance,description",
+                "CSV-1,csv-user,\"Li, Lei\",13800000000,110101199001011234,100.50,\"a \"\"quoted\"\" note\"",
+                "CSV-2,csv-user,Han Meimei,13800000001,110101199001011235,not-a-number,plain");
+
+        AccountImportResultVO result = accountImporter.importAccounts(reader(body), AccountImportFormat.CSV);
+
+        assertEquals(1, result.getImportedCount());
+        assertEquals(3L, result.getErrors().get(0).getLine());
+        assertEquals("CSV-2", result.getErrors().get(0).getBankCardNumber());
+        assertEquals("Li, Lei", jdbcTemplate.queryForObject(
+                "SELECT account_holder_name FROM bankaccount WHERE bank_card_number = 'CSV-1'", String.class));
+        assertEquals("a \"quoted\" note", jdbcTemplate.queryForObject(
+                "SELECT description FROM bankaccount WHERE bank_card_number = 'CSV-1'", String.class));
+    }
+
+    private BufferedReader reader(String body) {
+        return new BufferedReader(new StringReader(body));
+    }
+
+    private String json(String bankCardNumber) {
+        return "{\"accountHolderName\": \"holder\", \"contactNumber\": \"13800000000\", " +
+                "\"idCard\": \"110101199001011234\", \"balance\": 10.00, \"description\": \"imported\", " +
+                "\"bankCardNumber\": \"" + bankCardNumber + "\", \"userId\": \"import-user\"}";
+    }
+
+    private CreateBankAccountVO account(String bankCardNumber) {
+        return new CreateBankAccountVO("holder", "13800000000", "110101199001011234", null,
+                new BigDecimal("10.00"), "existing", bankCardNumber, "import-user");
+    }
+}
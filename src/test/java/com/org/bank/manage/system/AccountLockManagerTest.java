@@ -0,0 +1,78 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.LockProperties;
+import com.org.bank.manage.system.service.lock.AccountLockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 账户分段锁的单元测试
+class AccountLockManagerTest {
+
+    private AccountLockManager lockManager;
+
+    @BeforeEach
+    void setUp() {
+        LockProperties properties = new LockProperties();
+        properties.setStripes(64);
+        properties.setTimeoutMs(100);
+        lockManager = new AccountLockManager(properties, null);
+    }
+
+    /**
+     * 两个线程以相反顺序锁同一对账户，按分段下标排序后不会死锁
+     */
+    @Test
+    void testOppositeOrderDoesNotDeadlock() throws Exception {
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> lockRepeatedly("A", "B"));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> lockRepeatedly("B", "A"));
+
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+        assertEquals(64, lockManager.stripeCount());
+    }
+
+    /**
+     * 账户被长时间持有时，其他线程等待超时后收到业务异常，且超时被计入统计
+     */
+    @Test
+    void testLockTimeout() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try (AccountLockManager.Handle ignored = lockManager.lock("A")) {
+                locked.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        BusinessException exception = assertThrows(BusinessException.class, () -> lockManager.lock("A"));
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertEquals(ErrorCode.ACCOUNT_LOCK_TIMEOUT.getMessage(), exception.getMessage());
+        assertEquals(1, lockManager.getTimeouts());
+        assertEquals(1, lockManager.mostContendedStripes(5).size());
+        // 超时释放后可以再次加锁
+        try (AccountLockManager.Handle ignored = lockManager.lock("A")) {
+            assertTrue(lockManager.waitHistogram().get("<=1us") > 0);
+        }
+    }
+
+    private void lockRepeatedly(String first, String second) {
+        for (int i = 0; i < 10_000; i++) {
+            try (AccountLockManager.Handle ignored = lockManager.lock(first, second)) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.PageRes;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.monitor.AccountShardEndpoint;
+import com.org.bank.manage.system.request.BankTransferBatchVO;
+import com.org.bank.manage.system.request.BankTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.service.BankManageService;
+import com.org.bank.manage.system.service.history.TransferRecordWriter;
+import com.org.bank.manage.system.service.shard.AccountShards;
+import com.org.bank.manage.system.service.shard.CrossShardTransfer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+
+// 分库测试：主库之外再配置两个内存数据库分片，账户按用户分布在三个分片上
+@SpringBootTest(properties = {
+        "bank.sharding.enabled=true",
+        "bank.sharding.urls[0]=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "bank.sharding.urls[1]=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+        "bank.sharding.username=sa",
+        "bank.sharding.recovery-delay=0s",
+        "bank.sharding.recovery-interval-ms=3600000"})
+class AccountShardingTest {
+
+    @Autowired
+    BankManageService bankManageService;
+
+    @Autowired
+    AccountShards accountShards;
+
+    @Autowired
+    AccountShardEndpoint accountShardEndpoint;
+
+    @Autowired
+    CrossShardTransfer crossShardTransfer;
+
+    @SpyBean
+    TransferRecordWriter transferRecordWriter;
+
+    /**
+     * 账户写入开户用户所在的分片，id 的低位是分片号，目录中登记卡号，按卡号查询与按用户分页都路由到该分片
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAccountsLandOnUserShard() {
+        for (int shard = 0; shard < accountShards.shardCount(); shard++) {
+            String userId = userOnShard(shard, "place");
+            String card = "SHARD-PLACE-" + shard;
+            bankManageService.createBankAccount(account(card, userId, "100"));
+
+            Long id = accountShards.jdbc(shard).queryForObject(
+                    "SELECT id FROM bankaccount WHERE bank_card_number = ?", Long.class, card);
+            assertEquals(shard, id % AccountShards.MAX_SHARDS);
+            for (int other = 0; other < accountShards.shardCount(); other++) {
+                if (other != shard) {
+                    assertEquals(0, count(other, card));
+                }
+            }
+            assertEquals(shard, accountShards.shardOfCard(card).orElseThrow());
+            BaseResponse<?> detail = bankManageService.detailAccount(card);
+            assertEquals(userId, ((CreateBankAccountVO) detail.getData()).getUserId());
+            PageRes<CreateBankAccountVO> page =
+                    (PageRes<CreateBankAccountVO>) bankManageService.listAccount(1, 10, userId).getData();
+            assertEquals(card, page.getData().get(0).getBankCardNumber());
+        }
+    }
+
+    /**
+     * 卡号在所有分片范围内唯一，其他分片上的用户用已登记的卡号开户会被拒绝
+     */
+    @Test
+    void testCardNumberUniqueAcrossShards() {
+        bankManageService.createBankAccount(account("SHARD-UNIQUE", userOnShard(1, "unique"), "1"));
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> bankManageService.createBankAccount(account("SHARD-UNIQUE", userOnShard(2, "unique"), "1")));
+
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_EXISTS.getCode(), exception.getCode());
+        assertEquals(0, count(2, "SHARD-UNIQUE"));
+    }
+
+    /**
+     * 跨分片转账两边各写一条流水；入账失败时退回扣款并删除转出方流水
+     */
+    @Test
+    void testCrossShardTransferAndRefund() {
+        bankManageService.createBankAccount(account("SHARD-FROM", userOnShard(1, "transfer"), "100"));
+        bankManageService.createBankAccount(account("SHARD-TO", userOnShard(2, "transfer"), "1"));
+
+        bankManageService.bankTransfer(new BankTransferVO("holder", "SHARD-FROM", new BigDecimal("30"),
+                "holder", "SHARD-TO"));
+
+        assertEquals(0, new BigDecimal("70").compareTo(balance(1, "SHARD-FROM")));
+        assertEquals(0, new BigDecimal("31").compareTo(balance(2, "SHARD-TO")));
+        assertEquals(1, records(1, "SHARD-FROM"));
+        assertEquals(1, records(2, "SHARD-TO"));
+
+        doThrow(new IllegalStateException("credit failed"))
+                .when(transferRecordWriter).recordLeg(anyString(), eq("SHARD-TO"), anyString(), any());
+        assertThrows(IllegalStateException.class, () -> bankManageService.bankTransfer(
+                new BankTransferVO("holder", "SHARD-FROM", new BigDecimal("20"), "holder", "SHARD-TO")));
+
+        assertEquals(0, new BigDecimal("70").compareTo(balance(1, "SHARD-FROM")));
+        assertEquals(0, new BigDecimal("31").compareTo(balance(2, "SHARD-TO")));
+        assertEquals(1, records(1, "SHARD-FROM"));
+        assertEquals(0, pending(1));
+    }
+
+    /**
+     * 入账与退回都失败时扣款后的待完成记录留在转出分片上，恢复任务完成入账，再次执行不会重复入账
+     */
+    @Test
+    void testPendingTransferRecovered() {
+        bankManageService.createBankAccount(account("SHARD-RECOVER-FROM", userOnShard(1, "recover"), "100"));
+        bankManageService.createBankAccount(account("SHARD-RECOVER-TO", userOnShard(2, "recover"), "1"));
+        doThrow(new IllegalStateException("credit failed"))
+                .when(transferRecordWriter).recordLeg(anyString(), eq("SHARD-RECOVER-TO"), anyString(), any());
+        doThrow(new IllegalStateException("refund failed"))
+                .when(transferRecordWriter).deleteLeg(anyString(), eq("SHARD-RECOVER-FROM"));
+
+        assertThrows(BusinessException.class, () -> bankManageService.bankTransfer(new BankTransferVO("holder",
+                "SHARD-RECOVER-FROM", new BigDecimal("30"), "holder", "SHARD-RECOVER-TO")));
+        assertEquals(0, new BigDecimal("70").compareTo(balance(1, "SHARD-RECOVER-FROM")));
+        assertEquals(0, new BigDecimal("1").compareTo(balance(2, "SHARD-RECOVER-TO")));
+        assertEquals(1, pending(1));
+
+        reset(transferRecordWriter);
+        crossShardTransfer.recover();
+        crossShardTransfer.recover();
+
+        assertEquals(0, new BigDecimal("70").compareTo(balance(1, "SHARD-RECOVER-FROM")));
+        assertEquals(0, new BigDecimal("31").compareTo(balance(2, "SHARD-RECOVER-TO")));
+        assertEquals(1, records(1, "SHARD-RECOVER-FROM"));
+        assertEquals(1, records(2, "SHARD-RECOVER-TO"));
+        assertEquals(0, pending(1));
+    }
+
+    /**
+     * 批量转账的账户必须在同一分片上；分片统计按分片返回账户数与目录条目数
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBatchAcrossShardsRejectedAndStats() {
+        bankManageService.createBankAccount(account("SHARD-BATCH-1", userOnShard(1, "batch"), "50"));
+        bankManageService.createBankAccount(account("SHARD-BATCH-2", userOnShard(2, "batch"), "50"));
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> bankManageService.bankTransferBatch(new BankTransferBatchVO(List.of(
+                        new BankTransferVO("holder", "SHARD-BATCH-1", new BigDecimal("10"), "holder", "SHARD-BATCH-2")))));
+        assertEquals(ErrorCode.TRANSFER_NOT_ALLOWED.getCode(), exception.getCode());
+        assertEquals(0, new BigDecimal("50").compareTo(balance(1, "SHARD-BATCH-1")));
+
+        Map<String, Object> result = accountShardEndpoint.shards();
+        assertEquals(true, result.get("enabled"));
+        assertEquals(3, result.get("shardCount"));
+        List<Map<String, Object>> shards = (List<Map<String, Object>>) result.get("shards");
+        assertEquals(3, shards.size());
+        for (Map<String, Object> shard : shards) {
+            int index = (Integer) shard.get("shard");
+            long accounts = accountShards.jdbc(index).queryForObject("SELECT COUNT(*) FROM bankaccount", Long.class);
+            assertEquals(accounts, ((Number) shard.get("ACCOUNTS")).longValue());
+            assertEquals(accounts, ((Number) shard.get("directoryCards")).longValue());
+        }
+    }
+
+    private String userOnShard(int shard, String prefix) {
+        for (int i = 0; i < 1000; i++) {
+            String userId = prefix + "-user-" + i;
+            if (accountShards.shardOfUser(userId) == shard) {
+                return userId;
+            }
+        }
+        throw new IllegalStateException("no user found on shard " + shard);
+    }
+
+    private long count(int shard, String bankCardNumber) {
+        return accountShards.jdbc(shard).queryForObject(
+                "SELECT COUNT(*) FROM bankaccount WHERE bank_card_number = ?", Long.class, bankCardNumber);
+    }
+
+    private BigDecimal balance(int shard, String bankCardNumber) {
+        return accountShards.jdbc(shard).queryForObject(
+                "SELECT balance FROM bankaccount WHERE bank_card_number = ?", BigDecimal.class, bankCardNumber);
+    }
+
+    private long records(int shard, String bankCardNumber) {
+        return accountShards.jdbc(shard).queryForObject(
+                "SELECT COUNT(*) FROM transfer_record WHERE bank_card_number = ?", Long.class, bankCardNumber);
+    }
+
+    private long pending(int shard) {
+        return accountShards.jdbc(shard).queryForObject("SELECT COUNT(*) FROM pending_transfer", Long.class);
+    }
+
+    private CreateBankAccountVO account(String bankCardNumber, String userId, String balance) {
+        return new CreateBankAccountVO("holder", "13800000000", "110101199001011234", null,
+                new BigDecimal(balance), "sharded", bankCardNumber, userId);
+    }
+}
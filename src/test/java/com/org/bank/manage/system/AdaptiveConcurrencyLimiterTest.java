@@ -0,0 +1,73 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.config.AdmissionProperties;
+import com.org.bank.manage.system.service.admission.AdaptiveConcurrencyLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 自适应并发限制的单元测试
+class AdaptiveConcurrencyLimiterTest {
+
+    /**
+     * 达到上限后直接拒绝并计数
+     */
+    @Test
+    void testShedAtLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(2), null);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.getShed());
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(limiter.tryAcquire());
+    }
+
+    /**
+     * 慢请求收缩上限，快请求在高并发下逐步放大上限
+     */
+    @Test
+    void testAdjustLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties(20), null);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(18, limiter.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(19, limiter.getLimit());
+    }
+
+    /**
+     * 批量转账的限制器按自己的目标延迟调整，一秒的批量请求不会收缩上限
+     */
+    @Test
+    void testBatchLimiterUsesOwnTarget() {
+        AdmissionProperties properties = properties(20);
+        AdaptiveConcurrencyLimiter batch = AdaptiveConcurrencyLimiter.forBatch(properties, null);
+        assertEquals(properties.getBatch().getInitialLimit(), batch.getLimit());
+
+        assertTrue(batch.tryAcquire());
+        batch.release(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(properties.getBatch().getInitialLimit(), batch.getLimit());
+
+        assertTrue(batch.tryAcquire());
+        batch.release(TimeUnit.SECONDS.toNanos(3));
+        assertTrue(batch.getLimit() < properties.getBatch().getInitialLimit());
+    }
+
+    private static AdmissionProperties properties(int initialLimit) {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(1);
+        properties.setQueueTimeoutMs(0);
+        return properties;
+    }
+}
@@ -0,0 +1,136 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.common.AsyncTransferStatus;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.AsyncTransferProperties;
+import com.org.bank.manage.system.request.AsyncTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.async.AsyncTransferExecutor;
+import com.org.bank.manage.system.service.async.AsyncTransferRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 异步转账执行器与结果登记的单元测试
+class AsyncTransferExecutorTest {
+
+    private AsyncTransferExecutor executor;
+
+    private AsyncTransferRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        AsyncTransferProperties properties = new AsyncTransferProperties();
+        properties.setQueueCapacity(1);
+        executor = new AsyncTransferExecutor();
+        ReflectionTestUtils.setField(executor, "asyncTransferProperties", properties);
+        executor.start();
+        registry = new AsyncTransferRegistry();
+        ReflectionTestUtils.setField(registry, "asyncTransferProperties", properties);
+        ReflectionTestUtils.setField(registry, "asyncTransferExecutor", executor);
+        registry.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.stop();
+    }
+
+    /**
+     * 受理数已满时直接拒绝，完成后释放名额
+     */
+    @Test
+    void testAdmissionBound() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<BaseResponse<?>> first = executor.submit(() -> {
+            await(release);
+            return ResultUtils.success("transfer cash successfully");
+        });
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> executor.submit(() -> ResultUtils.success("transfer cash successfully")));
+        assertEquals(ErrorCode.TRANSFER_BUSY.getCode(), exception.getCode());
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals("transfer cash successfully",
+                executor.submit(() -> ResultUtils.success("transfer cash successfully"))
+                        .get(5, TimeUnit.SECONDS).getMessage());
+    }
+
+    /**
+     * 按转账编号查询：成功带回原结果，业务失败带回错误码
+     */
+    @Test
+    void testStatus() throws Exception {
+        String succeeded = registry.submit(() -> executor.submit(() -> ResultUtils.success("transfer cash successfully")));
+        CompletableFuture<BaseResponse<?>> future = registry.find(succeeded);
+        future.get(5, TimeUnit.SECONDS);
+        AsyncTransferVO status = registry.status(succeeded, future);
+        assertEquals(AsyncTransferStatus.SUCCEEDED, status.getStatus());
+        assertEquals("transfer cash successfully", status.getResult().getMessage());
+
+        String failed = registry.submit(() -> executor.submit(() -> {
+            throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转账出的余额不足");
+        }));
+        CompletableFuture<BaseResponse<?>> failedFuture = registry.find(failed);
+        assertThrows(Exception.class, () -> failedFuture.get(5, TimeUnit.SECONDS));
+        AsyncTransferVO failedStatus = registry.status(failed, failedFuture);
+        assertEquals(AsyncTransferStatus.FAILED, failedStatus.getStatus());
+        assertEquals(ErrorCode.TRANSFER_NOT_ALLOWED.getCode(), failedStatus.getResult().getCode());
+    }
+
+    /**
+     * 未完成的转账不受结果数上限影响，之后完成的转账再多也能按编号查到
+     */
+    @Test
+    void testPendingTransferNotEvicted() throws Exception {
+        AsyncTransferProperties properties = new AsyncTransferProperties();
+        properties.setQueueCapacity(8);
+        properties.setMaxTrackedTransfers(1);
+        AsyncTransferExecutor boundedExecutor = new AsyncTransferExecutor();
+        ReflectionTestUtils.setField(boundedExecutor, "asyncTransferProperties", properties);
+        boundedExecutor.start();
+        AsyncTransferRegistry boundedRegistry = new AsyncTransferRegistry();
+        ReflectionTestUtils.setField(boundedRegistry, "asyncTransferProperties", properties);
+        ReflectionTestUtils.setField(boundedRegistry, "asyncTransferExecutor", boundedExecutor);
+        boundedRegistry.init();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            String pending = boundedRegistry.submit(() -> boundedExecutor.submit(() -> {
+                await(release);
+                return ResultUtils.success("transfer cash successfully");
+            }));
+            for (int i = 0; i < 5; i++) {
+                String done = boundedRegistry.submit(() -> boundedExecutor.submit(
+                        () -> ResultUtils.success("transfer cash successfully")));
+                boundedRegistry.find(done).get(5, TimeUnit.SECONDS);
+            }
+
+            CompletableFuture<BaseResponse<?>> future = boundedRegistry.find(pending);
+            assertEquals(AsyncTransferStatus.PENDING, boundedRegistry.status(pending, future).getStatus());
+            release.countDown();
+            future.get(5, TimeUnit.SECONDS);
+            assertEquals(AsyncTransferStatus.SUCCEEDED, boundedRegistry.status(pending, future).getStatus());
+        } finally {
+            boundedExecutor.stop();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.service.BankManageService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 余额增量更新的测试，使用内存数据库中的 bankaccount 表与二级缓存
+@SpringBootTest
+class BankAccountRepositoryTest {
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    BankManageService bankManageService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    /**
+     * 条件扣款与入账只淘汰被修改的账户，二级缓存中的其他账户保留；版本号已变时扣款不生效
+     */
+    @Test
+    void testDebitAndCreditEvictOnlyChangedAccounts() {
+        List<String> bankCardNumbers = List.of("REPO-DEBIT", "REPO-CREDIT", "REPO-OTHER");
+        for (String bankCardNumber : bankCardNumbers) {
+            bankManageService.createBankAccount(new CreateBankAccountVO("holder", "13800000000",
+                    "110101199001011234", null, new BigDecimal("100"), "repository", bankCardNumber, "repo-user"));
+        }
+        Map<String, Long> ids = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> bankCardNumbers.forEach(bankCardNumber ->
+                ids.put(bankCardNumber, bankAccountRepository.loadByBankCardNumber(bankCardNumber)
+                        .orElseThrow().getId())));
+        jakarta.persistence.Cache cache = entityManagerFactory.getCache();
+        bankCardNumbers.forEach(bankCardNumber -> assertTrue(cache.contains(BankAccount.class, ids.get(bankCardNumber))));
+        Long version = bankAccountRepository.findBalanceView("REPO-DEBIT").orElseThrow().getVersion();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(0, bankAccountRepository.debitIfUnchanged(new BigDecimal("10"), version + 1,
+                    LocalDateTime.now(), "REPO-DEBIT"));
+            assertEquals(1, bankAccountRepository.debitIfUnchanged(new BigDecimal("10"), version,
+                    LocalDateTime.now(), "REPO-DEBIT"));
+            assertEquals(1, bankAccountRepository.credit(new BigDecimal("10"), LocalDateTime.now(), "REPO-CREDIT"));
+        });
+
+        assertFalse(cache.contains(BankAccount.class, ids.get("REPO-DEBIT")));
+        assertFalse(cache.contains(BankAccount.class, ids.get("REPO-CREDIT")));
+        assertTrue(cache.contains(BankAccount.class, ids.get("REPO-OTHER")));
+        assertEquals(0, new BigDecimal("90").compareTo(balance("REPO-DEBIT")));
+        assertEquals(0, new BigDecimal("110").compareTo(balance("REPO-CREDIT")));
+    }
+
+    private BigDecimal balance(String bankCardNumber) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM bankaccount WHERE bank_card_number = ?",
+                BigDecimal.class, bankCardNumber);
+    }
+}
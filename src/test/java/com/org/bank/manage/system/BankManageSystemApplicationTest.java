@@ -5,26 +5,39 @@ import com.org.bank.manage.system.request.BaseResponse;
 import com.org.bank.manage.system.common.ErrorCode;
 import com.org.bank.manage.system.common.PageRes;
 import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.LockProperties;
 import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.TransferRecordRepository;
 import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.repository.entity.TransferRecord;
+import com.org.bank.manage.system.request.BankTransferBatchResultVO;
+import com.org.bank.manage.system.request.BankTransferBatchVO;
 import com.org.bank.manage.system.request.BankTransferVO;
 import com.org.bank.manage.system.request.CreateBankAccountVO;
 import com.org.bank.manage.system.request.DeleteBankAccountVO;
+import com.org.bank.manage.system.request.TransferRecordVO;
 import com.org.bank.manage.system.request.UpdateBankAccountVO;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.history.TransferRecordWriter;
 import com.org.bank.manage.system.service.impl.BankManageServiceImpl;
+import com.org.bank.manage.system.service.lock.AccountLockManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -32,7 +45,12 @@ import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 // 这是一个用于对银行管理系统进行单元测试的类
@@ -45,6 +63,24 @@ class BankManageSystemApplicationTest {
     @Mock // 模拟一个依赖对象，以隔离测试并控制其行为
     private BankAccountRepository bankAccountRepository;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransferRecordWriter transferRecordWriter;
+
+    @Mock
+    private TransferRecordRepository transferRecordRepository;
+
+    @Mock
+    private AccountCacheSupport accountCacheSupport;
+
+    @Mock // 转账的事务边界由 TransactionTemplate 控制，模拟的事务管理器直接执行回调
+    private PlatformTransactionManager transactionManager;
+
+    @Spy // 使用真实的分段锁实现
+    private AccountLockManager accountLockManager = new AccountLockManager(new LockProperties(), null);
+
     private BankAccount bankAccount; // 用于测试的单个银行账户实体对象
 
     private List<BankAccount> bankAccountList; // 用于分页测试的银行账户列表
@@ -55,6 +91,9 @@ class BankManageSystemApplicationTest {
      */
     @BeforeEach
     void setUp() {
+        // @InjectMocks 不会触发 @PostConstruct，手动初始化转账用的 TransactionTemplate
+        bankManageService.registerViews();
+
         // 初始化单个银行账户对象，作为测试的通用数据
         this.bankAccount = new BankAccount();
         bankAccount.setBankCardNumber("123456");
@@ -177,9 +216,9 @@ class BankManageSystemApplicationTest {
         updateBankAccountVO.setUserId("1234567");
         updateBankAccountVO.setStatus(AccountStatus.ACTIVE.getDisplayName());
 
-        // 模拟 findByBankCardNumber 方法：返回一个已存在的账户，以便进行更新
+        // 模拟 loadByBankCardNumber 方法：返回一个已存在的账户，以便进行更新
         when(bankAccountRepository
-                .findByBankCardNumber("123456")).thenReturn(
+                .loadByBankCardNumber("123456")).thenReturn(
                 Optional.ofNullable(this.bankAccount)
         );
         // 模拟 save 方法：返回任意对象，表示保存成功
@@ -204,9 +243,9 @@ class BankManageSystemApplicationTest {
         updateBankAccountVO.setBankCardNumber("123456");
         // ... 省略其他字段设置
 
-        // 模拟 findByBankCardNumber 方法：返回 null，表示账户不存在
+        // 模拟 loadByBankCardNumber 方法：返回 null，表示账户不存在
         when(bankAccountRepository
-                .findByBankCardNumber("123456")).thenReturn(
+                .loadByBankCardNumber("123456")).thenReturn(
                 Optional.ofNullable(null));
 
         // 验证是否抛出 BusinessException
@@ -231,9 +270,9 @@ class BankManageSystemApplicationTest {
         // ... 省略其他字段设置
         updateBankAccountVO.setStatus(AccountStatus.FROZEN.getDisplayName());
 
-        // 模拟 findByBankCardNumber 方法：返回 null，表示账户不存在
+        // 模拟 loadByBankCardNumber 方法：返回 null，表示账户不存在
         when(bankAccountRepository
-                .findByBankCardNumber("123456")).thenReturn(
+                .loadByBankCardNumber("123456")).thenReturn(
                 Optional.ofNullable(null));
 
         // 验证是否抛出 BusinessException
@@ -255,8 +294,8 @@ class BankManageSystemApplicationTest {
         DeleteBankAccountVO deleteBankAccountVO = new DeleteBankAccountVO();
         deleteBankAccountVO.setBankCardNumber("123456");
 
-        // 模拟 findByBankCardNumber 方法：返回一个已存在的账户
-        when(bankAccountRepository.findByBankCardNumber("123456")).thenReturn(
+        // 模拟 loadByBankCardNumber 方法：返回一个已存在的账户
+        when(bankAccountRepository.loadByBankCardNumber("123456")).thenReturn(
                 Optional.of(bankAccount)
         );
 
@@ -277,8 +316,8 @@ class BankManageSystemApplicationTest {
         DeleteBankAccountVO deleteBankAccountVO = new DeleteBankAccountVO();
         deleteBankAccountVO.setBankCardNumber("123456");
 
-        // 模拟 findByBankCardNumber 方法：返回 null，表示账户不存在
-        when(bankAccountRepository.findByBankCardNumber("123456")).thenReturn(
+        // 模拟 loadByBankCardNumber 方法：返回 null，表示账户不存在
+        when(bankAccountRepository.loadByBankCardNumber("123456")).thenReturn(
                 Optional.ofNullable(null)
         );
 
@@ -301,11 +340,12 @@ class BankManageSystemApplicationTest {
         int pageSize = 10;
         String userUid = "userId1";
         Pageable pageable = PageRequest.of(pageNo - 1, pageSize);
-        Page<BankAccount> page = new PageImpl<>(bankAccountList.subList(0, 10),
+        Page<CreateBankAccountVO> page = new PageImpl<>(bankAccountList.subList(0, 10).stream()
+                .map(this::accountView).collect(Collectors.toList()),
                 pageable, bankAccountList.size());
 
-        // 模拟 findAllWithPagination 方法：当传入特定参数时，返回之前准备好的分页数据
-        when(bankAccountRepository.findAllWithPagination(eq(pageable), eq(userUid)))
+        // 模拟 findAccountViews 投影查询：当传入特定参数时，返回之前准备好的分页数据
+        when(bankAccountRepository.findAccountViews(eq(pageable), eq(userUid)))
                 .thenReturn(page);
 
         // 调用被测试方法
@@ -352,9 +392,9 @@ class BankManageSystemApplicationTest {
         bankAccountTony.setUserUid("1234568");
         bankAccountTony.setStatus(AccountStatus.ACTIVE);
 
-        // 模拟 findByBankCardNumber 方法，返回转出方和转入方账户
-        when(bankAccountRepository.findByBankCardNumber("123456")).thenReturn(Optional.of(this.bankAccount));
-        when(bankAccountRepository.findByBankCardNumber("1235")).thenReturn(Optional.of(bankAccountTony));
+        // 模拟 loadByBankCardNumber 方法，返回转出方和转入方账户
+        when(bankAccountRepository.loadByBankCardNumber("123456")).thenReturn(Optional.of(this.bankAccount));
+        when(bankAccountRepository.loadByBankCardNumber("1235")).thenReturn(Optional.of(bankAccountTony));
 
         // 调用被测试方法
         BaseResponse<?> result = bankManageService.bankTransfer(bankTransferVO);
@@ -389,9 +429,9 @@ class BankManageSystemApplicationTest {
         bankAccountTony.setUserUid("1234568");
         bankAccountTony.setStatus(AccountStatus.ACTIVE);
 
-        // 模拟 findByBankCardNumber 方法
-        when(bankAccountRepository.findByBankCardNumber("123456")).thenReturn(Optional.of(this.bankAccount));
-        when(bankAccountRepository.findByBankCardNumber("1235")).thenReturn(Optional.of(bankAccountTony));
+        // 模拟 loadByBankCardNumber 方法
+        when(bankAccountRepository.loadByBankCardNumber("123456")).thenReturn(Optional.of(this.bankAccount));
+        when(bankAccountRepository.loadByBankCardNumber("1235")).thenReturn(Optional.of(bankAccountTony));
 
         // 验证是否抛出 BusinessException
         BusinessException exception =assertThrows(BusinessException.class, () -> {
@@ -428,9 +468,9 @@ class BankManageSystemApplicationTest {
         bankAccountTony.setUserUid("1234568");
         bankAccountTony.setStatus(AccountStatus.ACTIVE);
 
-        // 模拟 findByBankCardNumber 方法
-        when(bankAccountRepository.findByBankCardNumber("123456")).thenReturn(Optional.of(this.bankAccount));
-        when(bankAccountRepository.findByBankCardNumber("1235")).thenReturn(Optional.of(bankAccountTony));
+        // 模拟 loadByBankCardNumber 方法
+        when(bankAccountRepository.loadByBankCardNumber("123456")).thenReturn(Optional.of(this.bankAccount));
+        when(bankAccountRepository.loadByBankCardNumber("1235")).thenReturn(Optional.of(bankAccountTony));
 
         // 验证是否抛出 BusinessException
         BusinessException exception =assertThrows(BusinessException.class, () -> {
@@ -440,4 +480,146 @@ class BankManageSystemApplicationTest {
         // 验证异常的错误码
         assertEquals(ErrorCode.TRANSFER_NOT_ALLOWED.getCode(), exception.getCode());
     }
-}
\ No newline at end of file
+
+    /**
+     * 测试转账功能时抛出异常的情况：转出与转入是同一账户，不查库也不写流水。
+     */
+    @Test
+    void testAccountTransferException_sameAccount() {
+        BankTransferVO bankTransferVO = new BankTransferVO("tucker", "123456", new BigDecimal("10"), "tucker", "123456");
+
+        BusinessException exception = assertThrows(BusinessException.class, () ->
+                bankManageService.bankTransfer(bankTransferVO));
+
+        assertEquals(ErrorCode.TRANSFER_NOT_ALLOWED.getCode(), exception.getCode());
+        verify(bankAccountRepository, never()).loadByBankCardNumber("123456");
+        verify(transferRecordWriter, never()).record(any(), any(), any(), any());
+    }
+
+    /**
+     * 测试批量转账：相互抵消的转账不产生余额更新，其余账户每个只更新一次。
+     */
+    @Test
+    void testBankTransferBatchNetting() {
+        List<BankAccount> accounts = bankAccountList.subList(0, 3);
+        when(bankAccountRepository.findAllByBankCardNumbers(any())).thenReturn(accounts);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        List<BankTransferVO> transfers = new ArrayList<>();
+        // NO-0 与 NO-1 之间来回转账相互抵消
+        transfers.add(new BankTransferVO("userId1", "NO-0", new BigDecimal("30"), "userId1", "NO-1"));
+        transfers.add(new BankTransferVO("userId1", "NO-1", new BigDecimal("30"), "userId1", "NO-0"));
+        // NO-0 连续两笔转给 NO-2，合并为一次更新
+        transfers.add(new BankTransferVO("userId1", "NO-0", new BigDecimal("10"), "userId1", "NO-2"));
+        transfers.add(new BankTransferVO("userId1", "NO-0", new BigDecimal("5"), "userId1", "NO-2"));
+
+        BaseResponse<?> result = bankManageService.bankTransferBatch(new BankTransferBatchVO(transfers));
+        BankTransferBatchResultVO data = (BankTransferBatchResultVO) result.getData();
+
+        assertEquals(4, data.getTransferCount());
+        assertEquals(2, data.getUpdatedAccountCount());
+        // 涉及的三个账户一次性加分段锁
+        verify(accountLockManager).lock(any(), any(), any());
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat(
+                (List<Object[]> args) -> args.size() == 2 && args.stream().allMatch(a ->
+                        ("NO-0".equals(a[2]) && new BigDecimal("85.00").compareTo((BigDecimal) a[0]) == 0)
+                                || ("NO-2".equals(a[2]) && new BigDecimal("117.00").compareTo((BigDecimal) a[0]) == 0))));
+    }
+
+    /**
+     * 测试批量转账：按顺序校验余额，透支的一笔使整批被拒绝。
+     */
+    @Test
+    void testBankTransferBatchInsufficientBalance() {
+        when(bankAccountRepository.findAllByBankCardNumbers(any())).thenReturn(bankAccountList.subList(0, 2));
+
+        List<BankTransferVO> transfers = new ArrayList<>();
+        transfers.add(new BankTransferVO("userId1", "NO-0", new BigDecimal("60"), "userId1", "NO-1"));
+        transfers.add(new BankTransferVO("userId1", "NO-0", new BigDecimal("60"), "userId1", "NO-1"));
+
+        BusinessException exception = assertThrows(BusinessException.class, () ->
+                bankManageService.bankTransferBatch(new BankTransferBatchVO(transfers)));
+
+        assertEquals(ErrorCode.TRANSFER_NOT_ALLOWED.getCode(), exception.getCode());
+        assertTrue(exception.getDescription().startsWith("第2笔转账"));
+    }
+
+    /**
+     * 测试流水游标分页：多取的一条只用于生成游标，下一页从游标位置继续查询。
+     */
+    @Test
+    void testTransferHistoryCursor() {
+        LocalDateTime now = LocalDateTime.now();
+        List<TransferRecord> records = new ArrayList<>();
+        records.add(new TransferRecord(3L, "tx-3", "NO-0", "NO-1", new BigDecimal("-3"), now));
+        records.add(new TransferRecord(2L, "tx-2", "NO-0", "NO-1", new BigDecimal("2"), now));
+        records.add(new TransferRecord(1L, "tx-1", "NO-0", "NO-2", new BigDecimal("-1"), now.minusSeconds(1)));
+        when(transferRecordRepository.findLatest(eq("NO-0"), any())).thenReturn(records);
+
+        BaseResponse<?> first = bankManageService.transferHistory("NO-0", null, 2);
+        PageRes<TransferRecordVO> firstPage = (PageRes<TransferRecordVO>) first.getData();
+
+        assertEquals(2, firstPage.getData().size());
+        assertEquals("-3.00", firstPage.getData().get(0).getAmount());
+        assertNotNull(firstPage.getNextCursor());
+
+        when(transferRecordRepository.findBefore(eq("NO-0"), eq(now), eq(2L), any()))
+                .thenReturn(records.subList(2, 3));
+        BaseResponse<?> second = bankManageService.transferHistory("NO-0", firstPage.getNextCursor(), 2);
+        PageRes<TransferRecordVO> secondPage = (PageRes<TransferRecordVO>) second.getData();
+
+        assertEquals(1, secondPage.getData().size());
+        assertEquals("tx-1", secondPage.getData().get(0).getTxId());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    /**
+     * 测试账户游标分页：不做 count，下一页从上一页最后一个 id 之后继续查询；需要时总数从缓存中取。
+     */
+    @Test
+    void testListAccountByCursor() {
+        when(bankAccountRepository.findFirstByUser(eq("userId1"), any())).thenReturn(bankAccountList.subList(0, 11));
+
+        BaseResponse<?> first = bankManageService.listAccountByCursor("userId1", null, 10, false);
+        PageRes<CreateBankAccountVO> firstPage = (PageRes<CreateBankAccountVO>) first.getData();
+
+        assertEquals(10, firstPage.getData().size());
+        assertEquals(-1, firstPage.getTotal());
+        assertNotNull(firstPage.getNextCursor());
+
+        when(bankAccountRepository.findAfterByUser(eq("userId1"), eq(9L), any()))
+                .thenReturn(bankAccountList.subList(10, 20));
+        when(accountCacheSupport.userTotal(eq("userId1"), any())).thenReturn(30L);
+        BaseResponse<?> second = bankManageService.listAccountByCursor("userId1", firstPage.getNextCursor(), 10, true);
+        PageRes<CreateBankAccountVO> secondPage = (PageRes<CreateBankAccountVO>) second.getData();
+
+        assertEquals("NO-10", secondPage.getData().get(0).getBankCardNumber());
+        assertEquals(30, secondPage.getTotal());
+        assertNull(secondPage.getNextCursor());
+        assertThrows(BusinessException.class,
+                () -> bankManageService.listAccountByCursor("userId1", "not-a-cursor", 10, false));
+    }
+
+    /**
+     * 测试账户详情走投影查询：直接得到返回对象，不再加载实体，余额按两位小数输出。
+     */
+    @Test
+    void testDetailAccountProjection() {
+        when(bankAccountRepository.findAccountView("123456")).thenReturn(Optional.of(accountView(bankAccount)));
+
+        BaseResponse<?> result = bankManageService.detailAccount("123456");
+        CreateBankAccountVO vo = (CreateBankAccountVO) result.getData();
+
+        assertEquals("123456", vo.getBankCardNumber());
+        assertEquals("1234567", vo.getUserId());
+        assertEquals("100.00", vo.getBalance().toPlainString());
+        verify(bankAccountRepository, never()).findByBankCardNumber(anyString());
+        assertThrows(BusinessException.class, () -> bankManageService.detailAccount("654321"));
+    }
+
+    private CreateBankAccountVO accountView(BankAccount account) {
+        return new CreateBankAccountVO(account.getAccountHolderName(), account.getContactNumber(),
+                account.getIdCard(), account.getEmailAddress(), account.getBalance(), account.getDescription(),
+                account.getBankCardNumber(), account.getUserUid());
+    }
+}
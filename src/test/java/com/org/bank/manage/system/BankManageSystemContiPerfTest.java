@@ -32,6 +32,10 @@ public class BankManageSystemContiPerfTest {
     @Autowired
     private BankManageServiceImpl bankManageService;
 
+    private static final int REPEATED_ACCOUNTS = 1000;
+
+    private static volatile boolean repeatedAccountsCreated;
+
     @Test
     // 配置并发测试：
     // threads = 50：使用 50 个并发线程
@@ -178,4 +182,43 @@ public class BankManageSystemContiPerfTest {
         bankManageService.bankTransfer(bankTransferVO);
 
     }
+
+    /**
+     * 固定的一组账户之间反复转账：卡号 -> id 与账户实体都由二级缓存提供，只测转账本身
+     */
+    @Test
+    @PerfTest(threads = 8, invocations = 40000, warmUp = 2000)
+    public void testRepeatedAccountTransfer() {
+        if (!repeatedAccountsCreated) {
+            createRepeatedAccounts();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int send = random.nextInt(REPEATED_ACCOUNTS);
+        int receive = (send + 1 + random.nextInt(REPEATED_ACCOUNTS - 1)) % REPEATED_ACCOUNTS;
+
+        BankTransferVO bankTransferVO = new BankTransferVO();
+        bankTransferVO.setAmount(new BigDecimal("0.01"));
+        bankTransferVO.setSendBankCardNumber("622204" + send);
+        bankTransferVO.setSendAccountHolderName("holder" + send);
+        bankTransferVO.setReceiveBankCardNumber("622204" + receive);
+        bankTransferVO.setReceiveAccountHolderName("holder" + receive);
+        bankManageService.bankTransfer(bankTransferVO);
+    }
+
+    private synchronized void createRepeatedAccounts() {
+        if (repeatedAccountsCreated) {
+            return;
+        }
+        for (int i = 0; i < REPEATED_ACCOUNTS; i++) {
+            CreateBankAccountVO vo = new CreateBankAccountVO();
+            vo.setBankCardNumber("622204" + i);
+            vo.setAccountHolderName("holder" + i);
+            vo.setBalance(new BigDecimal("100000.00"));
+            vo.setUserId("user" + (i % 50));
+            vo.setIdCard("440101199003071234");
+            vo.setContactNumber("13800138000");
+            bankManageService.createBankAccount(vo);
+        }
+        repeatedAccountsCreated = true;
+    }
 }
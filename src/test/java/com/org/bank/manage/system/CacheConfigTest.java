@@ -0,0 +1,178 @@
+package com.org.bank.manage.system;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.org.bank.manage.system.common.PageRes;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.config.CacheConfig;
+import com.org.bank.manage.system.config.CacheProperties;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.cache.ResponseBodyCache;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 按缓存名单独构建 Caffeine 缓存的单元测试
+class CacheConfigTest {
+
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<AccountCacheSupport> accountCacheSupport = Mockito.mock(ObjectProvider.class);
+
+    /**
+     * 分页缓存按每页账户数计权重并记录命中统计，未配置的缓存使用默认配置
+     */
+    @Test
+    void testPerCacheSpec() {
+        CacheProperties.Spec pages = new CacheProperties.Spec();
+        pages.setMaximumWeight(100L);
+        CacheProperties properties = new CacheProperties();
+        properties.getSpecs().put(AccountCacheSupport.ACCOUNT_PAGES, pages);
+        CacheManager cacheManager = new CacheConfig().cacheManager(properties, accountCacheSupport);
+
+        PageRes<String> page = new PageRes<>(1, 10);
+        page.setData(List.of("a", "b", "c"));
+        org.springframework.cache.Cache cache = cacheManager.getCache(AccountCacheSupport.ACCOUNT_PAGES);
+        cache.put("u-0-1-10", ResultUtils.success(page));
+        cache.get("u-0-1-10");
+        cache.get("u-0-2-10");
+
+        Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+        // 权重在 Caffeine 的维护任务中异步累加，断言前先执行一次
+        nativeCache.cleanUp();
+        assertEquals(3L, nativeCache.policy().eviction().get().weightedSize().getAsLong());
+        assertEquals(1L, nativeCache.stats().hitCount());
+        assertEquals(1L, nativeCache.stats().missCount());
+        assertTrue(cacheManager.getCache("other") instanceof CaffeineCache);
+    }
+
+    /**
+     * 没有加载器的缓存不能配置 refresh-after-write
+     */
+    @Test
+    void testRefreshRequiresLoader() {
+        CacheProperties.Spec bytes = new CacheProperties.Spec();
+        bytes.setRefreshAfterWrite(Duration.ofMinutes(1));
+        CacheProperties properties = new CacheProperties();
+        properties.getSpecs().put(ResponseBodyCache.ACCOUNT_PAGES_BYTES, bytes);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new CacheConfig().cacheManager(properties, accountCacheSupport));
+    }
+
+    /**
+     * 同一个键同时未命中时只加载一次，其余调用等待并拿到同一个结果；分页缓存配置 refresh-after-write 后使用分页加载器
+     */
+    @Test
+    void testSingleFlightLoad() throws Exception {
+        CacheProperties.Spec pages = new CacheProperties.Spec();
+        pages.setRefreshAfterWrite(Duration.ofMinutes(1));
+        CacheProperties properties = new CacheProperties();
+        properties.getSpecs().put(AccountCacheSupport.ACCOUNT_PAGES, pages);
+        org.springframework.cache.Cache cache = new CacheConfig().cacheManager(properties, accountCacheSupport)
+                .getCache(AccountCacheSupport.ACCOUNT_PAGES);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("u-0-1-10", () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep(100);
+                        return ResultUtils.success(List.of("page"));
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Object> result : results) {
+                assertEquals(List.of("page"), ((BaseResponse<?>) result.get(5, TimeUnit.SECONDS)).getData());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertTrue(((CaffeineCache) cache).getNativeCache() instanceof LoadingCache);
+    }
+
+    /**
+     * 紧凑编码的详情与分页读出后与写入前序列化结果相同，按字节计权重时远小于未编码值的估算
+     */
+    @Test
+    void testCompactValues() throws Exception {
+        CacheProperties.Spec detailSpec = new CacheProperties.Spec();
+        detailSpec.setMaximumWeight(1_000_000L);
+        detailSpec.setWeighInBytes(true);
+        CacheProperties properties = new CacheProperties();
+        properties.setCompactValues(true);
+        properties.getSpecs().put(AccountCacheSupport.ACCOUNT_DETAIL, detailSpec);
+        CacheManager cacheManager = new CacheConfig().cacheManager(properties, accountCacheSupport);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        BaseResponse<CreateBankAccountVO> detail = ResultUtils.success(account("NO-1", "user-1"));
+        org.springframework.cache.Cache detailCache = cacheManager.getCache(AccountCacheSupport.ACCOUNT_DETAIL);
+        detailCache.put("NO-1", detail);
+        PageRes<CreateBankAccountVO> page = new PageRes<>(1, 10, 2);
+        page.setData(List.of(account("NO-1", "user-1"), account("NO-2", "user-1")));
+        org.springframework.cache.Cache pageCache = cacheManager.getCache(AccountCacheSupport.ACCOUNT_PAGES);
+        pageCache.put("user-1-0-1-10", ResultUtils.success(page));
+
+        assertEquals(objectMapper.writeValueAsString(detail),
+                objectMapper.writeValueAsString(detailCache.get("NO-1").get()));
+        assertEquals(objectMapper.writeValueAsString(ResultUtils.success(page)),
+                objectMapper.writeValueAsString(pageCache.get("user-1-0-1-10").get()));
+        Cache<Object, Object> nativeCache = ((CaffeineCache) detailCache).getNativeCache();
+        nativeCache.cleanUp();
+        assertTrue(nativeCache.policy().eviction().get().weightedSize().getAsLong() < 200);
+    }
+
+    /**
+     * 取值期间发生淘汰时，读到的旧字节写入后随即删除，不会留在缓存里
+     */
+    @Test
+    void testEvictionDuringLoadDropsStaleBytes() {
+        CacheProperties properties = new CacheProperties();
+        properties.setSerializedResponses(true);
+        CacheManager cacheManager = new CacheConfig().cacheManager(properties, accountCacheSupport);
+        ResponseBodyCache responseBodyCache = new ResponseBodyCache();
+        ReflectionTestUtils.setField(responseBodyCache, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(responseBodyCache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(responseBodyCache, "cacheProperties", properties);
+        String cacheName = ResponseBodyCache.ACCOUNT_DETAIL_BYTES;
+
+        responseBodyCache.get(cacheName, "NO-1", () -> {
+            // 写操作在读取取值之后提交并淘汰
+            responseBodyCache.evict(cacheName, "NO-1");
+            return ResultUtils.success(account("NO-1", "user-1"));
+        });
+        assertNull(cacheManager.getCache(cacheName).get("NO-1"));
+
+        responseBodyCache.get(cacheName, "NO-1", () -> ResultUtils.success(account("NO-1", "user-1")));
+        assertNotNull(cacheManager.getCache(cacheName).get("NO-1"));
+    }
+
+    private CreateBankAccountVO account(String bankCardNumber, String userId) {
+        return new CreateBankAccountVO("holder", "13800000000", "110101199001011234", null,
+                new BigDecimal("1234.50"), "账户描述", bankCardNumber, userId);
+    }
+}
@@ -0,0 +1,96 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.config.CacheProperties;
+import com.org.bank.manage.system.config.CardFilterProperties;
+import com.org.bank.manage.system.service.cache.CardNumberFilter;
+import com.org.bank.manage.system.service.cache.ScalableBloomFilter;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+// 卡号布隆过滤器与不存在缓存的单元测试，账户表读取通过 Mockito 模拟
+class CardNumberFilterTest {
+
+    /**
+     * 超出第一段容量后追加新段，写入过的卡号全部命中，误判率不超过设定值
+     */
+    @Test
+    void testScalableFilterGrows() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("NO-" + i);
+        }
+
+        assertTrue(filter.stageCount() > 1);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("NO-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("OTHER-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 100, "false positives: " + falsePositives);
+    }
+
+    /**
+     * 构建前一律按可能存在处理；构建后未发放的卡号直接判定不存在，开户后立即可见，
+     * 查库确认不存在的卡号在开户后清除
+     */
+    @Test
+    void testKnownMissing() throws Exception {
+        JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn("NO-1", "NO-2");
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getInvalidation().setEnabled(true);
+        CardNumberFilter filter = new CardNumberFilter();
+        ReflectionTestUtils.setField(filter, "cardFilterProperties", new CardFilterProperties());
+        ReflectionTestUtils.setField(filter, "cacheProperties", cacheProperties);
+        ReflectionTestUtils.setField(filter, "jdbcTemplate", jdbcTemplate);
+        filter.init();
+
+        assertFalse(filter.knownMissing("NO-3"));
+        filter.rebuild();
+
+        assertTrue(filter.isReady());
+        assertFalse(filter.knownMissing("NO-1"));
+        assertTrue(filter.knownMissing("NO-3"));
+        filter.added("NO-3");
+        assertFalse(filter.knownMissing("NO-3"));
+
+        filter.markMissing("NO-2");
+        assertTrue(filter.knownMissing("NO-2"));
+        filter.added("NO-2");
+        assertFalse(filter.knownMissing("NO-2"));
+    }
+
+    /**
+     * 未开启缓存失效总线时拒绝启动，避免把其他节点刚开的卡号判为不存在
+     */
+    @Test
+    void testRequiresInvalidationBus() {
+        CardNumberFilter filter = new CardNumberFilter();
+        ReflectionTestUtils.setField(filter, "cardFilterProperties", new CardFilterProperties());
+        ReflectionTestUtils.setField(filter, "cacheProperties", new CacheProperties());
+
+        assertThrows(IllegalStateException.class, filter::init);
+    }
+}
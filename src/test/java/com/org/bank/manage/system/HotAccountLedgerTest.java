@@ -0,0 +1,86 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.config.HotAccountProperties;
+import com.org.bank.manage.system.repository.AccountSlotRepository;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.AccountSlot;
+import com.org.bank.manage.system.service.hot.HotAccountLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// 热点账户子余额槽的单元测试，数据库访问通过 Mockito 模拟
+class HotAccountLedgerTest {
+
+    private AccountSlotRepository accountSlotRepository;
+
+    private BankAccountRepository bankAccountRepository;
+
+    private HotAccountLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        accountSlotRepository = Mockito.mock(AccountSlotRepository.class);
+        bankAccountRepository = Mockito.mock(BankAccountRepository.class);
+        HotAccountProperties properties = new HotAccountProperties();
+        properties.setEnabled(true);
+        properties.setCards(List.of("HOT"));
+        properties.setSlots(4);
+        ledger = new HotAccountLedger();
+        ReflectionTestUtils.setField(ledger, "hotAccountProperties", properties);
+        ReflectionTestUtils.setField(ledger, "accountSlotRepository", accountSlotRepository);
+        ReflectionTestUtils.setField(ledger, "bankAccountRepository", bankAccountRepository);
+        ledger.init();
+    }
+
+    /**
+     * 转入落到某个槽上，不更新主账户
+     */
+    @Test
+    void testCreditToSlot() {
+        when(accountSlotRepository.credit(eq(new BigDecimal("5")), eq("HOT"), anyInt())).thenReturn(1);
+
+        assertTrue(ledger.credit("HOT", new BigDecimal("5")));
+        verify(bankAccountRepository, never()).credit(any(), any(), any());
+    }
+
+    /**
+     * 槽尚未创建时退回到主账户入账
+     */
+    @Test
+    void testCreditFallsBackToMainRow() {
+        when(accountSlotRepository.credit(any(), eq("HOT"), anyInt())).thenReturn(0);
+        when(bankAccountRepository.credit(eq(new BigDecimal("5")), any(), eq("HOT"))).thenReturn(1);
+
+        assertTrue(ledger.credit("HOT", new BigDecimal("5")));
+    }
+
+    /**
+     * 归并时槽余额之和加回主余额，槽清零
+     */
+    @Test
+    void testFold() {
+        when(accountSlotRepository.findAllForUpdate("HOT")).thenReturn(List.of(
+                new AccountSlot(1L, "HOT", 0, new BigDecimal("3")),
+                new AccountSlot(2L, "HOT", 1, new BigDecimal("4"))));
+
+        ledger.fold("HOT");
+        ledger.fold("COLD");
+
+        verify(accountSlotRepository).clear("HOT");
+        verify(bankAccountRepository).credit(eq(new BigDecimal("7")), any(), eq("HOT"));
+        verify(accountSlotRepository, never()).findAllForUpdate("COLD");
+    }
+}
@@ -0,0 +1,133 @@
+package com.org.bank.manage.system;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.ResultUtils;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.repository.IdempotencyRecordRepository;
+import com.org.bank.manage.system.request.BankTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.idempotency.IdempotencyService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 幂等键去重测试，使用内存数据库中的 idempotency_record 表
+@SpringBootTest
+class IdempotencyServiceTest {
+
+    @Autowired
+    IdempotencyService idempotencyService;
+
+    @Autowired
+    IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * 同一个 key 重试时直接返回首次响应，业务只执行一次
+     */
+    @Test
+    void testReplay() {
+        AtomicInteger executions = new AtomicInteger();
+        BankTransferVO request = transfer("1");
+
+        BaseResponse<?> first = idempotencyService.execute("bankTransfer", "key-replay", request, () -> {
+            executions.incrementAndGet();
+            return ResultUtils.success("transfer cash successfully");
+        });
+        BaseResponse<?> second = idempotencyService.execute("bankTransfer", "key-replay", request, () -> {
+            executions.incrementAndGet();
+            return ResultUtils.success("transfer cash successfully");
+        });
+
+        assertEquals(1, executions.get());
+        assertEquals(first.getCode(), second.getCode());
+        assertEquals(first.getDescription(), second.getDescription());
+    }
+
+    /**
+     * 同一个 key 携带不同请求体时拒绝
+     */
+    @Test
+    void testKeyReusedWithDifferentRequest() {
+        idempotencyService.execute("bankTransfer", "key-reused", transfer("1"),
+                () -> ResultUtils.success("transfer cash successfully"));
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> idempotencyService.execute("bankTransfer", "key-reused", transfer("2"),
+                        () -> ResultUtils.success("transfer cash successfully")));
+
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED.getCode(), exception.getCode());
+    }
+
+    /**
+     * 业务失败不留记录，同一个 key 可以重试
+     */
+    @Test
+    void testFailureNotRecorded() {
+        AtomicInteger executions = new AtomicInteger();
+        assertThrows(BusinessException.class,
+                () -> idempotencyService.execute("bankTransfer", "key-failed", transfer("1"), () -> {
+                    executions.incrementAndGet();
+                    throw new BusinessException(ErrorCode.TRANSFER_NOT_ALLOWED, "转账出的余额不足");
+                }));
+
+        idempotencyService.execute("bankTransfer", "key-failed", transfer("1"), () -> {
+            executions.incrementAndGet();
+            return ResultUtils.success("transfer cash successfully");
+        });
+
+        assertEquals(2, executions.get());
+    }
+
+    /**
+     * key 已被其他节点占用时不执行业务，等对方存入响应后重放
+     */
+    @Test
+    void testClaimedKeyWaitsForResponse() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        BankTransferVO request = transfer("1");
+        String requestHash = DigestUtil.sha256Hex(objectMapper.writeValueAsBytes(request));
+        transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository
+                .claim("bankTransfer:key-claimed", requestHash, LocalDateTime.now()));
+        BaseResponse<?> first = ResultUtils.success("transfer cash successfully");
+        String response = objectMapper.writeValueAsString(first);
+        CompletableFuture<Void> otherNode = CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository
+                    .complete("bankTransfer:key-claimed", response));
+        });
+
+        BaseResponse<?> replayed = idempotencyService.execute("bankTransfer", "key-claimed", request, () -> {
+            executions.incrementAndGet();
+            return ResultUtils.success("transfer cash successfully");
+        });
+        otherNode.get();
+
+        assertEquals(0, executions.get());
+        assertEquals(first.getCode(), replayed.getCode());
+        assertEquals(first.getMessage(), replayed.getMessage());
+    }
+
+    private static BankTransferVO transfer(String amount) {
+        return new BankTransferVO("tucker", "123456788890", new BigDecimal(amount), "tony", "123456788899");
+    }
+}
@@ -0,0 +1,75 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.config.CacheProperties;
+import com.org.bank.manage.system.service.cache.invalidation.CacheInvalidation;
+import com.org.bank.manage.system.service.cache.invalidation.InMemoryInvalidationTransport;
+import com.org.bank.manage.system.service.cache.invalidation.InvalidationBus;
+import com.org.bank.manage.system.service.cache.invalidation.InvalidationTransport;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// 缓存失效总线的单元测试，两个节点通过进程内传输互相广播
+class InvalidationBusTest {
+
+    /**
+     * 一个节点发出的失效只投递给其他节点，同一账户的重复失效合并为一条
+     */
+    @Test
+    void testDeliverToOtherNodes() {
+        InMemoryInvalidationTransport transport = new InMemoryInvalidationTransport();
+        InvalidationBus nodeA = bus("node-a", transport);
+        InvalidationBus nodeB = bus("node-b", transport);
+        List<CacheInvalidation> receivedByA = new ArrayList<>();
+        List<CacheInvalidation> receivedByB = new ArrayList<>();
+        nodeA.subscribe(receivedByA::add);
+        nodeB.subscribe(receivedByB::add);
+
+        nodeA.publish("NO-1", "user-1");
+        nodeA.publish("NO-1", "user-1");
+        nodeA.publish("NO-2", "user-1");
+        assertTrue(receivedByB.isEmpty());
+        nodeA.flush();
+
+        assertEquals(2, receivedByB.size());
+        assertEquals("node-a", receivedByB.get(0).getOrigin());
+        assertTrue(receivedByA.isEmpty());
+    }
+
+    /**
+     * 发送失败的批次放回待发送集合，下次发送时重试
+     */
+    @Test
+    void testRetryFailedBatch() {
+        InvalidationTransport transport = Mockito.mock(InvalidationTransport.class);
+        InvalidationBus bus = bus("node-a", transport);
+        doThrow(new IllegalStateException("database down")).doNothing().when(transport).publish(anyList());
+
+        bus.publish("NO-1", "user-1");
+        bus.flush();
+        bus.flush();
+        bus.flush();
+
+        verify(transport, times(2)).publish(anyList());
+    }
+
+    private InvalidationBus bus(String nodeId, InvalidationTransport transport) {
+        CacheProperties properties = new CacheProperties();
+        properties.getInvalidation().setEnabled(true);
+        properties.getInvalidation().setNodeId(nodeId);
+        InvalidationBus bus = new InvalidationBus();
+        ReflectionTestUtils.setField(bus, "cacheProperties", properties);
+        ReflectionTestUtils.setField(bus, "invalidationTransport", transport);
+        bus.init();
+        return bus;
+    }
+}
@@ -0,0 +1,117 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.TransferProperties;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.projection.AccountBalanceView;
+import com.org.bank.manage.system.request.BankTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.engine.OptimisticTransferExecutor;
+import com.org.bank.manage.system.service.engine.TransferConflictStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// 乐观并发转账的单元测试
+class OptimisticTransferExecutorTest {
+
+    private BankAccountRepository bankAccountRepository;
+
+    private OptimisticTransferExecutor executor;
+
+    private final BankTransferVO bankTransferVO =
+            new BankTransferVO("tucker", "A", new BigDecimal("10"), "tony", "B");
+
+    @BeforeEach
+    void setUp() {
+        bankAccountRepository = Mockito.mock(BankAccountRepository.class);
+        // 第一次读到版本 1，重读后是版本 2
+        when(bankAccountRepository.findBalanceView("A")).thenReturn(
+                Optional.of(new AccountBalanceView("A", "tucker", new BigDecimal("100"), 1L)),
+                Optional.of(new AccountBalanceView("A", "tucker", new BigDecimal("90"), 2L)));
+        when(bankAccountRepository.findBalanceView("B")).thenReturn(
+                Optional.of(new AccountBalanceView("B", "tony", new BigDecimal("100"), 1L)));
+        when(bankAccountRepository.credit(any(), any(), eq("B"))).thenReturn(1);
+
+        TransferProperties properties = new TransferProperties();
+        properties.getOptimistic().setMaxAttempts(3);
+        properties.getOptimistic().setInitialBackoffMs(1);
+        properties.getOptimistic().setMaxBackoffMs(2);
+        executor = new OptimisticTransferExecutor();
+        ReflectionTestUtils.setField(executor, "transferProperties", properties);
+        ReflectionTestUtils.setField(executor, "bankAccountRepository", bankAccountRepository);
+        ReflectionTestUtils.setField(executor, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        executor.init();
+    }
+
+    /**
+     * 版本冲突后重新读取快照并重试成功，回调只在成功的那次尝试中执行
+     */
+    @Test
+    void testRetryAfterConflict() {
+        when(bankAccountRepository.debitIfUnchanged(any(), eq(1L), any(), eq("A"))).thenReturn(0);
+        when(bankAccountRepository.debitIfUnchanged(any(), eq(2L), any(), eq("A"))).thenReturn(1);
+        AtomicInteger callbacks = new AtomicInteger();
+
+        BaseResponse<?> result = executor.transfer(bankTransferVO, callbacks::incrementAndGet);
+
+        assertEquals("transfer cash successfully", result.getMessage());
+        assertEquals(1, callbacks.get());
+        verify(bankAccountRepository).credit(eq(new BigDecimal("10")), any(), eq("B"));
+        assertEquals(1, executor.getStats().getConflicts());
+        assertEquals(1, executor.getStats().getRetries());
+        assertEquals(1L, executor.getStats().topCards(1).get("A").get("conflicts"));
+    }
+
+    /**
+     * 重试次数用尽时返回冲突错误，且不会入账
+     */
+    @Test
+    void testRetryExhausted() {
+        when(bankAccountRepository.debitIfUnchanged(any(), any(), any(), eq("A"))).thenReturn(0);
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> executor.transfer(bankTransferVO, () -> fail("重试用尽时不应执行回调")));
+
+        assertEquals(ErrorCode.TRANSFER_CONFLICT.getMessage(), exception.getMessage());
+        verify(bankAccountRepository, times(3)).debitIfUnchanged(any(), any(), any(), eq("A"));
+        verify(bankAccountRepository, never()).credit(any(), any(), any());
+        assertEquals(1, executor.getStats().getExhausted());
+    }
+
+    /**
+     * 跟踪的卡数达到上限后，之后频繁冲突的卡仍会被跟踪，偶发冲突的卡被淘汰
+     */
+    @Test
+    void testStatsTrackNewHotCardsAfterCap() {
+        TransferConflictStats stats = new TransferConflictStats(2);
+        for (int i = 0; i < 20; i++) {
+            stats.recordConflict("A");
+        }
+        stats.recordConflict("B");
+        for (int i = 0; i < 20; i++) {
+            stats.recordConflict("C");
+        }
+
+        Map<String, Map<String, Long>> top = stats.topCards(10);
+        assertTrue(top.containsKey("C"));
+        assertTrue(top.size() <= 2);
+        assertEquals(41, stats.getConflicts());
+    }
+}
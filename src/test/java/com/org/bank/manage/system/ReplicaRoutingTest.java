@@ -0,0 +1,151 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.common.AccountStatus;
+import com.org.bank.manage.system.common.PageRes;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.request.CreateBankAccountVO;
+import com.org.bank.manage.system.request.UpdateBankAccountVO;
+import com.org.bank.manage.system.service.BankManageService;
+import com.org.bank.manage.system.service.cache.AccountCacheSupport;
+import com.org.bank.manage.system.service.convert.BankMangeMapper;
+import com.org.bank.manage.system.service.replica.ReplicaLagMonitor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// 读写分离测试：从库是第二个内存数据库，由测试中的复制替身把主库整体复制过去
+@SpringBootTest(properties = {
+        "bank.replica.enabled=true",
+        "bank.replica.url=" + ReplicaRoutingTest.REPLICA_URL,
+        "bank.replica.username=sa",
+        "bank.replica.max-staleness=2s",
+        "bank.replica.sticky-window=2s",
+        "bank.card-filter.enabled=false"
+})
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    /**
+     * 复制替身自己的连接，不经过应用的只读从库连接池
+     */
+    private final JdbcTemplate replicaJdbc = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    BankManageService bankManageService;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    /**
+     * 从库延迟在容忍范围内时，账户详情与分页读从库
+     */
+    @Test
+    void testReadsGoToReplica() {
+        saveDirectly("RPL-1", "replica-user");
+        replicate();
+        replicaJdbc.update("UPDATE bankaccount SET description = 'replica' WHERE bank_card_number = 'RPL-1'");
+
+        assertEquals("replica", detail("RPL-1").getDescription());
+        assertEquals("replica", firstOfPage("replica-user").getDescription());
+    }
+
+    /**
+     * 刚写过的账户与用户在窗口内读主库，从库还没复制到修改时也能读到；其他账户照常读从库
+     */
+    @Test
+    void testReadYourWrites() {
+        saveDirectly("RPL-2", "sticky-user");
+        saveDirectly("RPL-3", "other-user");
+        replicate();
+        bankManageService.updateBankAccount(update("RPL-2", "primary"));
+        cacheManager.getCache(AccountCacheSupport.ACCOUNT_DETAIL).evict("RPL-2");
+        replicaJdbc.update("UPDATE bankaccount SET description = 'replica'");
+
+        assertEquals("primary", detail("RPL-2").getDescription());
+        assertEquals("primary", firstOfPage("sticky-user").getDescription());
+        assertEquals("replica", detail("RPL-3").getDescription());
+    }
+
+    /**
+     * 复制中断后从库落后超过 max-staleness 时回到主库，从库连不上时也回到主库
+     */
+    @Test
+    void testStaleReplicaFallsBackToPrimary() throws Exception {
+        saveDirectly("RPL-4", "stale-user");
+        replicate();
+        replicaJdbc.update("UPDATE bankaccount SET description = 'replica'");
+        assertEquals("replica", detail("RPL-4").getDescription());
+        cacheManager.getCache(AccountCacheSupport.ACCOUNT_DETAIL).evict("RPL-4");
+
+        // 不再复制，从库上的心跳停在复制时
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (replicaLagMonitor.withinTolerance() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals("primary", detail("RPL-4").getDescription());
+        assertEquals("primary", firstOfPage("stale-user").getDescription());
+
+        replicate();
+        replicaJdbc.execute("DROP TABLE replication_heartbeat");
+        replicaLagMonitor.checkLag();
+        assertFalse(replicaLagMonitor.withinTolerance());
+    }
+
+    /**
+     * 复制替身：把主库的表结构与数据整体复制到从库，复制的内容包括心跳
+     */
+    private void replicate() {
+        List<String> script = jdbcTemplate.queryForList("SCRIPT", String.class);
+        replicaJdbc.execute("DROP ALL OBJECTS");
+        script.forEach(replicaJdbc::execute);
+        replicaLagMonitor.checkLag();
+        assertTrue(replicaLagMonitor.withinTolerance());
+    }
+
+    /**
+     * 直接写库，不经过写接口，也就不会被记为近期写过
+     */
+    private void saveDirectly(String bankCardNumber, String userId) {
+        bankAccountRepository.save(BankMangeMapper.INSTANCE.createVoToEntity(
+                new CreateBankAccountVO("holder", "13800000000", "110101199001011234", null,
+                        new BigDecimal("10.00"), "primary", bankCardNumber, userId), AccountStatus.ACTIVE));
+    }
+
+    private UpdateBankAccountVO update(String bankCardNumber, String description) {
+        UpdateBankAccountVO vo = new UpdateBankAccountVO();
+        vo.setBankCardNumber(bankCardNumber);
+        vo.setBalance(new BigDecimal("10.00"));
+        vo.setIdCard("110101199001011234");
+        vo.setContactNumber("13800000000");
+        vo.setDescription(description);
+        vo.setStatus(AccountStatus.ACTIVE.name());
+        return vo;
+    }
+
+    private CreateBankAccountVO detail(String bankCardNumber) {
+        return (CreateBankAccountVO) bankManageService.detailAccount(bankCardNumber).getData();
+    }
+
+    @SuppressWarnings("unchecked")
+    private CreateBankAccountVO firstOfPage(String userId) {
+        return ((PageRes<CreateBankAccountVO>) bankManageService.listAccount(1, 10, userId).getData()).getData().get(0);
+    }
+}
@@ -0,0 +1,296 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.common.AccountStatus;
+import com.org.bank.manage.system.common.ErrorCode;
+import com.org.bank.manage.system.common.TransferMode;
+import com.org.bank.manage.system.common.exception.BusinessException;
+import com.org.bank.manage.system.config.JournalProperties;
+import com.org.bank.manage.system.config.TransferProperties;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.repository.entity.BankAccount;
+import com.org.bank.manage.system.request.BankTransferVO;
+import com.org.bank.manage.system.request.BaseResponse;
+import com.org.bank.manage.system.service.engine.ShardedTransferEngine;
+import com.org.bank.manage.system.service.history.TransferRecordWriter;
+import com.org.bank.manage.system.service.journal.JournalEntry;
+import com.org.bank.manage.system.service.journal.TransferJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// 分片转账引擎的单元测试，数据库访问通过 Mockito 模拟
+class ShardedTransferEngineTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path journalDir;
+
+    private BankAccountRepository bankAccountRepository;
+
+    private TransferRecordWriter transferRecordWriter;
+
+    private ShardedTransferEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        bankAccountRepository = Mockito.mock(BankAccountRepository.class);
+        transferRecordWriter = Mockito.mock(TransferRecordWriter.class);
+        when(bankAccountRepository.findByBankCardNumber("A")).thenReturn(Optional.of(account(1L, "A", "tucker", "100")));
+        when(bankAccountRepository.findByBankCardNumber("B")).thenReturn(Optional.of(account(2L, "B", "tony", "100")));
+        when(bankAccountRepository.updateBalanceIfUnchanged(any(), any(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.stop();
+        }
+    }
+
+    /**
+     * 只有一个分片时走同分片转账路径
+     */
+    @Test
+    void testLocalTransfer() {
+        engine = startEngine(1);
+
+        BaseResponse<?> result = engine.transfer(transfer("tucker", "A", "tony", "B", "30"));
+
+        assertEquals("transfer cash successfully", result.getMessage());
+        verify(bankAccountRepository).updateBalanceIfUnchanged(1L, new BigDecimal("70"), 0L);
+        verify(bankAccountRepository).updateBalanceIfUnchanged(2L, new BigDecimal("130"), 0L);
+        verify(transferRecordWriter).record(any(), eq("A"), eq("B"), eq(new BigDecimal("30")));
+    }
+
+    /**
+     * 多个分片时 A、B 落在不同分片，走两阶段交接
+     */
+    @Test
+    void testCrossShardTransfer() {
+        engine = startEngine(64);
+        assertNotSame(ReflectionTestUtils.invokeMethod(engine, "shardOf", "A"),
+                ReflectionTestUtils.invokeMethod(engine, "shardOf", "B"));
+
+        engine.transfer(transfer("tucker", "A", "tony", "B", "30"));
+        engine.transfer(transfer("tucker", "A", "tony", "B", "30"));
+
+        verify(bankAccountRepository).updateBalanceIfUnchanged(1L, new BigDecimal("40"), 1L);
+        verify(bankAccountRepository).updateBalanceIfUnchanged(2L, new BigDecimal("160"), 1L);
+        verify(transferRecordWriter, times(2)).recordLeg(any(), eq("A"), eq("B"), eq(new BigDecimal("-30")));
+        verify(transferRecordWriter, times(2)).recordLeg(any(), eq("B"), eq("A"), eq(new BigDecimal("30")));
+    }
+
+    /**
+     * 入账方校验失败时，转出方的预扣应被退回
+     */
+    @Test
+    void testCrossShardTransferAbort() {
+        engine = startEngine(64);
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> engine.transfer(transfer("tucker", "A", "wrong", "B", "30")));
+
+        assertEquals(ErrorCode.TRANSFER_NOT_ALLOWED.getCode(), exception.getCode());
+        verify(bankAccountRepository).updateBalanceIfUnchanged(1L, new BigDecimal("70"), 0L);
+        verify(bankAccountRepository).updateBalanceIfUnchanged(1L, new BigDecimal("100"), 1L);
+        verify(bankAccountRepository, never()).updateBalanceIfUnchanged(eq(2L), any(), any());
+        verify(transferRecordWriter).deleteLeg(any(), eq("A"));
+    }
+
+    /**
+     * 余额不足时拒绝转账
+     */
+    @Test
+    void testInsufficientBalance() {
+        engine = startEngine(64);
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> engine.transfer(transfer("tucker", "A", "tony", "B", "101")));
+
+        assertEquals(ErrorCode.TRANSFER_NOT_ALLOWED.getCode(), exception.getCode());
+        verify(bankAccountRepository, never()).updateBalanceIfUnchanged(any(), any(), any());
+    }
+
+    /**
+     * 账户在引擎之外被修改后版本号不一致，分片丢弃内存余额、重新加载后重试，不会用旧余额覆盖
+     */
+    @Test
+    void testStaleBalanceReloaded() {
+        engine = startEngine(1);
+        engine.transfer(transfer("tucker", "A", "tony", "B", "10"));
+        BankAccount updated = account(1L, "A", "tucker", "500");
+        updated.setVersion(5L);
+        when(bankAccountRepository.findByBankCardNumber("A")).thenReturn(Optional.of(updated));
+        when(bankAccountRepository.updateBalanceIfUnchanged(eq(1L), any(), eq(1L))).thenReturn(0);
+
+        engine.transfer(transfer("tucker", "A", "tony", "B", "10"));
+
+        verify(bankAccountRepository).updateBalanceIfUnchanged(1L, new BigDecimal("490"), 5L);
+    }
+
+    /**
+     * 引擎之外修改余额期间分片停下，释放后重新加载账户再处理排在后面的转账
+     */
+    @Test
+    void testFenceHoldsShardUntilReleased() throws Exception {
+        engine = startEngine(1);
+        engine.transfer(transfer("tucker", "A", "tony", "B", "10"));
+
+        CompletableFuture<BaseResponse<?>> pending;
+        try (ShardedTransferEngine.Fence ignored = engine.fence(List.of("A"))) {
+            pending = CompletableFuture.supplyAsync(() -> engine.transfer(transfer("tucker", "A", "tony", "B", "10")));
+            Thread.sleep(100);
+            assertFalse(pending.isDone());
+            BankAccount updated = account(1L, "A", "tucker", "500");
+            updated.setVersion(5L);
+            when(bankAccountRepository.findByBankCardNumber("A")).thenReturn(Optional.of(updated));
+        }
+
+        pending.get(5, TimeUnit.SECONDS);
+        verify(bankAccountRepository).updateBalanceIfUnchanged(1L, new BigDecimal("490"), 5L);
+    }
+
+    /**
+     * 启动时未入账的预扣会被退回
+     */
+    @Test
+    void testRecoverInDoubtPrepare() {
+        TransferJournal journal = new TransferJournal(journalDir.resolve("shard-0"), SEGMENT_SIZE);
+        journal.append(new JournalEntry("tx-1", JournalEntry.PREPARE, "A",
+                new BigDecimal("30"), new BigDecimal("70"), System.currentTimeMillis()));
+        journal.close();
+
+        engine = startEngine(1);
+
+        verify(bankAccountRepository).updateBankAccountBalance(eq(new BigDecimal("100")), any(), eq("A"));
+        verify(transferRecordWriter).deleteLeg("tx-1", "A");
+    }
+
+    /**
+     * 入账方的 CREDIT 已写日志但入账事务没有提交就停机，数据库中没有转入方流水，预扣应被退回
+     */
+    @Test
+    void testRecoverCreditNotCommitted() {
+        int[] indexes = shardIndexes("A", "B");
+        TransferJournal senderJournal = new TransferJournal(journalDir.resolve("shard-" + indexes[0]), SEGMENT_SIZE);
+        senderJournal.append(new JournalEntry("tx-1", JournalEntry.PREPARE, "A",
+                new BigDecimal("30"), new BigDecimal("70"), System.currentTimeMillis()));
+        senderJournal.close();
+        TransferJournal receiverJournal = new TransferJournal(journalDir.resolve("shard-" + indexes[1]), SEGMENT_SIZE);
+        receiverJournal.append(new JournalEntry("tx-1", JournalEntry.CREDIT, "B",
+                new BigDecimal("30"), new BigDecimal("130"), System.currentTimeMillis()));
+        receiverJournal.close();
+        when(transferRecordWriter.hasLeg("tx-1", "B")).thenReturn(false);
+
+        engine = startEngine(64);
+
+        verify(bankAccountRepository).updateBankAccountBalance(eq(new BigDecimal("100")), any(), eq("A"));
+        verify(transferRecordWriter).deleteLeg("tx-1", "A");
+    }
+
+    /**
+     * 转入方流水已提交时确认预扣，转出方保持扣款后的余额
+     */
+    @Test
+    void testRecoverCreditCommitted() {
+        int[] indexes = shardIndexes("A", "B");
+        TransferJournal senderJournal = new TransferJournal(journalDir.resolve("shard-" + indexes[0]), SEGMENT_SIZE);
+        senderJournal.append(new JournalEntry("tx-1", JournalEntry.PREPARE, "A",
+                new BigDecimal("30"), new BigDecimal("70"), System.currentTimeMillis()));
+        senderJournal.close();
+        TransferJournal receiverJournal = new TransferJournal(journalDir.resolve("shard-" + indexes[1]), SEGMENT_SIZE);
+        receiverJournal.append(new JournalEntry("tx-1", JournalEntry.CREDIT, "B",
+                new BigDecimal("30"), new BigDecimal("130"), System.currentTimeMillis()));
+        receiverJournal.close();
+        when(transferRecordWriter.hasLeg("tx-1", "B")).thenReturn(true);
+
+        engine = startEngine(64);
+
+        verify(bankAccountRepository).updateBankAccountBalance(eq(new BigDecimal("70")), any(), eq("A"));
+        verify(transferRecordWriter, never()).deleteLeg(any(), any());
+    }
+
+    /**
+     * 转给自己在进入分片之前被拒绝，不写库
+     */
+    @Test
+    void testSelfTransferRejected() {
+        engine = startEngine(1);
+
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> engine.transfer(transfer("tucker", "A", "tucker", "A", "30")));
+
+        assertEquals(ErrorCode.TRANSFER_NOT_ALLOWED.getCode(), exception.getCode());
+        verify(bankAccountRepository, never()).updateBalanceIfUnchanged(any(), any(), any());
+    }
+
+    /**
+     * 用一个临时引擎算出卡号所在的分片下标，日志目录此时还是空的
+     */
+    private int[] shardIndexes(String... bankCardNumbers) {
+        ShardedTransferEngine probe = startEngine(64);
+        int[] indexes = new int[bankCardNumbers.length];
+        for (int i = 0; i < bankCardNumbers.length; i++) {
+            Object shard = ReflectionTestUtils.invokeMethod(probe, "shardOf", bankCardNumbers[i]);
+            indexes[i] = ReflectionTestUtils.<Integer>invokeMethod(shard, "getIndex");
+        }
+        probe.stop();
+        return indexes;
+    }
+
+    private ShardedTransferEngine startEngine(int shards) {
+        TransferProperties properties = new TransferProperties();
+        properties.setMode(TransferMode.SHARDED);
+        properties.setShards(shards);
+        properties.setJournalDir(journalDir.toString());
+        ShardedTransferEngine shardedTransferEngine = new ShardedTransferEngine();
+        ReflectionTestUtils.setField(shardedTransferEngine, "transferProperties", properties);
+        JournalProperties journalProperties = new JournalProperties();
+        journalProperties.setSegmentSize(DataSize.ofBytes(SEGMENT_SIZE));
+        ReflectionTestUtils.setField(shardedTransferEngine, "journalProperties", journalProperties);
+        ReflectionTestUtils.setField(shardedTransferEngine, "bankAccountRepository", bankAccountRepository);
+        ReflectionTestUtils.setField(shardedTransferEngine, "transferRecordWriter", transferRecordWriter);
+        ReflectionTestUtils.setField(shardedTransferEngine, "transactionManager",
+                Mockito.mock(PlatformTransactionManager.class));
+        shardedTransferEngine.start();
+        return shardedTransferEngine;
+    }
+
+    private static BankAccount account(Long id, String bankCardNumber, String accountHolderName, String balance) {
+        BankAccount account = new BankAccount();
+        account.setId(id);
+        account.setVersion(0L);
+        account.setBankCardNumber(bankCardNumber);
+        account.setAccountHolderName(accountHolderName);
+        account.setBalance(new BigDecimal(balance));
+        account.setUserUid("user-" + bankCardNumber);
+        account.setStatus(AccountStatus.ACTIVE);
+        return account;
+    }
+
+    private static BankTransferVO transfer(String sendName, String sendCard,
+                                           String receiveName, String receiveCard, String amount) {
+        return new BankTransferVO(sendName, sendCard, new BigDecimal(amount), receiveName, receiveCard);
+    }
+}
@@ -0,0 +1,167 @@
+package com.org.bank.manage.system;
+
+import com.org.bank.manage.system.config.JournalProperties;
+import com.org.bank.manage.system.repository.BankAccountRepository;
+import com.org.bank.manage.system.service.journal.JournalEntry;
+import com.org.bank.manage.system.service.journal.TransferJournal;
+import com.org.bank.manage.system.service.journal.TransferJournalWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// 内存映射转账日志的单元测试
+class TransferJournalTest {
+
+    private static final int SEGMENT_SIZE = 4 * 1024;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * 段写满后滚动，重新打开后按顺序读回并接着追加
+     */
+    @Test
+    void testRollAndReopen() throws Exception {
+        TransferJournal journal = new TransferJournal(dir, SEGMENT_SIZE);
+        for (int i = 0; i < 200; i++) {
+            journal.append(entry("tx-" + i, i));
+        }
+        journal.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() > 1);
+        }
+
+        TransferJournal reopened = new TransferJournal(dir, SEGMENT_SIZE);
+        reopened.append(entry("tx-200", 200));
+        List<JournalEntry> entries = reopened.readAll();
+        reopened.close();
+
+        assertEquals(201, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals("tx-" + i, entries.get(i).getTxId());
+        }
+    }
+
+    /**
+     * 最后一条记录写了一半时，重新打开会截断它并从该位置继续追加
+     */
+    @Test
+    void testTruncateTornRecord() throws Exception {
+        TransferJournal journal = new TransferJournal(dir, SEGMENT_SIZE);
+        journal.append(entry("tx-0", 0));
+        journal.append(entry("tx-1", 1));
+        journal.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        int secondRecord = 8 + entry("tx-0", 0).encode().length();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // 破坏第二条记录的内容，模拟掉电时只写了长度
+            file.seek(secondRecord + 8);
+            file.write(new byte[]{0, 0, 0, 0});
+        }
+
+        TransferJournal reopened = new TransferJournal(dir, SEGMENT_SIZE);
+        reopened.append(entry("tx-2", 2));
+        List<JournalEntry> entries = reopened.readAll();
+        reopened.close();
+
+        assertEquals(2, entries.size());
+        assertEquals("tx-0", entries.get(0).getTxId());
+        assertEquals("tx-2", entries.get(1).getTxId());
+    }
+
+    /**
+     * 并发追加全部可读回，且刷盘次数不超过追加次数
+     */
+    @Test
+    void testConcurrentAppendsShareForces() throws Exception {
+        TransferJournal journal = new TransferJournal(dir, 1024 * 1024);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            int n = i;
+            futures.add(CompletableFuture.runAsync(() -> journal.append(entry("tx-" + n, n)), pool));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        pool.shutdown();
+
+        assertEquals(1_000, journal.readAll().size());
+        assertEquals(1_000, journal.getAppends());
+        assertTrue(journal.getForces() <= journal.getAppends());
+        journal.close();
+    }
+
+    /**
+     * 滚动时只保留最近的若干段，读回的是最新段中的记录
+     */
+    @Test
+    void testRetainedSegments() throws Exception {
+        TransferJournal journal = new TransferJournal(dir, SEGMENT_SIZE, 2);
+        for (int i = 0; i < 500; i++) {
+            journal.append(entry("tx-" + i, i));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+        List<JournalEntry> entries = journal.readAll();
+        assertTrue(entries.size() < 500);
+        assertEquals("tx-499", entries.get(entries.size() - 1).getTxId());
+        journal.close();
+    }
+
+    /**
+     * 启动回写按转账与修改账户（ADJUST）的最后余额写库，数据库中不存在的账户跳过，不会重建
+     */
+    @Test
+    void testRestoreAppliesAdjustmentsAndSkipsMissingAccounts() {
+        JournalProperties properties = new JournalProperties();
+        properties.setDir(dir.toString());
+        properties.setSegmentSize(DataSize.ofBytes(SEGMENT_SIZE));
+        properties.setRestoreOnStartup(true);
+        BankAccountRepository bankAccountRepository = Mockito.mock(BankAccountRepository.class);
+        when(bankAccountRepository.updateBankAccountBalance(any(), any(), eq("A"))).thenReturn(1);
+        TransferJournalWriter writer = new TransferJournalWriter();
+        ReflectionTestUtils.setField(writer, "journalProperties", properties);
+        ReflectionTestUtils.setField(writer, "bankAccountRepository", bankAccountRepository);
+        ReflectionTestUtils.setField(writer, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        writer.start();
+        writer.record(List.of(entry("tx-0", 90), new JournalEntry("tx-0", JournalEntry.TRANSFER, "B",
+                BigDecimal.ONE, new BigDecimal("110"), 1L)));
+        writer.record(List.of(new JournalEntry("adj-0", JournalEntry.ADJUST, "A",
+                new BigDecimal("410"), new BigDecimal("500"), 2L)));
+
+        writer.recover();
+        writer.stop();
+
+        verify(bankAccountRepository).updateBankAccountBalance(eq(new BigDecimal("500")), any(), eq("A"));
+        verify(bankAccountRepository).updateBankAccountBalance(eq(new BigDecimal("110")), any(), eq("B"));
+    }
+
+    private static JournalEntry entry(String txId, int balance) {
+        return new JournalEntry(txId, JournalEntry.TRANSFER, "A", BigDecimal.ONE,
+                new BigDecimal(balance), 1L);
+    }
+}